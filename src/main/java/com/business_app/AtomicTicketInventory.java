@@ -0,0 +1,120 @@
+package com.business_app;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Проданные и доступные билеты - одно атомарное значение: старшие 32 бита - продано, младшие - доступно.
+// Продажа и возврат меняют оба счетчика одним compareAndSet, поэтому проверка наличия и списание
+// не разделены во времени: билеты не продаются сверх наличия и обновления не теряются, без блокировок.
+public class AtomicTicketInventory implements TicketInventory {
+
+    private final AtomicLong state = new AtomicLong();
+
+    public AtomicTicketInventory(int sold, int available) {
+        state.set(pack(sold, available));
+    }
+
+    @Override
+    public int getSold() {
+        return sold(state.get());
+    }
+
+    @Override
+    public int getAvailable() {
+        return available(state.get());
+    }
+
+    @Override
+    public void setAvailable(int available) {
+        long current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, pack(sold(current), available)));
+    }
+
+    @Override
+    public boolean setSold(int sold) {
+        long current;
+        long total;
+        do {
+            current = state.get();
+            total = (long) sold(current) + available(current);
+            if (sold > total) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, pack(sold, (int) (total - sold))));
+        return true;
+    }
+
+    @Override
+    public boolean trySell(int count) {
+        while (true) {
+            long current = state.get();
+            int available = available(current);
+            if (available < count) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(sold(current) + count, available - count))) {
+                return true;
+            }
+            // Другой поток успел изменить счетчики - повторяем с новым состоянием
+        }
+    }
+
+    @Override
+    public boolean tryHold(int count) {
+        while (true) {
+            long current = state.get();
+            int available = available(current);
+            if (available < count) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(sold(current), available - count))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void confirmHeld(int count) {
+        add(count, 0);
+    }
+
+    @Override
+    public void releaseHeld(int count) {
+        add(0, count);
+    }
+
+    @Override
+    public boolean tryReturn(int count) {
+        while (true) {
+            long current = state.get();
+            int sold = sold(current);
+            if (sold < count) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(sold - count, available(current) + count))) {
+                return true;
+            }
+        }
+    }
+
+    // Прибавление к счетчикам (без проверок)
+    private void add(int soldDelta, int availableDelta) {
+        long current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, pack(sold(current) + soldDelta, available(current) + availableDelta)));
+    }
+
+    static long pack(int sold, int available) {
+        return (long) sold << 32 | (available & 0xFFFFFFFFL);
+    }
+
+    static int sold(long state) {
+        return (int) (state >>> 32);
+    }
+
+    static int available(long state) {
+        return (int) state;
+    }
+}
@@ -0,0 +1,30 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+// Итог покупки корзины: куплено ли все, какая премьера помешала покупке и созданные финансовые записи
+@Getter
+@ToString
+public class CartPurchaseResult {
+
+    private final boolean purchased;
+    private final String failedPremiereId; // null, если корзина куплена
+    private final List<FinanceRecord> records;
+
+    private CartPurchaseResult(boolean purchased, String failedPremiereId, List<FinanceRecord> records) {
+        this.purchased = purchased;
+        this.failedPremiereId = failedPremiereId;
+        this.records = records;
+    }
+
+    public static CartPurchaseResult purchased(List<FinanceRecord> records) {
+        return new CartPurchaseResult(true, null, records);
+    }
+
+    public static CartPurchaseResult failed(String failedPremiereId) {
+        return new CartPurchaseResult(false, failedPremiereId, List.of());
+    }
+}
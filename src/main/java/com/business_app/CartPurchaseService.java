@@ -0,0 +1,88 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Групповая покупка билетов на несколько премьер: все или ничего, без общей блокировки.
+// Билеты каждой строки удерживаются тем же атомарным шагом, что и при продаже (Premiere.holdTickets),
+// строки обходятся в порядке ID премьер. Если на какую-то премьеру билетов не хватило, уже удержанные
+// билеты возвращаются, и никто не видит корзину проданной наполовину: удержанные билеты не считаются
+// проданными. Ожидания нет вовсе, поэтому пересекающиеся корзины не могут заблокировать друг друга;
+// общий порядок обхода означает, что из двух корзин, спорящих за последние билеты, одна доходит до конца.
+// Когда удержано все, финансовые записи пишутся одним пакетом (один кадр журнала), и только после этого
+// удержания становятся продажами.
+@Slf4j
+public class CartPurchaseService {
+
+    private final FinanceManager financeManager;
+
+    public CartPurchaseService(FinanceManager financeManager) {
+        if (financeManager == null) {
+            throw new IllegalArgumentException("Финансовый менеджер не может быть null.");
+        }
+        this.financeManager = financeManager;
+    }
+
+    public CartPurchaseResult purchase(TicketCart cart) {
+        if (cart == null || cart.isEmpty()) {
+            throw new IllegalArgumentException("Корзина пуста.");
+        }
+        List<TicketCart.Line> lines = cart.getLines();
+        int held = 0;
+        for (TicketCart.Line line : lines) {
+            if (!line.getPremiere().holdTickets(line.getCount())) {
+                releaseHeld(lines, held);
+                log.warn("Корзина не куплена: недостаточно билетов на премьеру {}", line.getPremiereId());
+                return CartPurchaseResult.failed(line.getPremiereId());
+            }
+            held++;
+        }
+
+        List<FinanceRecord> records = new ArrayList<>(lines.size());
+        try {
+            LocalDate today = LocalDate.now();
+            for (TicketCart.Line line : lines) {
+                long amount = line.getAmountCents();
+                if (amount > 0) { // Бесплатные билеты финансовых записей не дают
+                    records.add(FinanceRecord.ofCents(financeManager.nextRecordId(), FinanceType.INCOME, amount,
+                            "Продажа билетов на премьеру: " + line.getPremiere().getMovieTitle()
+                                    + " (групповая покупка, билетов: " + line.getCount() + ")",
+                            today, FinanceCategory.TICKET_SALE, line.getPremiereId()));
+                }
+            }
+            if (!records.isEmpty()) {
+                FinanceBatchResult result = financeManager.addFinanceRecords(records);
+                if (!result.getRejected().isEmpty()) {
+                    // Записи собраны здесь же и проверены заранее; отказ означает повтор ID - откатываем пакет
+                    for (FinanceRecord record : records) {
+                        if (result.getRejected().stream().noneMatch(rejection -> rejection.getRecord() == record)) {
+                            financeManager.removeFinanceRecord(record.getId());
+                        }
+                    }
+                    throw new IllegalStateException("Финансовые записи корзины отклонены: "
+                            + result.getRejected().get(0).getReason());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Пакет, не сохраненный в журнале, FinanceManager уже убрал из памяти и итогов - снимаем удержания
+            releaseHeld(lines, lines.size());
+            throw e;
+        }
+
+        for (TicketCart.Line line : lines) {
+            line.getPremiere().confirmHeldTickets(line.getCount());
+        }
+        log.info("Корзина куплена: премьер {}, билетов {}, сумма {}", lines.size(), cart.getTotalTickets(),
+                Money.format(cart.getTotalCents()));
+        return CartPurchaseResult.purchased(records);
+    }
+
+    private static void releaseHeld(List<TicketCart.Line> lines, int count) {
+        for (int i = 0; i < count; i++) {
+            lines.get(i).getPremiere().releaseHeldTickets(lines.get(i).getCount());
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.business_app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Колоночное хранилище финансовых записей: вместо объекта на запись - параллельные массивы примитивов.
+// Каждая строка занимает: long сумма в центах, int день от 1970-01-01, byte тип+категория,
+// int код описания и int код премьеры (строки хранятся один раз в словаре), long числовой ID.
+// Массивы растут блоками по CHUNK_SIZE строк, поэтому рост не требует копирования всего хранилища.
+// Объекты FinanceRecord создаются только при обращении к записи и не хранятся.
+// Удаленные строки помечаются битом и пропускаются при обходе. Когда удаленных строк становится больше,
+// чем живых, живые строки сдвигаются к началу на месте (с сохранением порядка), а индексы и словари
+// строятся заново - так удаление стоит O(1) в среднем, а память не растет от удаленных строк.
+public class ColumnarFinanceStore implements FinanceStore {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 65 536 строк в блоке
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NO_CODE = -1;
+    private static final int COMPACT_MIN_DELETED = 1024; // Меньше удаленных строк не сжимаем
+    private static final FinanceType[] TYPES = FinanceType.values();
+    private static final FinanceCategory[] CATEGORIES = FinanceCategory.values();
+
+    private long[][] ids = new long[0][];
+    private long[][] amountCents = new long[0][];
+    private int[][] epochDays = new int[0][];
+    private byte[][] typeAndCategory = new byte[0][];
+    private int[][] descriptionCodes = new int[0][];
+    private int[][] premiereCodes = new int[0][];
+    private long[][] deleted = new long[0][];
+
+    private int rowCount; // Всего строк, включая удаленные
+    private int liveCount; // Строк без пометки об удалении
+
+    // Индекс ID -> строка: числовые ID (выдаваемые генератором) - без объектов на запись,
+    // прочие ID (например, старые ручные) - в обычной HashMap
+    private RowIndex numericIndex = new RowIndex();
+    private final Map<String, Integer> textIndex = new HashMap<>();
+    private final Map<Integer, String> textIds = new HashMap<>();
+
+    private StringDictionary descriptions = new StringDictionary();
+    private StringDictionary premieres = new StringDictionary();
+    // Номера строк по категориям; удаленные строки пропускаются при чтении
+    private final IntList[] rowsByCategory = new IntList[CATEGORIES.length];
+
+    public ColumnarFinanceStore() {
+        for (int i = 0; i < rowsByCategory.length; i++) {
+            rowsByCategory[i] = new IntList();
+        }
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return rowOf(id) >= 0;
+    }
+
+    @Override
+    public FinanceRecord get(String id) {
+        int row = rowOf(id);
+        return row < 0 ? null : view(row);
+    }
+
+    @Override
+    public void add(FinanceRecord record) {
+        int epochDay = epochDayOf(record); // Проверка до изменения состояния: строка пишется целиком или никак
+        int row = rowCount;
+        if ((row >>> CHUNK_SHIFT) == amountCents.length) {
+            addChunk();
+        }
+        rowCount++;
+        liveCount++;
+        long numericId = numericId(record.getId());
+        if (numericId >= 0) {
+            ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = numericId;
+            numericIndex.put(numericId, row);
+        } else {
+            ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = -1;
+            textIndex.put(record.getId(), row);
+            textIds.put(row, record.getId());
+        }
+        write(row, record, epochDay, true);
+    }
+
+    @Override
+    public FinanceRecord replace(FinanceRecord record) {
+        int row = rowOf(record.getId());
+        if (row < 0) {
+            return null;
+        }
+        int epochDay = epochDayOf(record);
+        FinanceRecord previous = view(row);
+        write(row, record, epochDay, false); // Строка перезаписывается на месте, порядок добавления сохраняется
+        return previous;
+    }
+
+    @Override
+    public FinanceRecord remove(String id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return null;
+        }
+        FinanceRecord removed = view(row);
+        deleted[row >>> CHUNK_SHIFT][(row & CHUNK_MASK) >>> 6] |= 1L << row;
+        liveCount--;
+        long numericId = ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        if (numericId >= 0) {
+            numericIndex.remove(numericId);
+        } else {
+            textIndex.remove(id);
+            textIds.remove(row);
+        }
+        int deletedRows = rowCount - liveCount;
+        if (deletedRows >= COMPACT_MIN_DELETED && deletedRows > liveCount) {
+            compact();
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return liveCount;
+    }
+
+    @Override
+    public void forEach(Consumer<FinanceRecord> action) {
+        for (int row = 0; row < rowCount; row++) {
+            if (!isDeleted(row)) {
+                action.accept(view(row));
+            }
+        }
+    }
+
+    @Override
+    public void forEachWhile(Predicate<FinanceRecord> action) {
+        for (int row = 0; row < rowCount; row++) {
+            if (!isDeleted(row) && !action.test(view(row))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<FinanceRecord> getByCategory(FinanceCategory category) {
+        IntList rows = rowsByCategory[category.ordinal()];
+        List<FinanceRecord> result = new ArrayList<>();
+        for (int i = 0; i < rows.size; i++) {
+            int row = rows.values[i];
+            if (!isDeleted(row)) {
+                result.add(view(row));
+            }
+        }
+        return result;
+    }
+
+    // Создание объекта-представления строки по запросу
+    private FinanceRecord view(int row) {
+        int chunk = row >>> CHUNK_SHIFT;
+        int offset = row & CHUNK_MASK;
+        long numericId = ids[chunk][offset];
+        String id = numericId >= 0 ? Long.toString(numericId) : textIds.get(row);
+        byte packed = typeAndCategory[chunk][offset];
+        int premiereCode = premiereCodes[chunk][offset];
+        return FinanceRecord.ofCents(id, TYPES[packed & 1], amountCents[chunk][offset],
+                descriptions.get(descriptionCodes[chunk][offset]), LocalDate.ofEpochDay(epochDays[chunk][offset]),
+                CATEGORIES[packed >>> 1], premiereCode == NO_CODE ? null : premieres.get(premiereCode));
+    }
+
+    // День записи в формате колонки; дата вне диапазона int отклоняется до любых изменений
+    private static int epochDayOf(FinanceRecord record) {
+        long epochDay = record.getDate().toEpochDay();
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Дата записи вне поддерживаемого диапазона: " + record.getDate());
+        }
+        return (int) epochDay;
+    }
+
+    private void write(int row, FinanceRecord record, int epochDay, boolean newRow) {
+        int chunk = row >>> CHUNK_SHIFT;
+        int offset = row & CHUNK_MASK;
+        int category = record.getCategory().ordinal();
+        int previousCategory = categoryOf(row);
+        boolean categoryChanged = newRow || previousCategory != category;
+        if (!newRow && categoryChanged) {
+            rowsByCategory[previousCategory].removeValue(row); // Смена категории при обновлении - редкий случай
+        }
+        amountCents[chunk][offset] = record.getAmountCents();
+        epochDays[chunk][offset] = epochDay;
+        typeAndCategory[chunk][offset] = (byte) (record.getType().ordinal() | category << 1);
+        descriptionCodes[chunk][offset] = descriptions.encode(record.getDescription());
+        premiereCodes[chunk][offset] = record.getPremiereId() == null ? NO_CODE : premieres.encode(record.getPremiereId());
+        if (categoryChanged) {
+            rowsByCategory[category].add(row);
+        }
+    }
+
+    private int categoryOf(int row) {
+        return typeAndCategory[row >>> CHUNK_SHIFT][row & CHUNK_MASK] >>> 1;
+    }
+
+    private boolean isDeleted(int row) {
+        return (deleted[row >>> CHUNK_SHIFT][(row & CHUNK_MASK) >>> 6] & (1L << row)) != 0;
+    }
+
+    private int rowOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        long numericId = numericId(id);
+        if (numericId >= 0) {
+            return numericIndex.get(numericId);
+        }
+        Integer row = textIndex.get(id);
+        return row == null ? -1 : row;
+    }
+
+    // Числовой ID хранится как long, если строка однозначно восстанавливается из числа; иначе -1
+    private static long numericId(String id) {
+        int length = id.length();
+        if (length == 0 || length > 19 || (length > 1 && id.charAt(0) == '0')) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9' || value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Сжатие: живые строки переносятся к началу на месте, индексы, списки категорий и словари строятся заново
+    private void compact() {
+        StringDictionary liveDescriptions = new StringDictionary();
+        StringDictionary livePremieres = new StringDictionary();
+        Map<Integer, String> liveTextIds = new HashMap<>();
+        numericIndex = new RowIndex();
+        textIndex.clear();
+        for (IntList rows : rowsByCategory) {
+            rows.size = 0;
+        }
+        int to = 0;
+        for (int from = 0; from < rowCount; from++) {
+            if (isDeleted(from)) {
+                continue;
+            }
+            int fromChunk = from >>> CHUNK_SHIFT;
+            int fromOffset = from & CHUNK_MASK;
+            int chunk = to >>> CHUNK_SHIFT;
+            int offset = to & CHUNK_MASK;
+            long numericId = ids[fromChunk][fromOffset];
+            ids[chunk][offset] = numericId;
+            amountCents[chunk][offset] = amountCents[fromChunk][fromOffset];
+            epochDays[chunk][offset] = epochDays[fromChunk][fromOffset];
+            typeAndCategory[chunk][offset] = typeAndCategory[fromChunk][fromOffset];
+            descriptionCodes[chunk][offset] = liveDescriptions.encode(descriptions.get(descriptionCodes[fromChunk][fromOffset]));
+            int premiereCode = premiereCodes[fromChunk][fromOffset];
+            premiereCodes[chunk][offset] = premiereCode == NO_CODE ? NO_CODE : livePremieres.encode(premieres.get(premiereCode));
+            if (numericId >= 0) {
+                numericIndex.put(numericId, to);
+            } else {
+                String id = textIds.get(from);
+                liveTextIds.put(to, id);
+                textIndex.put(id, to);
+            }
+            rowsByCategory[categoryOf(to)].add(to);
+            to++;
+        }
+        textIds.clear();
+        textIds.putAll(liveTextIds);
+        descriptions = liveDescriptions;
+        premieres = livePremieres;
+        rowCount = to;
+        // Пометки об удалении больше не нужны, лишние блоки освобождаем
+        int chunks = (to + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            Arrays.fill(deleted[chunk], 0L);
+        }
+        ids = Arrays.copyOf(ids, chunks);
+        amountCents = Arrays.copyOf(amountCents, chunks);
+        epochDays = Arrays.copyOf(epochDays, chunks);
+        typeAndCategory = Arrays.copyOf(typeAndCategory, chunks);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, chunks);
+        premiereCodes = Arrays.copyOf(premiereCodes, chunks);
+        deleted = Arrays.copyOf(deleted, chunks);
+    }
+
+    private void addChunk() {
+        int chunks = amountCents.length + 1;
+        ids = Arrays.copyOf(ids, chunks);
+        amountCents = Arrays.copyOf(amountCents, chunks);
+        epochDays = Arrays.copyOf(epochDays, chunks);
+        typeAndCategory = Arrays.copyOf(typeAndCategory, chunks);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, chunks);
+        premiereCodes = Arrays.copyOf(premiereCodes, chunks);
+        deleted = Arrays.copyOf(deleted, chunks);
+        ids[chunks - 1] = new long[CHUNK_SIZE];
+        amountCents[chunks - 1] = new long[CHUNK_SIZE];
+        epochDays[chunks - 1] = new int[CHUNK_SIZE];
+        typeAndCategory[chunks - 1] = new byte[CHUNK_SIZE];
+        descriptionCodes[chunks - 1] = new int[CHUNK_SIZE];
+        premiereCodes[chunks - 1] = new int[CHUNK_SIZE];
+        deleted[chunks - 1] = new long[CHUNK_SIZE / 64];
+    }
+
+    // Словарь строк: каждая различная строка хранится один раз, в колонке - ее код
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String get(int code) {
+            return values.get(code);
+        }
+    }
+
+    // Растущий массив int без упаковки
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Индекс числовой ID -> строка: открытая адресация (линейное пробирование), в ячейке хранится только
+    // номер строки + 1, а сам ID берется из колонки ids. Так индекс стоит 8-16 байт на строку.
+    private final class RowIndex {
+        private int[] slots = new int[1024];
+        private int size;
+
+        private int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private long keyAt(int slot) {
+            int row = slots[slot] - 1;
+            return ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        int get(long key) {
+            int mask = slots.length - 1;
+            for (int i = slot(key, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (keyAt(i) == key) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        // ID строки уже должен быть записан в колонку ids
+        void put(long key, int row) {
+            if ((size + 1) * 2 > slots.length) {
+                resize();
+            }
+            int mask = slots.length - 1;
+            int i = slot(key, mask);
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = row + 1;
+            size++;
+        }
+
+        // Удаление со сдвигом последующих элементов цепочки, чтобы не оставлять "дыр" в пробировании
+        void remove(long key) {
+            int mask = slots.length - 1;
+            int i = slot(key, mask);
+            while (slots[i] != 0 && keyAt(i) != key) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                return;
+            }
+            size--;
+            int gap = i;
+            for (int j = (gap + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keyAt(j), mask);
+                // Элемент можно перенести в "дыру", если она лежит между его домашней ячейкой и текущей
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    slots[gap] = slots[j];
+                    gap = j;
+                }
+            }
+            slots[gap] = 0;
+        }
+
+        private void resize() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            int mask = slots.length - 1;
+            for (int value : old) {
+                if (value != 0) {
+                    int row = value - 1;
+                    int i = slot(ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK], mask);
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = value;
+                }
+            }
+        }
+    }
+}
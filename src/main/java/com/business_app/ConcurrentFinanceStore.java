@@ -0,0 +1,222 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Потокобезопасное хранилище для записи из многих потоков.
+// Каждая операция получает номер в журнале в памяти (AtomicLong) и записывается в свою ячейку;
+// журнал состоит из сегментов по SEGMENT_SIZE ячеек, сегменты создаются по мере роста без копирования.
+// Индекс ID -> запись - ConcurrentHashMap.
+// Снимок для чтения - это префикс журнала до номера t: запись видна, если добавлена до t и удалена не раньше t.
+// Поэтому отчеты видят согласованное состояние и не блокируют запись.
+// Операции с одним и тем же ID должен упорядочивать вызывающий код (FinanceManager делает это блокировками по ID).
+// Журнал в памяти сжимается методом compactLog(): живые записи копируются в новое поколение журнала,
+// а старое поколение остается у начатых обходов и снимков и освобождается сборщиком мусора после них.
+public class ConcurrentFinanceStore implements FinanceStore {
+
+    private static final int SEGMENT_SHIFT = 14;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT; // 16 384 ячейки в сегменте
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int MAX_SEGMENTS = 1 << 17; // До ~2 млрд операций в одном поколении журнала
+    private static final long LIVE = Long.MAX_VALUE;
+    // Ячейка операции удаления: сама запись не нужна, важен только номер операции
+    private static final Entry TOMBSTONE = new Entry(null);
+
+    private volatile Log log = new Log();
+    private final ConcurrentHashMap<String, Entry> index = new ConcurrentHashMap<>();
+    private final LongAdder liveCount = new LongAdder();
+
+    @Override
+    public boolean contains(String id) {
+        return id != null && index.containsKey(id);
+    }
+
+    @Override
+    public FinanceRecord get(String id) {
+        Entry entry = id == null ? null : index.get(id);
+        return entry == null ? null : entry.record;
+    }
+
+    @Override
+    public void add(FinanceRecord record) {
+        Log current = log;
+        long position = current.tail.getAndIncrement();
+        Entry entry = new Entry(record);
+        index.put(record.getId(), entry);
+        liveCount.increment();
+        current.publish(position, entry);
+    }
+
+    @Override
+    public FinanceRecord replace(FinanceRecord record) {
+        Entry previous = index.get(record.getId());
+        if (previous == null) {
+            return null;
+        }
+        Log current = log;
+        long position = current.tail.getAndIncrement();
+        Entry entry = new Entry(record);
+        previous.removedAt = position; // Номер удаления записывается до публикации ячейки
+        index.put(record.getId(), entry);
+        current.publish(position, entry);
+        return previous.record;
+    }
+
+    @Override
+    public FinanceRecord remove(String id) {
+        Entry removed = id == null ? null : index.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        Log current = log;
+        long position = current.tail.getAndIncrement();
+        removed.removedAt = position;
+        liveCount.decrement();
+        current.publish(position, TOMBSTONE);
+        return removed.record;
+    }
+
+    @Override
+    public int size() {
+        return liveCount.intValue();
+    }
+
+    // Обход согласованного снимка на текущий момент (в порядке последнего изменения записи)
+    @Override
+    public void forEach(Consumer<FinanceRecord> action) {
+        Log current = log;
+        current.forEachUpTo(current.tail.get(), record -> {
+            action.accept(record);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachWhile(Predicate<FinanceRecord> action) {
+        Log current = log;
+        current.forEachUpTo(current.tail.get(), action);
+    }
+
+    // Число ячеек в текущем поколении журнала (для тестов и диагностики)
+    long operationCount() {
+        return log.tail.get();
+    }
+
+    // Записи категории из согласованного снимка
+    // (O(живых записей + операций после сжатия): отдельного индекса по категориям нет)
+    @Override
+    public List<FinanceRecord> getByCategory(FinanceCategory category) {
+        List<FinanceRecord> result = new ArrayList<>();
+        forEach(record -> {
+            if (record.getCategory() == category) {
+                result.add(record);
+            }
+        });
+        return result;
+    }
+
+    // Ленивый снимок: запоминаем поколение журнала и номер операции, записи собираются при вызове get().
+    // Сжатие не мешает снимку: его поколение после сжатия больше не меняется
+    @Override
+    public Supplier<List<FinanceRecord>> snapshot() {
+        Log current = log;
+        long position = current.tail.get();
+        return () -> {
+            List<FinanceRecord> records = new ArrayList<>();
+            current.forEachUpTo(position, record -> {
+                records.add(record);
+                return true;
+            });
+            return records;
+        };
+    }
+
+    // Сжатие журнала в памяти: новое поколение содержит только живые записи в прежнем порядке.
+    // Вызывающий код должен остановить запись на время сжатия (FinanceManager держит все блокировки);
+    // чтение при этом продолжается по старому поколению. Сжимаем, только если мертвых ячеек больше, чем живых
+    @Override
+    public void compactLog() {
+        Log current = log;
+        long operations = current.tail.get();
+        long live = liveCount.sum();
+        if (operations - live <= Math.max(live, SEGMENT_SIZE)) {
+            return;
+        }
+        Log compacted = new Log();
+        current.forEachUpTo(operations, record -> {
+            // Новая ячейка вместо старой: записи старого поколения больше не изменяются,
+            // поэтому номера удаления в нем остаются согласованными для начатых снимков
+            Entry entry = new Entry(record);
+            compacted.publish(compacted.tail.getAndIncrement(), entry);
+            index.put(record.getId(), entry);
+            return true;
+        });
+        log = compacted;
+    }
+
+    // Поколение журнала: сегменты ячеек и номер следующей операции
+    private static final class Log {
+        private final AtomicReferenceArray<AtomicReferenceArray<Entry>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+        private final AtomicLong tail = new AtomicLong(); // Номер следующей операции
+
+        // Сначала дожидаемся публикации всех ячеек до position, и только потом проверяем номера удаления:
+        // операция с номером меньше position записывает номер удаления до публикации своей ячейки,
+        // поэтому после ожидания все удаления, попавшие в снимок, уже видны
+        private void forEachUpTo(long position, Predicate<FinanceRecord> action) {
+            for (long i = position - 1; i >= 0; i--) {
+                awaitPublished(i);
+            }
+            for (long i = 0; i < position; i++) {
+                Entry entry = awaitPublished(i);
+                if (entry.record != null && entry.removedAt >= position && !action.test(entry.record)) {
+                    return;
+                }
+            }
+        }
+
+        private void publish(long position, Entry entry) {
+            segment(position).set((int) (position & SEGMENT_MASK), entry);
+        }
+
+        // Номер уже выдан, но поток-писатель мог еще не записать ячейку - ждем его (без блокировки писателей)
+        private Entry awaitPublished(long position) {
+            AtomicReferenceArray<Entry> segment = segment(position);
+            int offset = (int) (position & SEGMENT_MASK);
+            Entry entry;
+            while ((entry = segment.get(offset)) == null) {
+                Thread.onSpinWait();
+            }
+            return entry;
+        }
+
+        private AtomicReferenceArray<Entry> segment(long position) {
+            long number = position >>> SEGMENT_SHIFT;
+            if (number >= MAX_SEGMENTS) {
+                throw new IllegalStateException("Превышено число операций в журнале в памяти.");
+            }
+            AtomicReferenceArray<Entry> segment = segments.get((int) number);
+            if (segment == null) {
+                // Сегмент создает первый пришедший поток, остальные используют уже созданный
+                segments.compareAndSet((int) number, null, new AtomicReferenceArray<>(SEGMENT_SIZE));
+                segment = segments.get((int) number);
+            }
+            return segment;
+        }
+    }
+
+    private static final class Entry {
+        private final FinanceRecord record;
+        private volatile long removedAt = LIVE; // Номер операции, удалившей или заменившей запись
+
+        private Entry(FinanceRecord record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.business_app;
+
+import java.io.PrintStream;
+
+// Вывод отчета на консоль: байты строки передаются в System.out без создания строк
+public class ConsoleReportSink implements ReportSink {
+
+    private final ReportFormat format;
+    private final PrintStream out;
+
+    public ConsoleReportSink(ReportFormat format) {
+        this(format, System.out);
+    }
+
+    public ConsoleReportSink(ReportFormat format, PrintStream out) {
+        this.format = format;
+        this.out = out;
+    }
+
+    @Override
+    public ReportFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
@@ -12,7 +12,7 @@ public class Contract {
     private String role;                  // Роль человека в проекте
     private LocalDate startDate;          // Дата начала контракта
     private LocalDate endDate;            // Дата окончания контракта
-    private double salary;                // Гонорар
+    private long salaryCents;             // Гонорар в центах
 
     // Конструктор класса (создает объект с начальными значениями)
     public Contract(String id, String personName, String role, LocalDate startDate, LocalDate endDate, double salary) {
@@ -21,7 +21,7 @@ public class Contract {
         this.role = role;
         this.startDate = startDate;
         this.endDate = endDate;
-        this.salary = salary;
+        this.salaryCents = Money.toMinor(salary);
     }
 
     // Геттеры (методы для получения значений полей)
@@ -46,7 +46,11 @@ public class Contract {
     }
 
     public double getSalary() {
-        return salary;
+        return Money.toMajor(salaryCents);
+    }
+
+    public long getSalaryCents() {
+        return salaryCents;
     }
 
     // Сеттеры (методы для изменения значений полей с проверкой)
@@ -93,7 +97,7 @@ public class Contract {
             log.error("Гонорар не может быть отрицательным.");
             throw new IllegalArgumentException("Гонорар не может быть отрицательным.");
         }
-        this.salary = salary;
+        this.salaryCents = Money.toMinor(salary);
     }
 
     // Метод проверки, активен ли контракт (если дата окончания ещё не наступила)
@@ -110,7 +114,7 @@ public class Contract {
                 ", role='" + role + '\'' +
                 ", startDate='" + startDate + '\'' +
                 ", endDate='" + endDate + '\'' +
-                ", salary=" + salary +
+                ", salary=" + Money.format(salaryCents) +
                 '}';
     }
 }
@@ -0,0 +1,41 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// Строка группового отчета: ключ группы, число записей, доходы и расходы в центах.
+// Доходы и расходы копятся раздельно: без группировки по типу их сумма смешала бы знаки
+@Getter
+@ToString
+public class FinanceAggregate {
+
+    private final FinanceGroupKey key;
+    private final long count;
+    private final long incomeCents;
+    private final long expensesCents;
+
+    public FinanceAggregate(FinanceGroupKey key, long count, long incomeCents, long expensesCents) {
+        this.key = key;
+        this.count = count;
+        this.incomeCents = incomeCents;
+        this.expensesCents = expensesCents;
+    }
+
+    // Чистый результат группы: доходы минус расходы
+    @ToString.Include
+    public long getNetCents() {
+        return incomeCents - expensesCents;
+    }
+
+    public double getIncome() {
+        return Money.toMajor(incomeCents);
+    }
+
+    public double getExpenses() {
+        return Money.toMajor(expensesCents);
+    }
+
+    public double getNet() {
+        return Money.toMajor(getNetCents());
+    }
+}
@@ -0,0 +1,122 @@
+package com.business_app;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Параллельная группировка записей по измерениям (тип, месяц, премьера, категория).
+// Массив записей делится пополам, пока участок не станет меньше LEAF_SIZE; каждый участок копит
+// собственную таблицу частичных итогов, таблицы сливаются при возврате из подзадач.
+// Для каждой группы копятся число записей, доходы и расходы отдельно (в центах, long), поэтому результат не зависит от числа потоков и порядка слияния;
+// итоговые строки отсортированы по ключу.
+public class FinanceAggregator {
+
+    private static final int LEAF_SIZE = 16_384;
+    // Ячейки массива частичных итогов группы
+    private static final int COUNT = 0;
+    private static final int INCOME = 1;
+    private static final int EXPENSES = 2;
+
+    private FinanceAggregator() {
+    }
+
+    // Группировка в общем пуле ForkJoinPool (все ядра)
+    public static List<FinanceAggregate> aggregate(List<FinanceRecord> records, FinanceDimension... dimensions) {
+        return aggregate(records, ForkJoinPool.commonPool(), dimensions);
+    }
+
+    // Группировка в указанном пуле (например, чтобы ограничить число потоков)
+    public static List<FinanceAggregate> aggregate(List<FinanceRecord> records, ForkJoinPool pool,
+                                                   FinanceDimension... dimensions) {
+        if (records == null || pool == null || dimensions == null) {
+            throw new IllegalArgumentException("Записи, пул потоков и измерения должны быть указаны.");
+        }
+        Set<FinanceDimension> selected = dimensions.length == 0
+                ? EnumSet.noneOf(FinanceDimension.class) : EnumSet.of(dimensions[0], dimensions);
+        FinanceRecord[] snapshot = records.toArray(new FinanceRecord[0]);
+        Map<FinanceGroupKey, long[]> totals = pool.invoke(new GroupTask(snapshot, 0, snapshot.length, selected));
+
+        List<FinanceAggregate> result = new ArrayList<>(totals.size());
+        for (Map.Entry<FinanceGroupKey, long[]> entry : totals.entrySet()) {
+            long[] partial = entry.getValue();
+            result.add(new FinanceAggregate(entry.getKey(), partial[COUNT], partial[INCOME], partial[EXPENSES]));
+        }
+        result.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        return result;
+    }
+
+    private static final class GroupTask extends RecursiveTask<Map<FinanceGroupKey, long[]>> {
+        private final FinanceRecord[] records;
+        private final int from;
+        private final int to;
+        private final boolean byType;
+        private final boolean byMonth;
+        private final boolean byPremiere;
+        private final boolean byCategory;
+        private final Set<FinanceDimension> dimensions;
+
+        GroupTask(FinanceRecord[] records, int from, int to, Set<FinanceDimension> dimensions) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.dimensions = dimensions;
+            this.byType = dimensions.contains(FinanceDimension.TYPE);
+            this.byMonth = dimensions.contains(FinanceDimension.MONTH);
+            this.byPremiere = dimensions.contains(FinanceDimension.PREMIERE);
+            this.byCategory = dimensions.contains(FinanceDimension.CATEGORY);
+        }
+
+        @Override
+        protected Map<FinanceGroupKey, long[]> compute() {
+            if (to - from <= LEAF_SIZE) {
+                return accumulate();
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(records, from, middle, dimensions);
+            GroupTask right = new GroupTask(records, middle, to, dimensions);
+            left.fork();
+            Map<FinanceGroupKey, long[]> rightTotals = right.compute();
+            Map<FinanceGroupKey, long[]> leftTotals = left.join();
+            // Сливаем меньшую таблицу в большую
+            Map<FinanceGroupKey, long[]> target = leftTotals.size() >= rightTotals.size() ? leftTotals : rightTotals;
+            Map<FinanceGroupKey, long[]> source = target == leftTotals ? rightTotals : leftTotals;
+            for (Map.Entry<FinanceGroupKey, long[]> entry : source.entrySet()) {
+                long[] partial = target.get(entry.getKey());
+                if (partial == null) {
+                    target.put(entry.getKey(), entry.getValue());
+                } else {
+                    for (int i = 0; i < partial.length; i++) {
+                        partial[i] += entry.getValue()[i];
+                    }
+                }
+            }
+            return target;
+        }
+
+        private Map<FinanceGroupKey, long[]> accumulate() {
+            Map<FinanceGroupKey, long[]> totals = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                FinanceRecord record = records[i];
+                FinanceGroupKey key = new FinanceGroupKey(
+                        byType ? record.getType() : null,
+                        byMonth ? YearMonth.from(record.getDate()) : null,
+                        byPremiere ? record.getPremiereId() : null,
+                        byCategory ? record.getCategory() : null);
+                long[] partial = totals.get(key);
+                if (partial == null) {
+                    partial = new long[3];
+                    totals.put(key, partial);
+                }
+                partial[COUNT]++;
+                partial[record.getType() == FinanceType.INCOME ? INCOME : EXPENSES] += record.getAmountCents();
+            }
+            return totals;
+        }
+    }
+}
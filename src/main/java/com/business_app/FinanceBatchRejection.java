@@ -0,0 +1,20 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// Отклоненная строка пакета: позиция в пакете, сама запись и причина
+@Getter
+@ToString
+public class FinanceBatchRejection {
+
+    private final int index;
+    private final FinanceRecord record;
+    private final String reason;
+
+    public FinanceBatchRejection(int index, FinanceRecord record, String reason) {
+        this.index = index;
+        this.record = record;
+        this.reason = reason;
+    }
+}
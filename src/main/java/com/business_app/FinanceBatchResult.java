@@ -0,0 +1,31 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+// Итог пакетной загрузки: сколько записей принято, какие отклонены и за какое время
+@Getter
+@ToString
+public class FinanceBatchResult {
+
+    private final int acceptedCount;
+    private final List<FinanceBatchRejection> rejected;
+    private final long elapsedNanos;
+
+    public FinanceBatchResult(int acceptedCount, List<FinanceBatchRejection> rejected, long elapsedNanos) {
+        this.acceptedCount = acceptedCount;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getTotalCount() {
+        return acceptedCount + rejected.size();
+    }
+
+    // Пропускная способность: обработанных строк пакета в секунду
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getTotalCount() * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,27 @@
+package com.business_app;
+
+// Категория финансовой записи: по ней считаются продажи и возвраты билетов без разбора описаний
+public enum FinanceCategory {
+    TICKET_SALE, // Продажа билетов
+    TICKET_REFUND, // Возврат билетов
+    PREMIERE_BUDGET, // Бюджет премьеры
+    MANUAL; // Запись, добавленная вручную
+
+    // Определение категории для старых записей по типу и описанию (используется один раз при загрузке)
+    public static FinanceCategory classify(FinanceType type, String description) {
+        if (description == null) {
+            return MANUAL;
+        }
+        if (type == FinanceType.INCOME && description.contains("Продажа билетов")) {
+            return TICKET_SALE;
+        }
+        if (type == FinanceType.EXPENSE && description.contains("Возврат билетов")) {
+            return TICKET_REFUND;
+        }
+        if (type == FinanceType.INCOME && (description.startsWith("Бюджет для премьеры")
+                || description.startsWith("Добавление бюджета к премьере"))) {
+            return PREMIERE_BUDGET;
+        }
+        return MANUAL;
+    }
+}
@@ -0,0 +1,423 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Потоковый загрузчик файла finance_records.csv.
+// Файл читается через отображение в память (memory-mapped) окнами, поля разбираются прямо из байтов:
+// суммы и даты ISO (yyyy-MM-dd) без промежуточных строк, тип записи - сравнением байтов.
+// Строки создаются только для ID и описания; повторяющиеся описания берутся из небольшого кэша.
+// Формат строки: ID, Тип, Сумма, Описание, Дата. Описание может содержать разделитель ", ":
+// ID, тип и сумма - первые три поля, дата - последнее, все между ними - описание.
+// Описание с кавычками или переводом строки записывается в кавычках ("..."), кавычки внутри удваиваются.
+@Slf4j
+public class FinanceCsvLoader {
+
+    // Обработчик разобранной строки; сумма - в центах, дата - номер дня от 1970-01-01
+    public interface RowHandler {
+        void onRow(String id, FinanceType type, long amountCents, String description, long epochDay);
+    }
+
+    // Итог загрузки
+    public static final class Result {
+        private final long rows;
+        private final long skipped;
+        private final long elapsedNanos;
+
+        private Result(long rows, long skipped, long elapsedNanos) {
+            this.rows = rows;
+            this.skipped = skipped;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Скорость загрузки: строк в секунду
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? rows : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024; // Размер окна отображения файла в память
+    private static final byte[] INCOME = "INCOME".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EXPENSE = "EXPENSE".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUDGET = "Бюджет".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUDGET_LOWER = "бюджет".getBytes(StandardCharsets.UTF_8);
+
+    // Кэш описаний: одинаковые байты описания дают один и тот же объект String
+    private static final int CACHE_SIZE = 4096;
+    private final byte[][] cacheKeys = new byte[CACHE_SIZE][];
+    private final String[] cacheValues = new String[CACHE_SIZE];
+
+    // Границы полей текущей строки внутри окна
+    private int idEnd;
+    private int typeStart;
+    private int typeEnd;
+    private int amountStart;
+    private int amountEnd;
+    private int descriptionStart;
+    private int descriptionEnd;
+    private int dateStart;
+    private boolean multiline; // Найденная findRowEnd строка содержит перевод строки внутри кавычек
+    private long lineCount; // Число непустых строк в блоке, разобранном parseLines
+
+    // Метод для загрузки файла; первая строка (заголовок) пропускается
+    public Result load(Path file, RowHandler handler) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        long skipped = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long windowStart = 0;
+            boolean header = true;
+            while (windowStart < fileSize) {
+                int windowLength = (int) Math.min(WINDOW_SIZE, fileSize - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                boolean lastWindow = windowStart + windowLength == fileSize;
+                int position = 0;
+                while (position < windowLength) {
+                    int rowEnd = findRowEnd(window, position, windowLength);
+                    if (rowEnd < 0) {
+                        if (!lastWindow) {
+                            break; // Строка продолжается в следующем окне - отображаем файл заново с ее начала
+                        }
+                        rowEnd = windowLength;
+                    }
+                    int contentEnd = rowEnd;
+                    if (contentEnd > position && window.get(contentEnd - 1) == '\r') {
+                        contentEnd--;
+                    }
+                    if (header) {
+                        header = false;
+                    } else if (contentEnd > position) {
+                        if (parseRow(window, position, contentEnd, multiline, handler)) {
+                            rows++;
+                        } else {
+                            // Несколько строк, склеенных незакрытой кавычкой, разбираем по одной:
+                            // записи в них не теряются, а пропущенные считаются построчно
+                            long parsed = parseLines(window, position, contentEnd, handler);
+                            rows += parsed;
+                            skipped += lineCount - parsed;
+                        }
+                    }
+                    position = rowEnd + 1;
+                }
+                if (position == 0) {
+                    throw new IOException("Строка длиннее окна чтения в файле " + file);
+                }
+                windowStart += Math.min(position, windowLength);
+            }
+        }
+        Result result = new Result(rows, skipped, System.nanoTime() - started);
+        log.info(String.format("Загружено %d строк из %s (пропущено %d) за %d мс, %.0f строк/с",
+                rows, file.getFileName(), skipped, result.getElapsedNanos() / 1_000_000, result.getRowsPerSecond()));
+        return result;
+    }
+
+    // Поиск конца строки с учетом переводов строки внутри кавычек; -1, если конец строки не найден.
+    // Кавычка открывает значение только в начале поля (в начале строки или сразу после ", "), "" внутри значения -
+    // экранированная кавычка. Кавычки в середине поля (старые CSV писали описания без экранирования) - обычные символы
+    private int findRowEnd(MappedByteBuffer buffer, int from, int limit) {
+        multiline = false;
+        boolean quoted = false;
+        boolean fieldStart = true;
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (quoted) {
+                if (b == '"') {
+                    if (i + 1 < limit && buffer.get(i + 1) == '"') {
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (b == '\n') {
+                    multiline = true;
+                }
+                continue;
+            }
+            if (b == '"' && fieldStart) {
+                quoted = true;
+            } else if (b == '\n') {
+                return i;
+            }
+            fieldStart = b == ' ' && i > from && buffer.get(i - 1) == ',';
+        }
+        return -1;
+    }
+
+    // Разбор каждой непустой строки блока как отдельной записи; число строк - в lineCount
+    private long parseLines(MappedByteBuffer buffer, int start, int end, RowHandler handler) {
+        long parsed = 0;
+        lineCount = 0;
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                lineCount++;
+                if (parseRow(buffer, lineStart, contentEnd, false, handler)) {
+                    parsed++;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return parsed;
+    }
+
+    // multiline - строка содержит переводы строки; допустимо это только внутри описания в кавычках
+    private boolean parseRow(MappedByteBuffer buffer, int start, int end, boolean multiline, RowHandler handler) {
+        if (!locateFields(buffer, start, end)) {
+            return false; // Итоговые строки отчета (4 поля) и некорректные строки пропускаем
+        }
+        if (multiline && (descriptionEnd - descriptionStart < 2 || buffer.get(descriptionStart) != '"'
+                || buffer.get(descriptionEnd - 1) != '"')) {
+            return false; // Незакрытая кавычка склеила несколько строк
+        }
+        FinanceType type = parseType(buffer, typeStart, typeEnd);
+        if (type == null) {
+            log.warn("Неизвестный тип записи: " + decode(buffer, typeStart, typeEnd) + ". Запись будет пропущена.");
+            return false;
+        }
+        if (end - dateStart != 10) {
+            log.warn("Некорректная дата в строке: " + decode(buffer, start, end));
+            return false;
+        }
+        long amountCents;
+        long epochDay;
+        try {
+            amountCents = parseAmountCents(buffer, amountStart, amountEnd);
+            epochDay = parseEpochDay(buffer, dateStart);
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректная строка: " + decode(buffer, start, end) + " (" + e.getMessage() + ")");
+            return false;
+        }
+        handler.onRow(decode(buffer, start, idEnd), type, amountCents, description(buffer), epochDay);
+        return true;
+    }
+
+    // Разметка полей: три разделителя слева, один справа, описание - между ними
+    private boolean locateFields(MappedByteBuffer buffer, int start, int end) {
+        idEnd = indexOfDelimiter(buffer, start, end);
+        if (idEnd < 0) {
+            return false;
+        }
+        typeStart = idEnd + 2;
+        typeEnd = indexOfDelimiter(buffer, typeStart, end);
+        if (typeEnd < 0) {
+            return false;
+        }
+        amountStart = typeEnd + 2;
+        amountEnd = indexOfDelimiter(buffer, amountStart, end);
+        if (amountEnd < 0) {
+            return false;
+        }
+        descriptionStart = amountEnd + 2;
+        int lastDelimiter = -1;
+        for (int i = end - 2; i >= descriptionStart; i--) {
+            if (buffer.get(i) == ',' && buffer.get(i + 1) == ' ') {
+                lastDelimiter = i;
+                break;
+            }
+        }
+        if (lastDelimiter < 0) {
+            return false;
+        }
+        descriptionEnd = lastDelimiter;
+        dateStart = lastDelimiter + 2;
+        return true;
+    }
+
+    private static int indexOfDelimiter(MappedByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end - 1; i++) {
+            if (buffer.get(i) == ',' && buffer.get(i + 1) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static FinanceType parseType(MappedByteBuffer buffer, int start, int end) {
+        if (matches(buffer, start, end, INCOME)) {
+            return FinanceType.INCOME;
+        }
+        if (matches(buffer, start, end, EXPENSE)) {
+            return FinanceType.EXPENSE;
+        }
+        // Если в файле встречается "Бюджет", заменяем его на INCOME
+        if (matches(buffer, start, end, BUDGET) || matches(buffer, start, end, BUDGET_LOWER)) {
+            return FinanceType.INCOME;
+        }
+        return null;
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Разбор суммы вида -123.45 прямо из байтов в центы, без double (лишние знаки округляются половиной вверх).
+    // Экспоненциальная запись (1.0E7) и очень длинные числа разбираются через Money.parse
+    static long parseAmountCents(MappedByteBuffer buffer, int start, int end) {
+        if (start >= end) {
+            throw new IllegalArgumentException("пустая сумма");
+        }
+        int i = start;
+        boolean negative = buffer.get(i) == '-';
+        if (negative || buffer.get(i) == '+') {
+            i++;
+        }
+        long units = 0;
+        long fraction = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (scale < 0) {
+                    units = units * 10 + (b - '0');
+                } else if (scale < Money.SCALE) {
+                    fraction = fraction * 10 + (b - '0');
+                    scale++;
+                } else if (scale == Money.SCALE) {
+                    roundUp = b >= '5';
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("некорректная сумма");
+        }
+        if (i < end || digits > 18 || units >= Long.MAX_VALUE / Money.MINOR_UNITS) {
+            // Редкий случай: экспонента или слишком много цифр
+            return Money.parse(decode(buffer, start, end));
+        }
+        for (int d = Math.max(scale, 0); d < Money.SCALE; d++) {
+            fraction *= 10;
+        }
+        long cents = units * Money.MINOR_UNITS + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    // Разбор даты yyyy-MM-dd прямо из байтов в номер дня от 1970-01-01 (алгоритм LocalDate.toEpochDay)
+    static long parseEpochDay(MappedByteBuffer buffer, int start) {
+        if (buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+            throw new IllegalArgumentException("некорректная дата");
+        }
+        long year = digits(buffer, start, 4);
+        int month = (int) digits(buffer, start + 5, 2);
+        int day = (int) digits(buffer, start + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("некорректная дата");
+        }
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - 719528; // Дней от 0000-01-01 до 1970-01-01
+    }
+
+    private static long digits(MappedByteBuffer buffer, int start, int count) {
+        long value = 0;
+        for (int i = start; i < start + count; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("некорректная дата");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Описание: снимаем кавычки при необходимости; повторяющиеся значения берем из кэша
+    private String description(MappedByteBuffer buffer) {
+        int start = descriptionStart;
+        int end = descriptionEnd;
+        if (end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"') {
+            return decode(buffer, start + 1, end - 1).replace("\"\"", "\"");
+        }
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        byte[] key = cacheKeys[slot];
+        if (key != null && matches(buffer, start, end, key)) {
+            return cacheValues[slot];
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        cacheKeys[slot] = bytes;
+        cacheValues[slot] = value;
+        return value;
+    }
+
+    private static String decode(MappedByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Подготовка описания для записи в CSV: в кавычки берутся значения, которые нельзя разобрать однозначно
+    public static String formatDescription(String description) {
+        boolean needsQuotes = description.indexOf('"') >= 0 || description.indexOf('\n') >= 0
+                || description.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            return description;
+        }
+        return '"' + description.replace("\"", "\"\"") + '"';
+    }
+}
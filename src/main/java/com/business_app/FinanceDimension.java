@@ -0,0 +1,6 @@
+package com.business_app;
+
+// Измерения, по которым группируются финансовые отчеты
+public enum FinanceDimension {
+    TYPE, MONTH, PREMIERE, CATEGORY
+}
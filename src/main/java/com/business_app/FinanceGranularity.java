@@ -0,0 +1,33 @@
+package com.business_app;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Шаг группировки финансовых итогов по времени
+public enum FinanceGranularity {
+    DAY, MONTH, YEAR;
+
+    // Первый день периода, в который попадает дата
+    public LocalDate periodStart(LocalDate date) {
+        switch (this) {
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case YEAR:
+                return date.with(TemporalAdjusters.firstDayOfYear());
+            default:
+                return date;
+        }
+    }
+
+    // Первый день следующего периода
+    public LocalDate nextPeriodStart(LocalDate periodStart) {
+        switch (this) {
+            case MONTH:
+                return periodStart.plusMonths(1);
+            case YEAR:
+                return periodStart.plusYears(1);
+            default:
+                return periodStart.plusDays(1);
+        }
+    }
+}
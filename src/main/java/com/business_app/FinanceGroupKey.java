@@ -0,0 +1,59 @@
+package com.business_app;
+
+import lombok.Getter;
+
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.Objects;
+
+// Ключ группы в отчете: значения выбранных измерений (не участвующие в группировке измерения равны null)
+@Getter
+public class FinanceGroupKey implements Comparable<FinanceGroupKey> {
+
+    private static final Comparator<FinanceGroupKey> ORDER = Comparator
+            .comparing(FinanceGroupKey::getType, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(FinanceGroupKey::getMonth, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(FinanceGroupKey::getPremiereId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(FinanceGroupKey::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final FinanceType type;
+    private final YearMonth month;
+    private final String premiereId;
+    private final FinanceCategory category;
+
+    public FinanceGroupKey(FinanceType type, YearMonth month, String premiereId, FinanceCategory category) {
+        this.type = type;
+        this.month = month;
+        this.premiereId = premiereId;
+        this.category = category;
+    }
+
+    @Override
+    public int compareTo(FinanceGroupKey other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FinanceGroupKey)) {
+            return false;
+        }
+        FinanceGroupKey other = (FinanceGroupKey) o;
+        return type == other.type && category == other.category
+                && Objects.equals(month, other.month) && Objects.equals(premiereId, other.premiereId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, month, premiereId, category);
+    }
+
+    @Override
+    public String toString() {
+        return "FinanceGroupKey(type=" + type + ", month=" + month + ", premiereId=" + premiereId
+                + ", category=" + category + ")";
+    }
+}
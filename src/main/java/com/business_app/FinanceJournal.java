@@ -0,0 +1,481 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Журнал финансовых операций только на добавление (write-ahead log).
+// Каждое добавление/обновление/удаление записи дописывается в конец файла журнала,
+// фоновый поток собирает накопившиеся операции в одну пачку и делает один fsync на пачку (group commit).
+// Периодически журнал сжимается в снимок (snapshot), после чего начинается новое поколение журнала.
+// При восстановлении загружается снимок и поверх него воспроизводится журнал того же поколения.
+// Любая ошибка фонового потока делает журнал неисправным: недописанный кадр обрезается, ожидающие операции
+// завершаются с ошибкой, а новые операции отклоняются, чтобы подтвержденные записи не оказались после мусора.
+@Slf4j
+public class FinanceJournal implements AutoCloseable {
+
+    public static final String JOURNAL_FILE_NAME = "finance_journal.log";
+    public static final String SNAPSHOT_FILE_NAME = "finance_snapshot.dat";
+
+    private static final int JOURNAL_MAGIC = 0x464A4E32; // "FJN2": суммы в центах (long)
+    private static final int SNAPSHOT_MAGIC = 0x46534E32; // "FSN2"
+    private static final int JOURNAL_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private static final byte OP_ADD = 'A';
+    private static final byte OP_UPDATE = 'U';
+    private static final byte OP_REMOVE = 'R';
+    private static final byte OP_ADD_BATCH = 'B'; // Пакет добавлений в одном кадре: восстанавливается целиком или никак
+
+    // Обработчик операций при восстановлении
+    public interface ReplayHandler {
+        void onAdd(FinanceRecord record);
+
+        void onUpdate(FinanceRecord record);
+
+        void onRemove(String recordId);
+    }
+
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private FileChannel channel;
+    private long generation;
+    private long durableLength; // Длина журнала, сброшенная на диск последним fsync
+    private volatile boolean started;
+    private volatile boolean closed;
+    private volatile Throwable failure; // Ошибка, после которой журнал не принимает операции
+
+    public FinanceJournal(Path dataDirectory) {
+        this.journalPath = dataDirectory.resolve(JOURNAL_FILE_NAME);
+        this.snapshotPath = dataDirectory.resolve(SNAPSHOT_FILE_NAME);
+        this.writerThread = new Thread(this::writeLoop, "finance-journal-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    // Есть ли на диске данные журнала или снимка
+    public boolean exists() {
+        return Files.exists(journalPath) || Files.exists(snapshotPath);
+    }
+
+    // Восстановление: читаем снимок, затем воспроизводим журнал того же поколения.
+    // Поврежденный "хвост" журнала (запись, оборванная при сбое) отбрасывается.
+    // После восстановления журнал открывается для дозаписи и запускается фоновый поток записи.
+    public void recover(Consumer<FinanceRecord> snapshotLoader, ReplayHandler handler) throws IOException {
+        long snapshotGeneration = 0;
+        if (Files.exists(snapshotPath)) {
+            snapshotGeneration = readSnapshot(snapshotLoader);
+        }
+        generation = snapshotGeneration;
+
+        long validLength = -1;
+        if (Files.exists(journalPath)) {
+            validLength = replayJournal(snapshotGeneration, handler);
+        }
+        if (validLength < 0) {
+            // Журнала нет или он устарел (уже вошел в снимок) - начинаем новый
+            startNewJournal(generation);
+        } else {
+            channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+            channel.truncate(validLength);
+            channel.position(validLength);
+            durableLength = validLength;
+        }
+        started = true;
+        writerThread.start();
+    }
+
+    // Метод для записи добавления записи в журнал
+    public CompletableFuture<Void> appendAdd(FinanceRecord record) {
+        return enqueue(new Entry(encode(OP_ADD, record)));
+    }
+
+    // Метод для записи пакета добавлений одной операцией журнала (один кадр, одна запись на диск)
+    public CompletableFuture<Void> appendAddAll(List<FinanceRecord> records) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * records.size() + 8);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_ADD_BATCH);
+            out.writeInt(records.size());
+            for (FinanceRecord record : records) {
+                writeRecord(out, record);
+            }
+            return enqueue(new Entry(frame(bytes.toByteArray())));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать операцию журнала.", e);
+        }
+    }
+
+    // Метод для записи обновления записи в журнал
+    public CompletableFuture<Void> appendUpdate(FinanceRecord record) {
+        return enqueue(new Entry(encode(OP_UPDATE, record)));
+    }
+
+    // Метод для записи удаления записи в журнал
+    public CompletableFuture<Void> appendRemove(String recordId) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_REMOVE);
+            out.writeUTF(recordId);
+            return enqueue(new Entry(frame(bytes.toByteArray())));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать операцию журнала.", e);
+        }
+    }
+
+    // Ждем, пока все ранее добавленные операции будут записаны и сброшены на диск
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Entry(null));
+    }
+
+    // Сжатие: записываем снимок с переданным состоянием и начинаем новое поколение журнала.
+    // Выполняется фоновым потоком в порядке очереди, поэтому снимок соответствует всем операциям до него.
+    public CompletableFuture<Void> compact(List<FinanceRecord> records) {
+        return compact(() -> records);
+    }
+
+    // Сжатие с ленивым снимком: состояние строится фоновым потоком в момент записи снимка.
+    // Поставщик должен вернуть состояние ровно на момент вызова compact (например, префикс журнала в памяти).
+    public CompletableFuture<Void> compact(Supplier<List<FinanceRecord>> records) {
+        Entry entry = new Entry(null);
+        entry.snapshot = records;
+        return enqueue(entry);
+    }
+
+    // Закрываем журнал: дописываем все операции из очереди и останавливаем фоновый поток
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (!writerThread.isAlive()) {
+            closed = true; // Журнал не был восстановлен, фоновый поток не запускался
+            return;
+        }
+        Entry stop = new Entry(null);
+        stop.stop = true;
+        queue.add(stop);
+        closed = true;
+        stop.done.join();
+    }
+
+    // Проверка и постановка в очередь под блокировкой очереди: после отметки о неисправности
+    // ни одна операция не попадает в очередь позже, чем ее разберет фоновый поток
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Журнал финансовых записей закрыт.");
+            }
+            if (!started) {
+                throw new IllegalStateException("Журнал финансовых записей не восстановлен.");
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Журнал финансовых записей неисправен: " + failure.getMessage(), failure);
+            }
+            queue.add(entry);
+        }
+        return entry.done;
+    }
+
+    // Фоновый поток: забирает все накопившиеся операции и записывает их одной пачкой с одним fsync
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        Entry stop = null;
+        while (stop == null) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // Поток останавливается только командой close()
+            }
+            queue.drainTo(batch);
+            writeBatch(batch); // При ошибке дополняет пачку остатком очереди
+            for (Entry entry : batch) {
+                if (entry.stop) {
+                    stop = entry;
+                }
+            }
+            batch.clear();
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Ошибка при закрытии журнала: " + e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        int start = 0;
+        if (failure == null) {
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (batch.get(i).snapshot != null) {
+                        // Все операции до снимка должны оказаться в старом поколении журнала
+                        writeEntries(batch, start, i);
+                        start = i;
+                        writeSnapshot(batch.get(i).snapshot.get());
+                        batch.get(i).done.complete(null);
+                        start = i + 1;
+                    }
+                }
+                writeEntries(batch, start, batch.size());
+                return;
+            } catch (Throwable e) { // Фоновый поток не должен погибнуть: иначе ожидающие операции зависнут
+                markFailed(e);
+            }
+        }
+        synchronized (queue) {
+            queue.drainTo(batch); // Очередь больше не пополняется: остаток завершаем вместе с пачкой
+        }
+        // Завершаем с конца: откаты в памяти у вызывающих (FinanceManager) идут в обратном порядке операций
+        for (int i = batch.size() - 1; i >= start; i--) {
+            if (!batch.get(i).stop) {
+                batch.get(i).done.completeExceptionally(failure);
+            }
+        }
+        for (int i = start; i < batch.size(); i++) {
+            if (batch.get(i).stop) {
+                batch.get(i).done.complete(null); // Закрытие неисправного журнала не должно зависнуть
+            }
+        }
+    }
+
+    // Отметка о неисправности. Недописанный или не сброшенный на диск кадр обрезается до последнего fsync,
+    // иначе при восстановлении чтение остановилось бы на нем
+    private void markFailed(Throwable e) {
+        log.error("Ошибка записи журнала финансовых записей, журнал больше не принимает операции: " + e.getMessage(), e);
+        if (channel != null && channel.isOpen()) {
+            try {
+                channel.truncate(durableLength);
+                channel.position(durableLength);
+            } catch (IOException truncateError) {
+                log.error("Не удалось обрезать журнал после ошибки записи: " + truncateError.getMessage());
+            }
+        }
+        synchronized (queue) {
+            failure = e;
+        }
+    }
+
+    private void writeEntries(List<Entry> batch, int from, int to) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            byte[] data = batch.get(i).data;
+            size += data == null ? 0 : data.length;
+        }
+        if (size > 0) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (int i = from; i < to; i++) {
+                byte[] data = batch.get(i).data;
+                if (data != null) {
+                    buffer.put(data);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false); // Один fsync на всю пачку
+            durableLength = channel.position();
+        }
+        for (int i = from; i < to; i++) {
+            batch.get(i).done.complete(null);
+        }
+    }
+
+    private void writeSnapshot(List<FinanceRecord> records) throws IOException {
+        long nextGeneration = generation + 1;
+        Path temp = snapshotPath.resolveSibling(SNAPSHOT_FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(nextGeneration);
+            out.writeInt(records.size());
+            for (FinanceRecord record : records) {
+                writeRecord(out, record);
+            }
+        }
+        try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            snapshotChannel.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Снимок на месте: старый журнал больше не нужен, начинаем новое поколение
+        channel.close();
+        startNewJournal(nextGeneration);
+        generation = nextGeneration;
+        log.info("Журнал финансовых записей сжат в снимок: " + records.size() + " записей.");
+    }
+
+    private void startNewJournal(long newGeneration) throws IOException {
+        Path temp = journalPath.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putLong(newGeneration).flip();
+            tempChannel.write(header);
+            tempChannel.force(true);
+        }
+        Files.move(temp, journalPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+        channel.position(JOURNAL_HEADER_SIZE);
+        durableLength = JOURNAL_HEADER_SIZE;
+    }
+
+    private long readSnapshot(Consumer<FinanceRecord> loader) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC) {
+                throw new IOException("Неверный формат файла снимка " + snapshotPath);
+            }
+            long snapshotGeneration = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                loader.accept(readRecord(in));
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    // Возвращает длину корректной части журнала или -1, если журнал нужно начать заново
+    private long replayJournal(long snapshotGeneration, ReplayHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            long journalGeneration;
+            try {
+                if (in.readInt() != JOURNAL_MAGIC) {
+                    throw new IOException("Неверный формат файла журнала " + journalPath);
+                }
+                journalGeneration = in.readLong();
+            } catch (EOFException e) {
+                return -1; // Заголовок не успел записаться
+            }
+            if (journalGeneration < snapshotGeneration) {
+                return -1; // Сбой между записью снимка и созданием нового журнала: журнал уже в снимке
+            }
+            generation = journalGeneration;
+            long position = JOURNAL_HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                apply(payload, handler);
+                position += Integer.BYTES + payload.length + Integer.BYTES;
+            }
+            return position;
+        }
+    }
+
+    private void apply(byte[] payload, ReplayHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        if (op == OP_ADD) {
+            handler.onAdd(readRecord(in));
+        } else if (op == OP_UPDATE) {
+            handler.onUpdate(readRecord(in));
+        } else if (op == OP_REMOVE) {
+            handler.onRemove(in.readUTF());
+        } else if (op == OP_ADD_BATCH) {
+            for (int count = in.readInt(); count > 0; count--) {
+                handler.onAdd(readRecord(in));
+            }
+        } else {
+            log.warn("Неизвестная операция в журнале: " + op);
+        }
+    }
+
+    private static byte[] encode(byte op, FinanceRecord record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            writeRecord(out, record);
+            return frame(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать операцию журнала.", e);
+        }
+    }
+
+    // Формат кадра: длина, данные, CRC32 данных - позволяет обнаружить оборванную запись
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static void writeRecord(DataOutputStream out, FinanceRecord record) throws IOException {
+        out.writeUTF(record.getId());
+        out.writeByte(record.getType().ordinal());
+        out.writeLong(record.getAmountCents());
+        out.writeUTF(record.getDescription());
+        out.writeLong(record.getDate().toEpochDay());
+        out.writeByte(record.getCategory().ordinal());
+        out.writeBoolean(record.getPremiereId() != null);
+        if (record.getPremiereId() != null) {
+            out.writeUTF(record.getPremiereId());
+        }
+    }
+
+    private static FinanceRecord readRecord(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        FinanceType type = FinanceType.values()[in.readByte()];
+        long amountCents = in.readLong();
+        String description = in.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        FinanceCategory category = FinanceCategory.values()[in.readByte()];
+        String premiereId = in.readBoolean() ? in.readUTF() : null;
+        return FinanceRecord.ofCents(id, type, amountCents, description, date, category, premiereId);
+    }
+
+    // Операция в очереди записи; data == null означает барьер (flush), снимок или остановку
+    private static final class Entry {
+        private final byte[] data;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Supplier<List<FinanceRecord>> snapshot;
+        private boolean stop;
+
+        private Entry(byte[] data) {
+            this.data = data;
+        }
+    }
+}
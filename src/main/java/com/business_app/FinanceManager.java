@@ -2,73 +2,348 @@ package com.business_app;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedWriter;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
-public class FinanceManager {
+public class FinanceManager implements AutoCloseable {
 
-    private final List<FinanceRecord> financeRecords;
+    // Хранилище записей с первичным индексом по ID (объектное или колоночное)
+    private final FinanceStore financeRecords;
     private static final String FILE_NAME = "finance_records.csv";
+    private final FinanceRecordIdGenerator idGenerator;
+    // После стольких операций журнал сжимается в снимок
+    private static final int COMPACTION_THRESHOLD = 10_000;
+    private final Path dataDirectory;
+    private final FinanceJournal journal;
+    // Фоновая запись CSV-отчета; запросы в течение REPORT_DEBOUNCE_MILLIS объединяются
+    private static final long REPORT_DEBOUNCE_MILLIS = 50;
+    private final FinanceReportExporter reportExporter;
+    private final AtomicInteger operationsSinceSnapshot = new AtomicInteger();
+    // Блокировки по ID: операции с одной записью выполняются по очереди. В режиме CONCURRENT операции
+    // с разными записями идут параллельно; хранилища OBJECTS и COLUMNAR не потокобезопасны, поэтому там
+    // все ячейки массива - одна и та же блокировка и изменения выполняются по одному (ожидание fsync - вне ее).
+    // Сжатие журнала захватывает все блокировки, чтобы снимок не разошелся с очередью журнала.
+    private static final int LOCK_STRIPES = 64;
+    private final ReentrantLock[] recordLocks = new ReentrantLock[LOCK_STRIPES];
+
+    // Текущие итоги в копейках (центах), поддерживаются при каждом добавлении/удалении записи.
+    // LongAdder распределяет обновления по ячейкам, поэтому потоки-писатели не конкурируют за один счетчик.
+    private final LongAdder totalIncomeCents = new LongAdder();
+    private final LongAdder totalExpensesCents = new LongAdder();
+    // Суммы по категориям: продажи/возвраты билетов считаются за O(1)
+    private final LongAdder[] categoryCents = new LongAdder[FinanceCategory.values().length];
+    // Суммы по датам для запросов за интервал и помесячных/годовых итогов
+    private final FinanceTimeIndex timeIndex = new FinanceTimeIndex();
+    // Бюджет, билеты, возвраты и чистый результат по каждой премьере
+    private final FinancePremiereIndex premiereIndex = new FinancePremiereIndex();
+    // Крупнейшие доходы и расходы за все время и по месяцам
+    private final FinanceTopIndex topIndex = new FinanceTopIndex();
 
     public FinanceManager() {
-        this.financeRecords = new ArrayList<>();
-        loadFinanceRecordsFromFile();  // Загружаем данные из файла при создании объекта
+        this(Paths.get(""));
+    }
+
+    // Все файлы (журнал, снимок, CSV-отчет) хранятся в указанном каталоге
+    public FinanceManager(Path dataDirectory) {
+        this(dataDirectory, FinanceStorageMode.OBJECTS);
+    }
+
+    // Режим COLUMNAR хранит записи в массивах примитивов - для очень больших журналов,
+    // режим CONCURRENT допускает добавление, обновление и удаление записей из многих потоков
+    public FinanceManager(Path dataDirectory, FinanceStorageMode storageMode) {
+        switch (storageMode) {
+            case COLUMNAR:
+                this.financeRecords = new ColumnarFinanceStore();
+                break;
+            case CONCURRENT:
+                this.financeRecords = new ConcurrentFinanceStore();
+                break;
+            default:
+                this.financeRecords = new ObjectFinanceStore();
+        }
+        ReentrantLock sharedLock = storageMode == FinanceStorageMode.CONCURRENT ? null : new ReentrantLock();
+        for (int i = 0; i < recordLocks.length; i++) {
+            recordLocks[i] = sharedLock != null ? sharedLock : new ReentrantLock();
+        }
+        for (int i = 0; i < categoryCents.length; i++) {
+            categoryCents[i] = new LongAdder();
+        }
+        this.idGenerator = new FinanceRecordIdGenerator();
+        this.dataDirectory = dataDirectory;
+        this.journal = new FinanceJournal(dataDirectory);
+        this.reportExporter = new FinanceReportExporter(dataDirectory.resolve(FILE_NAME), REPORT_DEBOUNCE_MILLIS);
+        boolean journalExists = journal.exists();
+        try {
+            recoverFromJournal();  // Восстанавливаем записи: снимок + журнал
+        } catch (RuntimeException e) {
+            reportExporter.close();
+            throw e;
+        }
+        if (!journalExists) {
+            loadFinanceRecordsFromFile();  // Журнала еще нет - переносим данные из старого CSV-файла
+        }
+    }
+
+    // Восстановление записей из последнего снимка и воспроизведение журнала поверх него.
+    // Если журнал прочитать не удалось, менеджер не создается: без журнала записи не сохранились бы на диск
+    private void recoverFromJournal() {
+        try {
+            journal.recover(this::indexLoadedRecord, new FinanceJournal.ReplayHandler() {
+                @Override
+                public void onAdd(FinanceRecord record) {
+                    unindexRecord(record.getId()); // Защита от повторного добавления того же ID
+                    indexLoadedRecord(record);
+                }
+
+                @Override
+                public void onUpdate(FinanceRecord record) {
+                    unindexRecord(record.getId());
+                    indexLoadedRecord(record);
+                }
+
+                @Override
+                public void onRemove(String recordId) {
+                    unindexRecord(recordId);
+                }
+            });
+            log.info("Финансовые записи восстановлены из журнала: " + financeRecords.size());
+        } catch (IOException e) {
+            log.error("Ошибка при восстановлении финансовых записей из журнала: " + e.getMessage());
+            throw new IllegalStateException("Не удалось восстановить финансовые записи из журнала: " + e.getMessage(), e);
+        }
     }
 
-    // Метод для добавления финансовой записи
+    // Метод для ожидания записи всех операций журнала и запрошенного отчета на диск
+    public void flush() {
+        journal.flush().join();
+        reportExporter.flush().join();
+    }
+
+    // Метод для закрытия менеджера: дописываем отчет и журнал и останавливаем фоновую запись
+    @Override
+    public void close() {
+        reportExporter.close();
+        journal.close();
+    }
+
+    // Метод для получения нового уникального ID финансовой записи
+    public String nextRecordId() {
+        return idGenerator.nextIdString();
+    }
+
+    // Метод для добавления финансовой записи. Возвращает управление, когда запись сохранена в журнале на диске
+    // (fsync общий для всех операций, накопившихся за время записи предыдущей пачки)
     public void addFinanceRecord(FinanceRecord record) {
+        // Если ID не задан, назначаем его генератором
+        if (record.getId() == null || record.getId().trim().isEmpty()) {
+            record.setId(nextRecordId());
+        }
+        validateRecord(record);
+        CompletableFuture<Void> persisted;
+        ReentrantLock lock = lockFor(record.getId());
+        lock.lock();
+        try {
+            if (financeRecords.contains(record.getId())) {
+                log.warn("Ошибка: запись с ID " + record.getId() + " уже существует.");
+                throw new IllegalArgumentException("Запись с таким ID уже существует.");
+            }
+            indexRecord(record);
+            persisted = appendOrRollBack(() -> journal.appendAdd(record), lock, () -> unindexRecord(record.getId()));
+        } finally {
+            lock.unlock();
+        }
+        persisted.join(); // Ждем fsync без блокировки: другие потоки успевают попасть в ту же пачку
+        afterJournalWrite();
+        log.info("Финансовая запись добавлена: {}", record); // toString записи - только если INFO включен
+    }
+
+    // Метод для замены существующей записи с тем же ID (O(1)); возвращает управление после записи на диск
+    public void updateFinanceRecord(FinanceRecord record) {
+        validateRecord(record);
+        CompletableFuture<Void> persisted;
+        ReentrantLock lock = lockFor(record.getId());
+        lock.lock();
+        try {
+            FinanceRecord previous = financeRecords.get(record.getId());
+            if (previous == null) {
+                log.warn("Ошибка: Запись с ID " + record.getId() + " не найдена.");
+                throw new IllegalArgumentException("Запись с таким ID не найдена.");
+            }
+            financeRecords.replace(record);
+            applyToTotals(previous, -1);
+            applyToTotals(record, 1);
+            persisted = appendOrRollBack(() -> journal.appendUpdate(record), lock, () -> {
+                financeRecords.replace(previous);
+                applyToTotals(record, -1);
+                applyToTotals(previous, 1);
+            });
+        } finally {
+            lock.unlock();
+        }
+        persisted.join();
+        afterJournalWrite();
+        log.info("Финансовая запись обновлена: {}", record);
+    }
+
+    // Метод для поиска записи по ID (O(1)); возвращает null, если записи нет
+    public FinanceRecord findFinanceRecordById(String recordId) {
+        return financeRecords.get(recordId);
+    }
+
+    // Проверка полей записи перед добавлением или обновлением
+    private void validateRecord(FinanceRecord record) {
+        String error = validationError(record);
+        if (error != null) {
+            log.warn("Ошибка: " + error);
+            throw new IllegalArgumentException(error);
+        }
+        if (record.getCategory() == null) {
+            record.setCategory(FinanceCategory.MANUAL);
+        }
+    }
+
+    // Текст ошибки проверки или null, если запись корректна (без побочных эффектов - можно звать параллельно)
+    private static String validationError(FinanceRecord record) {
+        if (record == null) {
+            return "Запись не может быть пустой.";
+        }
         // Проверка на сумму
-        if (record.getAmount() <= 0) {
-            log.warn("Ошибка: сумма должна быть больше 0.");
-            throw new IllegalArgumentException("Сумма должна быть больше 0.");
+        if (record.getAmountCents() <= 0) {
+            return "Сумма должна быть больше 0.";
         }
         // Проверка на тип записи
         if (record.getType() == null || (!record.getType().equals(FinanceType.INCOME)
                 && !record.getType().equals(FinanceType.EXPENSE))) {
-            log.warn("Ошибка: некорректный тип записи.");
-            throw new IllegalArgumentException("Некорректный тип записи: " + record.getType());
+            return "Некорректный тип записи: " + record.getType();
         }
         // Проверка на корректность даты
         if (record.getDate() == null) {
-            log.warn("Ошибка: дата не может быть пустой.");
-            throw new IllegalArgumentException("Дата не может быть пустой.");
+            return "Дата не может быть пустой.";
+        }
+        if (!FinanceRecord.isSupportedDate(record.getDate())) {
+            return "Дата " + record.getDate() + " вне допустимого диапазона " + FinanceRecord.MIN_DATE + " - " + FinanceRecord.MAX_DATE + ".";
         }
-
         // Проверка на описание
         if (record.getDescription() == null || record.getDescription().isEmpty()) {
-            log.warn("Ошибка: описание не может быть пустым.");
-            throw new IllegalArgumentException("Описание не может быть пустым.");
+            return "Описание не может быть пустым.";
         }
+        return null;
+    }
 
-        financeRecords.add(record);
-        log.info("Финансовая запись добавлена: " + record);
+    // Метод для пакетного добавления записей (выписка банка, продажи за день).
+    // Проверка идет параллельно и не прерывается на ошибках: некорректные строки и повторы ID попадают
+    // в список отклоненных. Корректные строки добавляются за один шаг под всеми блокировками, итоги
+    // обновляются один раз, а в журнал пакет пишется одним кадром с одним fsync - после сбоя он
+    // восстанавливается целиком или не восстанавливается вовсе. Метод возвращает управление,
+    // когда пакет сохранен на диск.
+    public FinanceBatchResult addFinanceRecords(Collection<FinanceRecord> records) {
+        long started = System.nanoTime();
+        List<FinanceRecord> batch = new ArrayList<>(records);
+        for (FinanceRecord record : batch) {
+            // Если ID не задан, назначаем его генератором
+            if (record != null && (record.getId() == null || record.getId().trim().isEmpty())) {
+                record.setId(nextRecordId());
+            }
+        }
+        String[] errors = new String[batch.size()];
+        IntStream.range(0, batch.size()).parallel().forEach(i -> errors[i] = validationError(batch.get(i)));
+
+        List<FinanceBatchRejection> rejected = new ArrayList<>();
+        List<FinanceRecord> accepted = new ArrayList<>(batch.size());
+        CompletableFuture<Void> persisted;
+        for (ReentrantLock lock : recordLocks) {
+            lock.lock();
+        }
+        try {
+            Set<String> batchIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                FinanceRecord record = batch.get(i);
+                String error = errors[i];
+                if (error == null && (financeRecords.contains(record.getId()) || !batchIds.add(record.getId()))) {
+                    error = "Запись с таким ID уже существует.";
+                }
+                if (error != null) {
+                    rejected.add(new FinanceBatchRejection(i, record, error));
+                    continue;
+                }
+                if (record.getCategory() == null) {
+                    record.setCategory(FinanceCategory.MANUAL);
+                }
+                accepted.add(record);
+            }
+            for (FinanceRecord record : accepted) {
+                financeRecords.add(record);
+            }
+            applyToTotals(accepted);
+            persisted = accepted.isEmpty() ? CompletableFuture.completedFuture(null)
+                    : appendOrRollBack(() -> journal.appendAddAll(accepted), null, () -> {
+                        for (FinanceRecord record : accepted) {
+                            unindexRecord(record.getId());
+                        }
+                    });
+        } finally {
+            for (ReentrantLock lock : recordLocks) {
+                lock.unlock();
+            }
+        }
+        persisted.join();
+        afterJournalWrite(accepted.size());
+        FinanceBatchResult result = new FinanceBatchResult(accepted.size(), rejected, System.nanoTime() - started);
+        log.info("Пакет финансовых записей: добавлено {}, отклонено {}, {} записей/с",
+                result.getAcceptedCount(), rejected.size(), Math.round(result.getRecordsPerSecond()));
+        return result;
+    }
+
+    // Пакетное добавление из потока (например, строк разобранного файла)
+    public FinanceBatchResult addFinanceRecords(Stream<FinanceRecord> records) {
+        return addFinanceRecords(records.collect(Collectors.toList()));
     }
 
     // Метод для проверки наличия записей
     public boolean hasRecords() {
         System.out.println("Количество записей: " + financeRecords.size());
-        return !financeRecords.isEmpty();  // Возвращаем true, если список не пустой
+        return financeRecords.size() > 0;  // Возвращаем true, если список не пустой
     }
 
+    // Удаление записи; возвращает управление после записи удаления на диск
     public void removeFinanceRecord(String recordId) {
-        // Ищем запись с указанным ID
-        FinanceRecord recordToRemove = null;
-        for (FinanceRecord record : financeRecords) {
-            if (record.getId().equals(recordId)) {
-                recordToRemove = record;
-                break;
+        // Удаляем запись по ID из индекса и корректируем итоги (O(1))
+        FinanceRecord recordToRemove;
+        CompletableFuture<Void> persisted = null;
+        ReentrantLock lock = lockFor(recordId);
+        lock.lock();
+        try {
+            recordToRemove = unindexRecord(recordId);
+            if (recordToRemove != null) {
+                FinanceRecord removed = recordToRemove;
+                persisted = appendOrRollBack(() -> journal.appendRemove(recordId), lock, () -> indexRecord(removed));
             }
+        } finally {
+            lock.unlock();
         }
-        // Если запись найдена, удаляем её
         if (recordToRemove != null) {
-            financeRecords.remove(recordToRemove);
+            persisted.join();
+            afterJournalWrite();
             log.info("Финансовая запись с ID " + recordId + " удалена.");
         } else {
             log.warn("Ошибка: Запись с ID " + recordId + " не найдена.");
@@ -76,156 +351,429 @@ public class FinanceManager {
         }
     }
 
-    // Метод для получения всех записей
+    // Метод для обхода всех записей без копирования списка (в порядке добавления)
+    public void forEachFinanceRecord(Consumer<FinanceRecord> action) {
+        financeRecords.forEach(action);
+    }
+
+    // Метод для постраничного получения записей: не более limit записей, начиная с позиции offset.
+    // Обход останавливается на последней записи страницы, весь список не копируется
+    public List<FinanceRecord> getFinanceRecordsPage(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Некорректная страница: смещение " + offset + ", размер " + limit + ".");
+        }
+        List<FinanceRecord> page = new ArrayList<>(Math.min(limit, 1024));
+        int[] position = {0};
+        financeRecords.forEachWhile(record -> {
+            if (position[0]++ >= offset) {
+                page.add(record);
+            }
+            return page.size() < limit;
+        });
+        return page;
+    }
+
+    // Метод для получения limit крупнейших записей типа за все время (по убыванию суммы)
+    public List<FinanceRecord> getLargestRecords(FinanceType type, int limit) {
+        return topIndex.top(type, null, limit, financeRecords::forEach);
+    }
+
+    // Метод для получения limit крупнейших записей типа за месяц (по убыванию суммы)
+    public List<FinanceRecord> getLargestRecords(FinanceType type, YearMonth month, int limit) {
+        if (month == null) {
+            throw new IllegalArgumentException("Месяц должен быть указан.");
+        }
+        return topIndex.top(type, month, limit, financeRecords::forEach);
+    }
+
+    // Метод для получения всех записей (копия; для больших журналов - forEachFinanceRecord или страницы)
     public List<FinanceRecord> getAllFinanceRecords() {
-        return new ArrayList<>(financeRecords);// Возвращаем копию списка, чтобы сохранить инкапсуляцию
+        List<FinanceRecord> records = new ArrayList<>(financeRecords.size());
+        financeRecords.forEach(records::add);
+        return records;// Возвращаем копию списка, чтобы сохранить инкапсуляцию
     }
 
-    // Метод для вычисления общих расходов
+    // Метод для вычисления общих расходов (O(1), итог поддерживается инкрементально)
     public double calculateTotalExpenses() {
-        double totalExpenses = 0.0;
-        // Проходим по всем записям
-        for (FinanceRecord record : financeRecords) {
-            // Если тип записи - расход
-            if (record.getType().equals(FinanceType.EXPENSE)) {
-                totalExpenses += record.getAmount();  // Добавляем сумму расхода
+        return Money.toMajor(totalExpensesCents.sum());
+    }
+
+    // Метод для вычисления общего дохода (O(1), итог поддерживается инкрементально)
+    public double calculateTotalIncome() {
+        return Money.toMajor(totalIncomeCents.sum());
+    }
+
+    // Итоги в центах - точные значения для расчетов без перевода через double
+    public long getTotalIncomeCents() {
+        return totalIncomeCents.sum();
+    }
+
+    public long getTotalExpensesCents() {
+        return totalExpensesCents.sum();
+    }
+
+    public long getCategoryTotalCents(FinanceCategory category) {
+        return categoryCents[category.ordinal()].sum();
+    }
+
+    // Метод для получения суммы записей категории (O(1))
+    public double getCategoryTotal(FinanceCategory category) {
+        return Money.toMajor(categoryCents[category.ordinal()].sum());
+    }
+
+    // Метод для получения записей категории (O(k), где k - число записей категории)
+    public List<FinanceRecord> getRecordsByCategory(FinanceCategory category) {
+        return financeRecords.getByCategory(category);
+    }
+
+    // Метод для вычисления суммы записей типа за даты from..to включительно (O(log n))
+    public double sumBetween(LocalDate from, LocalDate to, FinanceType type) {
+        if (from == null || to == null || type == null) {
+            throw new IllegalArgumentException("Даты и тип записи должны быть указаны.");
+        }
+        return Money.toMajor(timeIndex.sumBetween(from, to, type));
+    }
+
+    // Метод для получения итогов по периодам (день/месяц/год) за всю историю записей
+    public List<FinancePeriodTotals> rollup(FinanceGranularity granularity) {
+        LocalDate first = timeIndex.getFirstDate();
+        if (first == null) {
+            return new ArrayList<>();
+        }
+        return rollup(granularity, first, timeIndex.getLastDate());
+    }
+
+    // Метод для получения итогов по периодам в интервале дат; пустые периоды не включаются
+    public List<FinancePeriodTotals> rollup(FinanceGranularity granularity, LocalDate from, LocalDate to) {
+        if (granularity == null || from == null || to == null) {
+            throw new IllegalArgumentException("Шаг группировки и даты должны быть указаны.");
+        }
+        return timeIndex.rollup(granularity, from, to, LocalDate.now());
+    }
+
+    // Метод для группового отчета по выбранным измерениям (тип, месяц, премьера, категория).
+    // Считается параллельно на всех ядрах; строки отсортированы по ключу группы.
+    public List<FinanceAggregate> aggregate(FinanceDimension... dimensions) {
+        return FinanceAggregator.aggregate(getAllFinanceRecords(), dimensions);
+    }
+
+    // Метод для получения прибыли и убытков премьеры (O(1)); null, если по премьере нет записей
+    public PremiereProfitAndLoss getPremiereProfitAndLoss(String premiereId) {
+        return premiereIndex.get(premiereId);
+    }
+
+    // Метод для получения P&L всех премьер, упорядоченных по ID
+    public List<PremiereProfitAndLoss> getPremiereProfitAndLoss() {
+        return premiereIndex.getAll();
+    }
+
+    // Метод для получения N самых прибыльных премьер (по убыванию чистого результата)
+    public List<PremiereProfitAndLoss> getTopPremieresByNet(int limit) {
+        return premiereIndex.topByNet(limit);
+    }
+
+    // Проверка согласованности: пересчитываем итоги с нуля и сравниваем с текущими
+    public boolean verifyTotals() {
+        long income = 0;
+        long expenses = 0;
+        long[] categories = new long[categoryCents.length];
+        FinancePremiereIndex premieres = new FinancePremiereIndex();
+        for (FinanceRecord record : getAllFinanceRecords()) {
+            premieres.add(record, 1);
+            long cents = record.getAmountCents();
+            if (record.getType() == FinanceType.INCOME) {
+                income += cents;
+            } else {
+                expenses += cents;
             }
+            categories[record.getCategory().ordinal()] += cents;
         }
-        return totalExpenses;  // Возвращаем общую сумму расходов
+        int categorized = 0;
+        for (FinanceCategory category : FinanceCategory.values()) {
+            categorized += financeRecords.getByCategory(category).size();
+        }
+        long[] categoryTotals = new long[categoryCents.length];
+        for (int i = 0; i < categoryTotals.length; i++) {
+            categoryTotals[i] = categoryCents[i].sum();
+        }
+        boolean consistent = income == totalIncomeCents.sum() && expenses == totalExpensesCents.sum()
+                && Arrays.equals(categories, categoryTotals) && categorized == financeRecords.size()
+                && withoutEmptyAccounts(premieres.getAll()).equals(withoutEmptyAccounts(premiereIndex.getAll()));
+        if (!consistent) {
+            log.warn("Расхождение итогов: доход " + totalIncomeCents.sum() + " против " + income
+                    + ", расходы " + totalExpensesCents.sum() + " против " + expenses + " (в центах).");
+        }
+        return consistent;
     }
 
-    // Метод для вычисления общего дохода
-    public double calculateTotalIncome() {
-        double totalIncome = 0.0;
-        // Проходим по всем записям
-        for (FinanceRecord record : financeRecords) {
-            // Если тип записи - доход
-            if (record.getType().equals(FinanceType.INCOME)) {
-                totalIncome += record.getAmount();  // Добавляем сумму дохода
+    // Счета премьер, все записи которых удалены, остаются с нулями - при сравнении их не учитываем
+    private static List<PremiereProfitAndLoss> withoutEmptyAccounts(List<PremiereProfitAndLoss> accounts) {
+        List<PremiereProfitAndLoss> result = new ArrayList<>(accounts.size());
+        for (PremiereProfitAndLoss account : accounts) {
+            if (account.getBudgetCents() != 0 || account.getTicketIncomeCents() != 0
+                    || account.getRefundsCents() != 0 || account.getOtherCents() != 0) {
+                result.add(account);
+            }
+        }
+        return result;
+    }
+
+    // Запись операции в журнал с откатом изменения в памяти, если журнал операцию не принял или не сохранил:
+    // любой вызывающий получает "сохранено на диск или не применено". Вызывается под блокировкой сразу после
+    // изменения в памяти; lock == null - под всеми блокировками. При ошибке записи откат выполняет поток журнала,
+    // который завершает операции с конца, под той же блокировкой - поэтому операции с одной записью
+    // откатываются в обратном порядке. Возвращаемый future завершается после отката
+    private CompletableFuture<Void> appendOrRollBack(Supplier<CompletableFuture<Void>> append, ReentrantLock lock,
+                                                     Runnable rollback) {
+        CompletableFuture<Void> persisted;
+        try {
+            persisted = append.get();
+        } catch (RuntimeException e) {
+            rollback.run(); // Блокировка уже захвачена вызывающим
+            throw e;
+        }
+        return persisted.whenComplete((ignored, error) -> {
+            if (error != null) {
+                withLocks(lock, rollback);
+                log.warn("Операция не сохранена в журнале и отменена: " + error.getMessage());
+            }
+        });
+    }
+
+    // Выполнение под блокировкой записи (lock == null - под всеми блокировками)
+    private void withLocks(ReentrantLock lock, Runnable action) {
+        ReentrantLock[] locks = lock == null ? recordLocks : new ReentrantLock[]{lock};
+        for (ReentrantLock held : locks) {
+            held.lock();
+        }
+        try {
+            action.run();
+        } finally {
+            for (ReentrantLock held : locks) {
+                held.unlock();
+            }
+        }
+    }
+
+    // Добавляем запись в индекс и обновляем итоги
+    private void indexRecord(FinanceRecord record) {
+        financeRecords.add(record);
+        applyToTotals(record, 1);
+    }
+
+    // Удаляем запись из индекса и итогов; возвращает удаленную запись или null
+    private FinanceRecord unindexRecord(String recordId) {
+        FinanceRecord removed = financeRecords.remove(recordId);
+        if (removed != null) {
+            applyToTotals(removed, -1);
+        }
+        return removed;
+    }
+
+    // Добавление записи при восстановлении с диска (без повторной записи в журнал)
+    private void indexLoadedRecord(FinanceRecord record) {
+        indexRecord(record);
+        idGenerator.observe(record.getId()); // Новые ID не пересекутся с загруженными
+    }
+
+    // Периодическое сжатие журнала в снимок, чтобы восстановление не воспроизводило всю историю
+    // (вызывается без блокировки записи, чтобы сжатие могло захватить все блокировки)
+    private void afterJournalWrite() {
+        afterJournalWrite(1);
+    }
+
+    private void afterJournalWrite(int operations) {
+        int after = operationsSinceSnapshot.addAndGet(operations);
+        if (after >= COMPACTION_THRESHOLD && after - operations < COMPACTION_THRESHOLD) {
+            compactJournal(); // Сжимает только поток, перешедший порог
+        }
+    }
+
+    // Метод для принудительного сжатия журнала в снимок текущего состояния.
+    // Пока захвачены все блокировки, незавершенных операций нет: снимок и очередь журнала согласованы.
+    // В режиме CONCURRENT снимок ленивый и строится фоновым потоком журнала, так что запись стоит лишь мгновение;
+    // там же сжимается журнал операций в памяти, чтобы он не рос вместе с историей изменений
+    // (копируются только живые записи и только когда удаленных больше, чем живых, - в среднем O(1) на операцию).
+    public void compactJournal() {
+        for (ReentrantLock lock : recordLocks) {
+            lock.lock();
+        }
+        try {
+            operationsSinceSnapshot.set(0);
+            journal.compact(financeRecords.snapshot());
+            financeRecords.compactLog(); // Снимок уже взят: старое поколение журнала в памяти остается у него
+        } finally {
+            for (ReentrantLock lock : recordLocks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Блокировка для операций с записью: выбирается по хешу ID
+    private ReentrantLock lockFor(String recordId) {
+        int hash = recordId == null ? 0 : recordId.hashCode();
+        return recordLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    // Применяем сумму записи к итогам: sign = 1 при добавлении, -1 при удалении
+    private void applyToTotals(FinanceRecord record, int sign) {
+        long cents = sign * record.getAmountCents();
+        categoryCents[record.getCategory().ordinal()].add(cents);
+        timeIndex.add(record.getType(), record.getDate(), cents);
+        premiereIndex.add(record, sign);
+        topIndex.add(record, sign);
+        if (record.getType() == FinanceType.INCOME) {
+            totalIncomeCents.add(cents);
+        } else {
+            totalExpensesCents.add(cents);
+        }
+    }
+
+    // Применяем пакет добавленных записей: суммы копятся локально, счетчики и индекс дат обновляются один раз
+    private void applyToTotals(List<FinanceRecord> records) {
+        long income = 0;
+        long expenses = 0;
+        long[] categories = new long[categoryCents.length];
+        for (FinanceRecord record : records) {
+            long cents = record.getAmountCents();
+            if (record.getType() == FinanceType.INCOME) {
+                income += cents;
+            } else {
+                expenses += cents;
+            }
+            categories[record.getCategory().ordinal()] += cents;
+            premiereIndex.add(record, 1);
+        }
+        timeIndex.addAll(records);
+        topIndex.addAll(records);
+        totalIncomeCents.add(income);
+        totalExpensesCents.add(expenses);
+        for (int i = 0; i < categories.length; i++) {
+            if (categories[i] != 0) {
+                categoryCents[i].add(categories[i]);
             }
         }
-        return totalIncome;  // Возвращаем общую сумму доходов
     }
 
     // Метод для добавления бюджета для премьеры
     public void addPremiereBudget(Premiere premiere, double budgetToAdd) {
         if (budgetToAdd > 0) {
-            premiere.addBudget(budgetToAdd); // Увеличиваем бюджет премьеры
-
             // Создаем запись о доходе
             FinanceRecord record = new FinanceRecord(
-                    String.valueOf(financeRecords.size() + 1), // Преобразуем число в строку для ID
+                    nextRecordId(), // Уникальный ID из генератора
                     FinanceType.INCOME, // Тип - доход
                     budgetToAdd, // Сумма добавленного бюджета
                     "Бюджет для премьеры: " + premiere.getMovieTitle(), // Описание
-                    LocalDate.now() // Дата
+                    LocalDate.now(), // Дата
+                    FinanceCategory.PREMIERE_BUDGET, // Категория
+                    premiere.getId() // Премьера
             );
 
-            financeRecords.add(record); // Добавляем запись в список финансовых операций
-            System.out.println("Финансовая запись добавлена: " + record.getDescription() + ", $" + record.getAmount());
+            CompletableFuture<Void> persisted;
+            ReentrantLock lock = lockFor(record.getId());
+            lock.lock();
+            try {
+                indexRecord(record); // Добавляем запись в список финансовых операций и обновляем итоги
+                persisted = appendOrRollBack(() -> journal.appendAdd(record), lock, () -> unindexRecord(record.getId()));
+            } finally {
+                lock.unlock();
+            }
+            persisted.join();
+            afterJournalWrite();
+            premiere.addBudget(budgetToAdd); // Бюджет премьеры увеличиваем, только когда запись сохранена
+            System.out.println("Финансовая запись добавлена: " + record.getDescription() + ", $" + Money.format(record.getAmountCents()));
         } else {
             System.out.println("Ошибка: бюджет должен быть больше 0.");
         }
     }
 
-    // Метод для получения суммы продаж билетов
+    // Метод для получения суммы продаж билетов (O(1))
     public double getTicketSales() {
-        return financeRecords.stream()
-                .filter(record -> record.getType() == FinanceType.INCOME && record.getDescription().contains("Продажа билетов"))
-                .mapToDouble(FinanceRecord::getAmount)
-                .sum();
+        return getCategoryTotal(FinanceCategory.TICKET_SALE);
     }
 
-    // Метод для получения суммы возвратов билетов
+    // Метод для получения суммы возвратов билетов (O(1))
     public double getTicketRefunds() {
-        return financeRecords.stream()
-                .filter(record -> record.getType() == FinanceType.EXPENSE && record.getDescription().contains("Возврат билетов"))
-                .mapToDouble(FinanceRecord::getAmount)
-                .sum();
-    }
-
-    // Генерация финансового отчета в формате CSV
-    public void generateFinanceReport(boolean printToConsole) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_NAME))) {
-            // Записываем заголовок CSV
-            writer.write("ID, Тип, Сумма, Описание, Дата");
-            writer.newLine();  // Переход на новую строку
-
-            if (printToConsole) {
-            // Выводим на экран и записываем в файл
-            System.out.println("Финансовый отчет:");}
-            // Добавляем информацию о продаже билетов, возвратах и бюджете премьеры
-            double ticketSales = getTicketSales();
-            double ticketRefunds = getTicketRefunds();
-
-            // Прежде чем начать добавлять записи из financeRecords, добавим информацию о продажах билетов и возвратах
-            String ticketSalesRecord = "Продажа билетов, " + ticketSales + ", Доход от продажи билетов, " + LocalDate.now();
-            String ticketRefundsRecord = "Возврат билетов, " + ticketRefunds + ", Расходы на возврат билетов, " + LocalDate.now();
-
-
-            if (printToConsole) {
-                System.out.println(ticketSalesRecord);  // Выводим строку по продаже билетов
-                System.out.println(ticketRefundsRecord);  // Выводим строку по возврату билетов
-            }
-            // Записываем их в файл
-            writer.write(ticketSalesRecord);
-            writer.newLine();
-            writer.write(ticketRefundsRecord);
-            writer.newLine();
-
-            // Теперь добавляем обычные записи из financeRecords
-            for (FinanceRecord record : financeRecords) {
-                String recordLine = record.getId() + ", " + record.getType() + ", " + record.getAmount() +
-                        ", " + record.getDescription() + ", " + record.getDate();
-                if (printToConsole) {
-                    System.out.println(recordLine);  // Выводим строку
-                }
-                writer.write(recordLine);  // Запись в файл
-                writer.newLine();  // Переход на новую строку
+        return getCategoryTotal(FinanceCategory.TICKET_REFUND);
+    }
+
+    // Генерация финансового отчета в формате CSV (экспорт по запросу; журнал не зависит от этого файла).
+    // Файл пишется в фоне: серия запросов подряд объединяется в одну запись, вызывающий поток не ждет диска.
+    // Снимок записей тоже берет фоновый поток - один раз на объединенную запись, а не на каждый запрос.
+    // Возвращаемый future завершается, когда отчет с этим (или более новым) состоянием записан на диск.
+    public CompletableFuture<Void> generateFinanceReport(boolean printToConsole) {
+        if (printToConsole) {
+            List<FinanceRecord> records = getAllFinanceRecords();
+            System.out.println("Финансовый отчет:");
+            try {
+                new FinanceReportEncoder().writeReport(records, List.of(new ConsoleReportSink(ReportFormat.CSV)));
+            } catch (IOException e) {
+                System.out.println("Ошибка при выводе отчета: " + e.getMessage());
             }
-            System.out.println("Данные успешно экспортированы в файл " + FILE_NAME);
-        } catch (IOException e) {
-            System.out.println("Ошибка при записи в файл: " + e.getMessage());
+            return reportExporter.requestExport(() -> records);
         }
+        return reportExporter.requestExport(this::snapshotForExport);
     }
 
-    // Метод для загрузки финансовых записей из файла
-    public void loadFinanceRecordsFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            // Пропустить заголовок
-            reader.readLine();
-            // Читаем строки и добавляем записи в список
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(", ");
-                if (data.length == 5) {
-                    String id = data[0];
-                    String typeString = data[1];
-                    double amount = Double.parseDouble(data[2]);
-                    String description = data[3];
-                    LocalDate date = LocalDate.parse(data[4]);
-
-                    FinanceType type;
-                    try {
-                        // Если в файле встречается "Бюджет", заменяем его на INCOME
-                        if (typeString.equalsIgnoreCase("Бюджет")) {
-                            type = FinanceType.INCOME;
-                        } else {
-                            type = FinanceType.valueOf(typeString);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        log.warn("Неизвестный тип записи: " + typeString + ". Запись будет пропущена.");
-                        continue; // Пропустить некорректную запись
-                    }
+    // Снимок для фонового экспорта. Хранилища OBJECTS и COLUMNAR нельзя читать во время записи из другого потока,
+    // поэтому снимок берется под всеми блокировками, как при сжатии журнала; ленивый снимок CONCURRENT
+    // под блокировками только запоминает позицию, а записи собираются уже после их освобождения
+    private List<FinanceRecord> snapshotForExport() {
+        Supplier<List<FinanceRecord>> snapshot;
+        for (ReentrantLock lock : recordLocks) {
+            lock.lock();
+        }
+        try {
+            snapshot = financeRecords.snapshot();
+        } finally {
+            for (ReentrantLock lock : recordLocks) {
+                lock.unlock();
+            }
+        }
+        return snapshot.get();
+    }
 
+    // Метод для записи отчета сразу в несколько приемников (файл, JSON Lines, консоль, память) за один проход.
+    // Пишет в вызывающем потоке; приемники не закрываются
+    public void writeFinanceReport(List<? extends ReportSink> sinks) throws IOException {
+        new FinanceReportEncoder().writeReport(getAllFinanceRecords(), sinks);
+    }
 
-                    // Создаем и добавляем новую финансовую запись
-                    FinanceRecord record = new FinanceRecord(id, type, amount, description, date);
-                    financeRecords.add(record);
+    // Метод для загрузки (импорта) финансовых записей из CSV-файла
+    public void loadFinanceRecordsFromFile() {
+        Path file = dataDirectory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            log.info("Файл " + FILE_NAME + " не найден. Начинаем с пустого списка.");
+            return;
+        }
+        int sizeBefore = financeRecords.size();
+        try {
+            // Потоковый разбор файла прямо из байтов; описание может содержать разделитель ", "
+            new FinanceCsvLoader().load(file, (id, type, amountCents, description, epochDay) -> {
+                ReentrantLock lock = lockFor(id);
+                lock.lock();
+                try {
+                    if (financeRecords.contains(id)) {
+                        log.warn("Повторяющийся ID записи: " + id + ". Запись будет пропущена.");
+                        return;
+                    }
+                    LocalDate date = LocalDate.ofEpochDay(epochDay);
+                    if (!FinanceRecord.isSupportedDate(date)) {
+                        log.warn("Дата записи {} вне допустимого диапазона: {}. Запись будет пропущена.", id, date);
+                        return;
+                    }
+                    // Старые строки CSV не содержат категории - определяем ее один раз при загрузке
+                    indexLoadedRecord(FinanceRecord.ofCents(id, type, amountCents, description,
+                            date, FinanceCategory.classify(type, description), null));
+                } finally {
+                    lock.unlock();
                 }
-            }
+            });
             log.info("Финансовые записи успешно загружены из файла: " + FILE_NAME);
             System.out.println("Размер загруженных записей: " + financeRecords.size()); // Выводим размер коллекции
+            if (financeRecords.size() > sizeBefore) {
+                compactJournal(); // Импортированные записи сохраняем в снимок журнала
+            }
         } catch (IOException e) {
             log.warn("Ошибка при загрузке финансовых записей из файла: " + e.getMessage());
             System.out.println("Ошибка при загрузке финансовых записей из файла: " + e.getMessage());
@@ -0,0 +1,35 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+// Итоги за период: доходы и расходы в центах
+@Getter
+@ToString
+public class FinancePeriodTotals {
+
+    private final LocalDate periodStart; // первый день периода
+    private final long incomeCents;
+    private final long expensesCents;
+
+    public FinancePeriodTotals(LocalDate periodStart, long incomeCents, long expensesCents) {
+        this.periodStart = periodStart;
+        this.incomeCents = incomeCents;
+        this.expensesCents = expensesCents;
+    }
+
+    public double getIncome() {
+        return Money.toMajor(incomeCents);
+    }
+
+    public double getExpenses() {
+        return Money.toMajor(expensesCents);
+    }
+
+    // Чистый результат периода: доходы минус расходы
+    public double getNet() {
+        return Money.toMajor(incomeCents - expensesCents);
+    }
+}
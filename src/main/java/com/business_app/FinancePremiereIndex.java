@@ -0,0 +1,89 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Материализованный отчет P&L по премьерам: суммы по ID премьеры обновляются при каждом
+// добавлении/удалении записи, поэтому итоги премьеры читаются за O(1) без разбора описаний.
+// Записи без ID премьеры (например, старые записи из CSV) в отчет не попадают.
+// Счетчики - LongAdder: продажи билетов одной популярной премьеры из многих потоков не конкурируют.
+public class FinancePremiereIndex {
+
+    private static final Comparator<PremiereProfitAndLoss> BY_NET = Comparator
+            .comparingLong(PremiereProfitAndLoss::getNetCents)
+            .thenComparing(PremiereProfitAndLoss::getPremiereId, Comparator.reverseOrder());
+
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+    // Применяем запись к счету ее премьеры: sign = 1 при добавлении, -1 при удалении
+    public void add(FinanceRecord record, int sign) {
+        String premiereId = record.getPremiereId();
+        if (premiereId == null) {
+            return;
+        }
+        long cents = sign * record.getAmountCents();
+        Account account = accounts.computeIfAbsent(premiereId, id -> new Account());
+        switch (record.getCategory()) {
+            case PREMIERE_BUDGET:
+                account.budgetCents.add(cents);
+                break;
+            case TICKET_SALE:
+                account.ticketIncomeCents.add(cents);
+                break;
+            case TICKET_REFUND:
+                account.refundsCents.add(cents);
+                break;
+            default:
+                account.otherCents.add(record.getType() == FinanceType.INCOME ? cents : -cents);
+        }
+    }
+
+    // Итоги премьеры или null, если по ней нет записей
+    public PremiereProfitAndLoss get(String premiereId) {
+        Account account = premiereId == null ? null : accounts.get(premiereId);
+        return account == null ? null : account.toProfitAndLoss(premiereId);
+    }
+
+    public List<PremiereProfitAndLoss> getAll() {
+        List<PremiereProfitAndLoss> result = new ArrayList<>(accounts.size());
+        accounts.forEach((id, account) -> result.add(account.toProfitAndLoss(id)));
+        result.sort(Comparator.comparing(PremiereProfitAndLoss::getPremiereId));
+        return result;
+    }
+
+    // N премьер с наибольшей чистой прибылью (по убыванию): куча на N элементов, O(P log N)
+    public List<PremiereProfitAndLoss> topByNet(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество премьер должно быть больше 0.");
+        }
+        PriorityQueue<PremiereProfitAndLoss> top = new PriorityQueue<>(limit, BY_NET);
+        accounts.forEach((id, account) -> {
+            PremiereProfitAndLoss candidate = account.toProfitAndLoss(id);
+            if (top.size() < limit) {
+                top.add(candidate);
+            } else if (BY_NET.compare(candidate, top.peek()) > 0) {
+                top.poll();
+                top.add(candidate);
+            }
+        });
+        List<PremiereProfitAndLoss> result = new ArrayList<>(top);
+        result.sort(BY_NET.reversed());
+        return result;
+    }
+
+    private static final class Account {
+        private final LongAdder budgetCents = new LongAdder();
+        private final LongAdder ticketIncomeCents = new LongAdder();
+        private final LongAdder refundsCents = new LongAdder();
+        private final LongAdder otherCents = new LongAdder();
+
+        private PremiereProfitAndLoss toProfitAndLoss(String premiereId) {
+            return new PremiereProfitAndLoss(premiereId, budgetCents.sum(), ticketIncomeCents.sum(),
+                    refundsCents.sum(), otherCents.sum());
+        }
+    }
+}
@@ -12,17 +12,54 @@ import java.time.LocalDate;
 @ToString
 public class FinanceRecord implements Serializable {
 
+    // Допустимый диапазон дат: индекс сумм по дням (FinanceTimeIndex) хранит дни в массивах
+    public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    public static final LocalDate MAX_DATE = LocalDate.of(2199, 12, 31);
+
     private String id;
     private FinanceType type; // тип записи доход/расход
-    private double amount; // сумма
+    @ToString.Exclude
+    private long amountCents; // сумма в центах (точная, без ошибок округления double)
     private String description; // описание
     private LocalDate date;
+    private FinanceCategory category; // категория записи (продажа билетов, возврат, бюджет, ручная)
+    private String premiereId; // ID премьеры, к которой относится запись (может быть null)
 
     public FinanceRecord(String id, FinanceType type, double amount, String description, LocalDate date) {
+        this(id, type, amount, description, date, FinanceCategory.MANUAL, null);
+    }
+
+    public FinanceRecord(String id, FinanceType type, double amount, String description, LocalDate date,
+                         FinanceCategory category, String premiereId) {
         this.id = id;
         this.type = type;
-        this.amount = amount;
+        this.amountCents = Money.toMinor(amount);
         this.description = description;
         this.date = date;
+        this.category = category;
+        this.premiereId = premiereId;
+    }
+
+    // Создание записи с суммой в центах (без перевода через double)
+    public static FinanceRecord ofCents(String id, FinanceType type, long amountCents, String description, LocalDate date,
+                                        FinanceCategory category, String premiereId) {
+        FinanceRecord record = new FinanceRecord(id, type, 0, description, date, category, premiereId);
+        record.amountCents = amountCents;
+        return record;
+    }
+
+    // Входит ли дата в допустимый диапазон MIN_DATE..MAX_DATE
+    public static boolean isSupportedDate(LocalDate date) {
+        return !date.isBefore(MIN_DATE) && !date.isAfter(MAX_DATE);
+    }
+
+    // Сумма в единицах валюты - для вывода и совместимости со старым кодом
+    @ToString.Include(name = "amount")
+    public double getAmount() {
+        return Money.toMajor(amountCents);
+    }
+
+    public void setAmount(double amount) {
+        this.amountCents = Money.toMinor(amount);
     }
 }
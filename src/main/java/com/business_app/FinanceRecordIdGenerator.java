@@ -0,0 +1,74 @@
+package com.business_app;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Генератор уникальных ID финансовых записей без блокировок.
+// Структура ID (64 бита): 41 бит - миллисекунды от EPOCH, 10 бит - номер узла, 12 бит - счетчик внутри миллисекунды.
+// ID монотонно возрастают в пределах узла: если часы отстали или счетчик переполнился,
+// генератор "занимает" следующую миллисекунду вместо повтора значения.
+public class FinanceRecordIdGenerator {
+
+    // Начало отсчета времени для ID: 2025-01-01T00:00:00Z
+    private static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    // Последнее выданное состояние: (миллисекунды << SEQUENCE_BITS) | счетчик
+    private final AtomicLong lastState = new AtomicLong();
+
+    public FinanceRecordIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Номер узла должен быть от 0 до " + MAX_NODE_ID + ".");
+        }
+        this.nodeId = nodeId;
+    }
+
+    // Номер узла берется из системного свойства finance.nodeId (по умолчанию 0)
+    public FinanceRecordIdGenerator() {
+        this(Integer.getInteger("finance.nodeId", 0));
+    }
+
+    // Метод для получения следующего ID в виде числа
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long previous = lastState.get();
+            // Если миллисекунда новая - счетчик с нуля, иначе просто увеличиваем состояние на 1
+            // (переполнение счетчика автоматически переносится в следующую миллисекунду)
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (lastState.compareAndSet(previous, next)) {
+                return compose(next);
+            }
+        }
+    }
+
+    // Метод для получения следующего ID в виде строки
+    public String nextIdString() {
+        return Long.toString(nextId());
+    }
+
+    // Учитываем ID, загруженный с диска: новые ID этого узла будут строго больше него.
+    // Это защищает от повторов после перезапуска, если системные часы ушли назад.
+    public void observe(String id) {
+        long value;
+        try {
+            value = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return; // ID не из этого генератора (например, старый ручной ID)
+        }
+        if (value < 0 || ((value >>> SEQUENCE_BITS) & MAX_NODE_ID) != nodeId) {
+            return;
+        }
+        long state = ((value >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (value & SEQUENCE_MASK);
+        lastState.accumulateAndGet(state, Math::max);
+    }
+
+    private long compose(long state) {
+        long millis = state >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (state & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,341 @@
+package com.business_app;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// Потоковый кодировщик финансового отчета. Каждая строка собирается прямо в байты UTF-8 в переиспользуемом
+// буфере: суммы пишутся цифрами из центов, даты - из полей LocalDate, текст - посимвольно.
+// Промежуточные строки не создаются, поэтому на запись почти не приходится выделений памяти.
+// Один проход по записям обслуживает сразу несколько приемников: строка кодируется один раз на каждый
+// используемый формат и передается всем приемникам этого формата.
+// Экземпляр не потокобезопасен - каждому потоку нужен свой кодировщик.
+public class FinanceReportEncoder {
+
+    private static final byte[] CSV_HEADER = bytes("ID, Тип, Сумма, Описание, Дата\n");
+    private static final byte[] SALES_PREFIX = bytes("Продажа билетов, ");
+    private static final byte[] SALES_SUFFIX = bytes(", Доход от продажи билетов, ");
+    private static final byte[] REFUNDS_PREFIX = bytes("Возврат билетов, ");
+    private static final byte[] REFUNDS_SUFFIX = bytes(", Расходы на возврат билетов, ");
+    private static final byte[] SEPARATOR = bytes(", ");
+    private static final byte[] JSON_ID = bytes("{\"id\":");
+    private static final byte[] JSON_TYPE = bytes(",\"type\":\"");
+    private static final byte[] JSON_AMOUNT = bytes("\",\"amount\":");
+    private static final byte[] JSON_DESCRIPTION = bytes(",\"description\":");
+    private static final byte[] JSON_DATE = bytes(",\"date\":\"");
+    private static final byte[] JSON_CATEGORY = bytes("\",\"category\":\"");
+    private static final byte[] JSON_PREMIERE = bytes("\",\"premiereId\":");
+    private static final byte[] JSON_NULL = bytes("null");
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    private byte[] buffer = new byte[512];
+    private int length;
+
+    // Полный отчет: для CSV - заголовок и итоговые строки продаж/возвратов, затем все записи
+    public void writeReport(List<FinanceRecord> records, List<? extends ReportSink> sinks) throws IOException {
+        boolean csv = false;
+        boolean json = false;
+        for (ReportSink sink : sinks) {
+            csv |= sink.getFormat() == ReportFormat.CSV;
+            json |= sink.getFormat() == ReportFormat.JSON_LINES;
+        }
+        if (csv) {
+            long ticketSales = 0;
+            long ticketRefunds = 0;
+            for (int i = 0, size = records.size(); i < size; i++) {
+                FinanceRecord record = records.get(i);
+                if (record.getCategory() == FinanceCategory.TICKET_SALE) {
+                    ticketSales += record.getAmountCents();
+                } else if (record.getCategory() == FinanceCategory.TICKET_REFUND) {
+                    ticketRefunds += record.getAmountCents();
+                }
+            }
+            LocalDate today = LocalDate.now();
+            length = 0;
+            append(CSV_HEADER);
+            dispatch(sinks, ReportFormat.CSV);
+            encodeSummary(SALES_PREFIX, ticketSales, SALES_SUFFIX, today);
+            dispatch(sinks, ReportFormat.CSV);
+            encodeSummary(REFUNDS_PREFIX, ticketRefunds, REFUNDS_SUFFIX, today);
+            dispatch(sinks, ReportFormat.CSV);
+        }
+        // Индексный обход: для ArrayList не создается даже итератор
+        for (int i = 0, size = records.size(); i < size; i++) {
+            FinanceRecord record = records.get(i);
+            if (csv) {
+                encodeCsv(record);
+                dispatch(sinks, ReportFormat.CSV);
+            }
+            if (json) {
+                encodeJson(record);
+                dispatch(sinks, ReportFormat.JSON_LINES);
+            }
+        }
+    }
+
+    // Строка CSV: ID, Тип, Сумма, Описание, Дата (описание с кавычками/переводом строки - в кавычках)
+    public void encodeCsv(FinanceRecord record) {
+        length = 0;
+        appendText(record.getId());
+        append(SEPARATOR);
+        appendText(record.getType().name());
+        append(SEPARATOR);
+        appendCents(record.getAmountCents());
+        append(SEPARATOR);
+        String description = record.getDescription();
+        if (needsCsvQuotes(description)) {
+            ensureCapacity(description.length() * 3 + 2);
+            buffer[length++] = '"';
+            for (int i = 0; i < description.length(); i++) {
+                char c = description.charAt(i);
+                if (c == '"') {
+                    buffer[length++] = '"';
+                }
+                i += appendChar(description, i, c) - 1;
+            }
+            buffer[length++] = '"';
+        } else {
+            appendText(description);
+        }
+        append(SEPARATOR);
+        appendDate(record.getDate());
+        appendByte('\n');
+    }
+
+    // Строка JSON Lines
+    public void encodeJson(FinanceRecord record) {
+        length = 0;
+        append(JSON_ID);
+        appendJsonString(record.getId());
+        append(JSON_TYPE);
+        appendText(record.getType().name());
+        append(JSON_AMOUNT);
+        appendCents(record.getAmountCents());
+        append(JSON_DESCRIPTION);
+        appendJsonString(record.getDescription());
+        append(JSON_DATE);
+        appendDate(record.getDate());
+        append(JSON_CATEGORY);
+        appendText(record.getCategory().name());
+        append(JSON_PREMIERE);
+        if (record.getPremiereId() == null) {
+            append(JSON_NULL);
+        } else {
+            appendJsonString(record.getPremiereId());
+        }
+        appendByte('}');
+        appendByte('\n');
+    }
+
+    // Текущая закодированная строка (действительна до следующего вызова encode*)
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private void dispatch(List<? extends ReportSink> sinks, ReportFormat format) throws IOException {
+        for (int i = 0, size = sinks.size(); i < size; i++) {
+            ReportSink sink = sinks.get(i);
+            if (sink.getFormat() == format) {
+                sink.write(buffer, 0, length);
+            }
+        }
+    }
+
+    private void encodeSummary(byte[] prefix, long cents, byte[] suffix, LocalDate date) {
+        length = 0;
+        append(prefix);
+        appendCents(cents);
+        append(suffix);
+        appendDate(date);
+        appendByte('\n');
+    }
+
+    private static boolean needsCsvQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendJsonString(String text) {
+        ensureCapacity(text.length() * 6 + 2); // Худший случай - шесть байт экранирования на символ
+        byte[] out = buffer;
+        int position = length;
+        out[position++] = '"';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out[position++] = '\\';
+                out[position++] = (byte) c;
+            } else if (c == '\n') {
+                out[position++] = '\\';
+                out[position++] = 'n';
+            } else if (c == '\r') {
+                out[position++] = '\\';
+                out[position++] = 'r';
+            } else if (c == '\t') {
+                out[position++] = '\\';
+                out[position++] = 't';
+            } else if (c < 0x20) {
+                out[position++] = '\\';
+                out[position++] = 'u';
+                out[position++] = '0';
+                out[position++] = '0';
+                out[position++] = HEX[c >>> 4];
+                out[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >>> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                length = position;
+                i += appendChar(text, i, c) - 1;
+                position = length;
+            }
+        }
+        out[position++] = '"';
+        length = position;
+    }
+
+    // Текст без экранирования; место резервируется один раз (не больше 3 байт на char)
+    private void appendText(String text) {
+        ensureCapacity(text.length() * 3);
+        byte[] out = buffer;
+        int position = length;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) { // Кириллица - два байта, самый частый случай после ASCII
+                out[position++] = (byte) (0xC0 | (c >>> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                length = position;
+                i += appendChar(text, i, c) - 1;
+                position = length;
+            }
+        }
+        length = position;
+    }
+
+    // Кодирование символа в UTF-8; возвращает число использованных char (2 для суррогатной пары).
+    // Место (до 3 байт на char) должно быть зарезервировано вызывающим кодом
+    private int appendChar(String text, int index, char c) {
+        if (c < 0x80) {
+            buffer[length++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[length++] = (byte) (0xC0 | (c >>> 6));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+            buffer[length++] = (byte) (0xF0 | (codePoint >>> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+            buffer[length++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            buffer[length++] = '?'; // Одиночный суррогат, как у String.getBytes(UTF_8)
+        } else {
+            buffer[length++] = (byte) (0xE0 | (c >>> 12));
+            buffer[length++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return 1;
+    }
+
+    // Сумма в центах: целая часть, точка, две цифры (как Money.format)
+    private void appendCents(long cents) {
+        ensureCapacity(24);
+        if (cents < 0) {
+            buffer[length++] = '-';
+        }
+        // Делим до смены знака, чтобы Long.MIN_VALUE не переполнялся
+        appendDigits(Math.abs(cents / Money.MINOR_UNITS), 1);
+        buffer[length++] = '.';
+        appendDigits(Math.abs(cents % Money.MINOR_UNITS), Money.SCALE);
+    }
+
+    // Дата yyyy-MM-dd; годы вне 0..9999 пишутся как в LocalDate.toString()
+    private void appendDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            appendText(date.toString());
+            return;
+        }
+        ensureCapacity(10);
+        byte[] out = buffer;
+        int position = length;
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        out[position] = (byte) ('0' + year / 1000);
+        out[position + 1] = (byte) ('0' + year / 100 % 10);
+        out[position + 2] = (byte) ('0' + year / 10 % 10);
+        out[position + 3] = (byte) ('0' + year % 10);
+        out[position + 4] = '-';
+        out[position + 5] = (byte) ('0' + month / 10);
+        out[position + 6] = (byte) ('0' + month % 10);
+        out[position + 7] = '-';
+        out[position + 8] = (byte) ('0' + day / 10);
+        out[position + 9] = (byte) ('0' + day % 10);
+        length = position + 10;
+    }
+
+    // Неотрицательное число не короче minDigits цифр (с ведущими нулями)
+    private void appendDigits(long value, int minDigits) {
+        if (value > Integer.MAX_VALUE) {
+            // Старшая часть - отдельно, младшие девять цифр - быстрым делением int
+            appendDigits(value / 1_000_000_000L, Math.max(minDigits - 9, 1));
+            appendIntDigits((int) (value % 1_000_000_000L), 9);
+        } else {
+            appendIntDigits((int) value, minDigits);
+        }
+    }
+
+    private void appendIntDigits(int value, int minDigits) {
+        int digits = 1;
+        for (int v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(digits);
+        byte[] out = buffer;
+        int end = length + digits;
+        for (int i = end - 1; i >= length; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void appendByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Фоновая запись CSV-отчета финансовых записей.
+// Запросы на экспорт не пишут файл сразу: запрос ждет DEBOUNCE мс, и все запросы, пришедшие за это время,
+// объединяются в одну запись с самым свежим снимком. Вызывающий поток не ждет диска.
+// Файл пишется во временный, сбрасывается на диск и атомарно переименовывается - читатель никогда
+// не увидит наполовину записанный отчет.
+@Slf4j
+public class FinanceReportExporter implements AutoCloseable {
+
+    private final Path target;
+    private final Path temp;
+    private final long debounceMillis;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final FinanceReportEncoder encoder = new FinanceReportEncoder(); // Используется только фоновым потоком
+
+    // Ожидающий запрос: снимок для записи и общий future всех объединенных запросов
+    private Supplier<List<FinanceRecord>> pendingSnapshot;
+    private CompletableFuture<Void> pendingFuture;
+    private CompletableFuture<Void> lastFuture = CompletableFuture.completedFuture(null);
+    private boolean closed;
+
+    public FinanceReportExporter(Path target, long debounceMillis) {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.debounceMillis = debounceMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "finance-report-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Запрос на экспорт. Если предыдущий запрос еще не начал писаться, он получает новый снимок,
+    // и оба запроса завершатся одной записью (возвращается тот же future)
+    public synchronized CompletableFuture<Void> requestExport(Supplier<List<FinanceRecord>> snapshot) {
+        if (closed) {
+            throw new IllegalStateException("Экспорт финансового отчета остановлен.");
+        }
+        pendingSnapshot = snapshot;
+        if (pendingFuture == null) {
+            pendingFuture = new CompletableFuture<>();
+            lastFuture = pendingFuture;
+            executor.schedule(this::writePending, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return pendingFuture;
+    }
+
+    // Future последнего запроса; ожидающий запрос записывается сразу, не дожидаясь паузы
+    public synchronized CompletableFuture<Void> flush() {
+        if (pendingFuture != null && !closed) {
+            executor.execute(this::writePending);
+        }
+        return lastFuture;
+    }
+
+    // Сколько раз файл отчета был действительно записан
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    // Дописываем ожидающий отчет и останавливаем фоновый поток
+    @Override
+    public void close() {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            last = flush();
+            closed = true;
+        }
+        try {
+            last.join();
+        } catch (RuntimeException e) {
+            log.warn("Последний экспорт финансового отчета завершился ошибкой: " + e.getMessage());
+        }
+        executor.shutdown();
+    }
+
+    private void writePending() {
+        Supplier<List<FinanceRecord>> snapshot;
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            if (pendingFuture == null) {
+                return; // Запрос уже записан (например, раньше срока через flush)
+            }
+            snapshot = pendingSnapshot;
+            future = pendingFuture;
+            pendingSnapshot = null;
+            pendingFuture = null;
+        }
+        try {
+            write(snapshot.get());
+            writeCount.incrementAndGet();
+            future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            log.error("Ошибка при записи финансового отчета: " + e.getMessage());
+            System.out.println("Ошибка при записи в файл: " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void write(List<FinanceRecord> records) throws IOException {
+        try (FileReportSink sink = new FileReportSink(temp, ReportFormat.CSV)) {
+            encoder.writeReport(records, List.of(sink));
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Данные успешно экспортированы в файл " + target.getFileName() + " (записей: " + records.size() + ")");
+    }
+}
@@ -0,0 +1,8 @@
+package com.business_app;
+
+// Способ хранения финансовых записей в FinanceManager
+public enum FinanceStorageMode {
+    OBJECTS, // Каждая запись - отдельный объект FinanceRecord (по умолчанию)
+    COLUMNAR, // Записи разложены по массивам примитивов, объекты создаются только по запросу
+    CONCURRENT // Потокобезопасное хранилище для записи из многих потоков (журнал в памяти + ConcurrentHashMap)
+}
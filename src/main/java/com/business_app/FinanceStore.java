@@ -0,0 +1,50 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Хранилище финансовых записей с первичным индексом по ID и выборкой по категориям.
+// Итоги и прочие агрегаты хранилище не считает - этим занимается FinanceManager.
+public interface FinanceStore {
+
+    boolean contains(String id);
+
+    // Запись по ID или null
+    FinanceRecord get(String id);
+
+    // Добавление новой записи (ID еще не занят)
+    void add(FinanceRecord record);
+
+    // Замена существующей записи с тем же ID; возвращает прежнюю запись
+    FinanceRecord replace(FinanceRecord record);
+
+    // Удаление по ID; возвращает удаленную запись или null
+    FinanceRecord remove(String id);
+
+    int size();
+
+    // Обход всех записей в порядке добавления
+    void forEach(Consumer<FinanceRecord> action);
+
+    // Обход в том же порядке с остановкой: обход прекращается, как только action вернет false
+    void forEachWhile(Predicate<FinanceRecord> action);
+
+    // Записи одной категории в порядке добавления (O(k))
+    List<FinanceRecord> getByCategory(FinanceCategory category);
+
+    // Снимок текущего состояния для сжатия журнала. По умолчанию записи копируются сразу;
+    // хранилище может вернуть ленивый снимок, который строится позже и не задерживает запись
+    default Supplier<List<FinanceRecord>> snapshot() {
+        List<FinanceRecord> records = new ArrayList<>(size());
+        forEach(records::add);
+        return () -> records;
+    }
+
+    // Освобождение памяти, занятой удаленными и замененными записями. Вызывается, когда запись
+    // в хранилище остановлена; хранилищам, которые не копят историю операций, сжатие не нужно
+    default void compactLog() {
+    }
+}
@@ -0,0 +1,238 @@
+package com.business_app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Индекс сумм по датам: для каждого типа записи - дерево Фенвика (префиксные суммы) по номеру дня.
+// Добавление/удаление записи и сумма за любой интервал дат - O(log n), где n - число дней в диапазоне.
+// Диапазон дней расширяется по мере появления записей с более ранними или поздними датами.
+// Итоги закрытых (полностью прошедших) периодов кэшируются; кэш периода сбрасывается при изменении его записей.
+// Индекс разбит на SHARDS независимых частей со своими мониторами: поток-писатель обновляет часть,
+// выбранную по номеру потока, поэтому параллельные писатели не ждут друг друга. Суммы аддитивны,
+// так что удаление можно учесть в любой части, а запрос складывает ответы всех частей (O(SHARDS log n)).
+public class FinanceTimeIndex {
+
+    private static final int SHARDS = 8; // Степень двойки
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final FinanceType[] TYPES = FinanceType.values();
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    public FinanceTimeIndex() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    // Учет суммы (в центах, со знаком) в день записи
+    public void add(FinanceType type, LocalDate date, long cents) {
+        shard().add(type, date, cents);
+    }
+
+    // Пакет добавленных записей под одним захватом монитора части
+    public void addAll(List<FinanceRecord> records) {
+        shard().addAll(records);
+    }
+
+    // Сумма записей типа за даты from..to включительно
+    public long sumBetween(LocalDate from, LocalDate to, FinanceType type) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        long sum = 0;
+        for (Shard shard : shards) {
+            sum += shard.sumBetween(from.toEpochDay(), to.toEpochDay(), type);
+        }
+        return sum;
+    }
+
+    // Итоги по периодам заданного шага в интервале дат (пустые периоды пропускаются)
+    public List<FinancePeriodTotals> rollup(FinanceGranularity granularity, LocalDate from, LocalDate to, LocalDate today) {
+        List<FinancePeriodTotals> result = new ArrayList<>();
+        LocalDate firstDate = getFirstDate();
+        LocalDate lastDate = getLastDate();
+        if (firstDate == null) {
+            return result;
+        }
+        LocalDate first = firstDate.isAfter(from) ? firstDate : from;
+        LocalDate last = lastDate.isBefore(to) ? lastDate : to;
+        for (LocalDate start = granularity.periodStart(first); !start.isAfter(last); start = granularity.nextPeriodStart(start)) {
+            LocalDate end = granularity.nextPeriodStart(start).minusDays(1);
+            boolean wholePeriod = !start.isBefore(from) && !end.isAfter(to);
+            // Закрытый период больше не меняется (кроме правок задним числом, которые сбрасывают кэш)
+            boolean closed = wholePeriod && end.isBefore(today);
+            LocalDate clippedStart = start.isBefore(from) ? from : start;
+            LocalDate clippedEnd = end.isAfter(to) ? to : end;
+            long income = 0;
+            long expenses = 0;
+            for (Shard shard : shards) {
+                long[] totals = shard.periodTotals(granularity, start, clippedStart, clippedEnd, closed);
+                income += totals[0];
+                expenses += totals[1];
+            }
+            if (income != 0 || expenses != 0) {
+                result.add(new FinancePeriodTotals(start, income, expenses));
+            }
+        }
+        return result;
+    }
+
+    // Самая ранняя дата записей или null, если записей не было
+    public LocalDate getFirstDate() {
+        long first = Long.MAX_VALUE;
+        for (Shard shard : shards) {
+            first = Math.min(first, shard.minDay());
+        }
+        return first == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(first);
+    }
+
+    // Самая поздняя дата записей или null, если записей не было
+    public LocalDate getLastDate() {
+        long last = Long.MIN_VALUE;
+        for (Shard shard : shards) {
+            last = Math.max(last, shard.maxDay());
+        }
+        return last == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(last);
+    }
+
+    // Часть индекса для текущего потока
+    private Shard shard() {
+        long thread = Thread.currentThread().getId();
+        return shards[(int) (thread ^ (thread >>> 16)) & (SHARDS - 1)];
+    }
+
+    private static long cacheKey(FinanceGranularity granularity, LocalDate periodStart) {
+        return periodStart.toEpochDay() * FinanceGranularity.values().length + granularity.ordinal();
+    }
+
+    // Часть индекса: деревья Фенвика по дням и кэш закрытых периодов; методы синхронизированы,
+    // обновление занимает O(log n) и держит монитор очень недолго
+    private static final class Shard {
+        private long baseDay; // Номер дня, соответствующий позиции 0
+        private int capacity;
+        private long[][] daily = new long[TYPES.length][0]; // Суммы по дням (для перестройки при расширении диапазона)
+        private long[][] tree = new long[TYPES.length][1]; // Деревья Фенвика, индексация с 1
+        private long minDay = Long.MAX_VALUE; // Самый ранний и самый поздний день, где были записи
+        private long maxDay = Long.MIN_VALUE;
+
+        private final Map<Long, long[]> closedPeriodCache = new HashMap<>(); // Доходы и расходы закрытого периода
+
+        private synchronized void add(FinanceType type, LocalDate date, long cents) {
+            long day = date.toEpochDay();
+            ensureRange(day);
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            int position = (int) (day - baseDay);
+            daily[type.ordinal()][position] += cents;
+            long[] fenwick = tree[type.ordinal()];
+            for (int i = position + 1; i <= capacity; i += i & -i) {
+                fenwick[i] += cents;
+            }
+            invalidate(date);
+        }
+
+        private synchronized void addAll(List<FinanceRecord> records) {
+            for (FinanceRecord record : records) {
+                add(record.getType(), record.getDate(), record.getAmountCents());
+            }
+        }
+
+        private synchronized long sumBetween(long fromDay, long toDay, FinanceType type) {
+            if (capacity == 0) {
+                return 0;
+            }
+            return prefix(type, toDay) - prefix(type, fromDay - 1);
+        }
+
+        // Доходы и расходы за from..to; итоги закрытого периода берутся из кэша
+        private synchronized long[] periodTotals(FinanceGranularity granularity, LocalDate periodStart,
+                                                 LocalDate from, LocalDate to, boolean closed) {
+            if (!closed) {
+                return totals(from, to);
+            }
+            return closedPeriodCache.computeIfAbsent(cacheKey(granularity, periodStart), key -> totals(from, to));
+        }
+
+        private synchronized long minDay() {
+            return minDay;
+        }
+
+        private synchronized long maxDay() {
+            return maxDay;
+        }
+
+        private long[] totals(LocalDate from, LocalDate to) {
+            return new long[]{sumBetween(from.toEpochDay(), to.toEpochDay(), FinanceType.INCOME),
+                    sumBetween(from.toEpochDay(), to.toEpochDay(), FinanceType.EXPENSE)};
+        }
+
+        private long prefix(FinanceType type, long day) {
+            long position = Math.min(day - baseDay, capacity - 1L);
+            if (position < 0) {
+                return 0;
+            }
+            long[] fenwick = tree[type.ordinal()];
+            long sum = 0;
+            for (int i = (int) position + 1; i > 0; i -= i & -i) {
+                sum += fenwick[i];
+            }
+            return sum;
+        }
+
+        // Расширяем диапазон дней (с запасом в два раза) и перестраиваем деревья за O(capacity)
+        private void ensureRange(long day) {
+            if (capacity > 0 && day >= baseDay && day < baseDay + capacity) {
+                return;
+            }
+            long newBase;
+            long newEnd;
+            if (capacity == 0) {
+                newBase = day - INITIAL_CAPACITY / 2;
+                newEnd = newBase + INITIAL_CAPACITY;
+            } else {
+                newBase = Math.min(baseDay, day);
+                newEnd = Math.max(baseDay + capacity, day + 1);
+                long span = newEnd - newBase;
+                // Запас в сторону расширения, чтобы перестройка была редкой
+                if (day < baseDay) {
+                    newBase -= span;
+                } else {
+                    newEnd += span;
+                }
+            }
+            int newCapacity = Math.toIntExact(newEnd - newBase);
+            long[][] newDaily = new long[TYPES.length][newCapacity];
+            long[][] newTree = new long[TYPES.length][newCapacity + 1];
+            for (int t = 0; t < TYPES.length; t++) {
+                if (capacity > 0) {
+                    System.arraycopy(daily[t], 0, newDaily[t], (int) (baseDay - newBase), capacity);
+                }
+                // Построение дерева Фенвика за линейное время
+                long[] fenwick = newTree[t];
+                for (int i = 1; i <= newCapacity; i++) {
+                    fenwick[i] += newDaily[t][i - 1];
+                    int parent = i + (i & -i);
+                    if (parent <= newCapacity) {
+                        fenwick[parent] += fenwick[i];
+                    }
+                }
+            }
+            baseDay = newBase;
+            capacity = newCapacity;
+            daily = newDaily;
+            tree = newTree;
+        }
+
+        private void invalidate(LocalDate date) {
+            if (closedPeriodCache.isEmpty()) {
+                return;
+            }
+            for (FinanceGranularity granularity : FinanceGranularity.values()) {
+                closedPeriodCache.remove(cacheKey(granularity, granularity.periodStart(date)));
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.business_app;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+// Индекс крупнейших операций: для каждого типа - за все время и по каждому месяцу.
+// Группа хранит не все записи, а только CAPACITY самых крупных (TreeSet по убыванию суммы, затем по ID)
+// и общее число записей группы. Набор всегда содержит точный верх группы: новая запись попадает в него,
+// только если она не меньше наименьшей сохраненной. Удаление записи из набора уменьшает верх;
+// если после удалений в наборе осталось меньше записей, чем запрошено, а в группе их больше,
+// набор перестраивается одним обходом хранилища (редко: нужно удалить CAPACITY - k записей из верха).
+// Индекс разбит на SHARDS частей по хешу ID записи, у каждой части свой монитор, поэтому писатели
+// разных записей почти не ждут друг друга. Верх группы целиком содержится в объединении верхов частей:
+// запрос берет limit крупнейших из каждой части и сливает их.
+public class FinanceTopIndex {
+
+    public static final int CAPACITY = 100; // Сколько крупнейших записей хранится в каждой группе
+    private static final int SHARDS = 8; // Степень двойки
+    private static final FinanceType[] TYPES = FinanceType.values();
+    private static final Comparator<FinanceRecord> LARGEST_FIRST = Comparator
+            .comparingLong(FinanceRecord::getAmountCents).reversed()
+            .thenComparing(FinanceRecord::getId);
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    public FinanceTopIndex() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    // Учет записи: sign = 1 при добавлении, -1 при удалении
+    public void add(FinanceRecord record, int sign) {
+        shards[shardOf(record.getId())].add(record, sign);
+    }
+
+    // Пакет добавленных записей: каждая часть захватывается один раз
+    public void addAll(List<FinanceRecord> records) {
+        List<List<FinanceRecord>> byShard = new ArrayList<>(SHARDS);
+        for (int i = 0; i < SHARDS; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (FinanceRecord record : records) {
+            byShard.get(shardOf(record.getId())).add(record);
+        }
+        for (int i = 0; i < SHARDS; i++) {
+            if (!byShard.get(i).isEmpty()) {
+                shards[i].addAll(byShard.get(i));
+            }
+        }
+    }
+
+    // limit крупнейших записей типа за все время (month == null) или за месяц, по убыванию суммы.
+    // allRecords - обход хранилища на случай перестройки группы
+    public List<FinanceRecord> top(FinanceType type, YearMonth month, int limit,
+                                   Consumer<Consumer<FinanceRecord>> allRecords) {
+        if (type == null) {
+            throw new IllegalArgumentException("Тип записи должен быть указан.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество записей должно быть больше 0.");
+        }
+        if (limit > CAPACITY) {
+            return scan(type, month, limit, allRecords, -1); // Больше, чем хранится в индексе - полный обход
+        }
+        List<FinanceRecord> merged = new ArrayList<>();
+        for (Shard shard : shards) {
+            merged.addAll(shard.top(type, month, limit, allRecords));
+        }
+        merged.sort(LARGEST_FIRST);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static int shardOf(String recordId) {
+        int hash = recordId.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+    }
+
+    // Полный обход с кучей на limit элементов: O(n log limit), без копирования всех записей.
+    // shard >= 0 - учитываются только записи этой части
+    private static List<FinanceRecord> scan(FinanceType type, YearMonth month, int limit,
+                                            Consumer<Consumer<FinanceRecord>> allRecords, int shard) {
+        PriorityQueue<FinanceRecord> heap = new PriorityQueue<>(limit, LARGEST_FIRST.reversed());
+        allRecords.accept(record -> {
+            if (record.getType() != type || (month != null && !YearMonth.from(record.getDate()).equals(month))
+                    || (shard >= 0 && shardOf(record.getId()) != shard)) {
+                return;
+            }
+            if (heap.size() < limit) {
+                heap.add(record);
+            } else if (LARGEST_FIRST.compare(record, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(record);
+            }
+        });
+        List<FinanceRecord> result = new ArrayList<>(heap);
+        result.sort(LARGEST_FIRST);
+        return result;
+    }
+
+    // Часть индекса: группы за все время и по месяцам для записей, попавших в эту часть
+    private static final class Shard {
+        private final int number;
+        private final Group[] overall = new Group[TYPES.length];
+        private final List<Map<YearMonth, Group>> monthly = new ArrayList<>();
+
+        private Shard(int number) {
+            this.number = number;
+            for (int i = 0; i < TYPES.length; i++) {
+                overall[i] = new Group();
+                monthly.add(new HashMap<>());
+            }
+        }
+
+        private synchronized void add(FinanceRecord record, int sign) {
+            YearMonth month = YearMonth.from(record.getDate());
+            Group group = monthly.get(record.getType().ordinal()).computeIfAbsent(month, m -> new Group());
+            if (sign > 0) {
+                overall[record.getType().ordinal()].add(record);
+                group.add(record);
+            } else {
+                overall[record.getType().ordinal()].remove(record);
+                group.remove(record);
+                if (group.count == 0) {
+                    monthly.get(record.getType().ordinal()).remove(month);
+                }
+            }
+        }
+
+        private synchronized void addAll(List<FinanceRecord> records) {
+            for (FinanceRecord record : records) {
+                add(record, 1);
+            }
+        }
+
+        private synchronized List<FinanceRecord> top(FinanceType type, YearMonth month, int limit,
+                                                     Consumer<Consumer<FinanceRecord>> allRecords) {
+            Group group = month == null ? overall[type.ordinal()] : monthly.get(type.ordinal()).get(month);
+            if (group == null) {
+                return new ArrayList<>();
+            }
+            if (group.top.size() < Math.min(limit, group.count)) {
+                group.rebuild(scan(type, month, CAPACITY, allRecords, number));
+            }
+            List<FinanceRecord> result = new ArrayList<>(limit);
+            Iterator<FinanceRecord> iterator = group.top.iterator();
+            while (result.size() < limit && iterator.hasNext()) {
+                result.add(iterator.next());
+            }
+            return result;
+        }
+    }
+
+    private static final class Group {
+        private final TreeSet<FinanceRecord> top = new TreeSet<>(LARGEST_FIRST);
+        private long count; // Всего записей в группе (в том числе не попавших в top)
+
+        private void add(FinanceRecord record) {
+            count++;
+            if (top.size() < CAPACITY && top.size() == count - 1) {
+                top.add(record); // Набор содержит всю группу
+            } else if (!top.isEmpty() && LARGEST_FIRST.compare(record, top.last()) < 0) {
+                top.add(record); // Крупнее наименьшей сохраненной - значит, крупнее всех несохраненных
+                if (top.size() > CAPACITY) {
+                    top.pollLast();
+                }
+            }
+        }
+
+        private void remove(FinanceRecord record) {
+            count--;
+            top.remove(record);
+        }
+
+        private void rebuild(List<FinanceRecord> records) {
+            top.clear();
+            top.addAll(records);
+        }
+    }
+}
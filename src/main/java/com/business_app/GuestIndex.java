@@ -0,0 +1,83 @@
+package com.business_app;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Хэш-индекс гостей премьеры для проверки на входе: приглашен ли гость - O(1) поиск в ConcurrentHashMap,
+// отметка о прибытии - CAS состояния гостя, поэтому гостя одновременно сканируют несколько турникетов,
+// а пройдет он ровно один раз. Имена сравниваются без учета регистра и пробелов по краям.
+// Счетчики приглашенных и пришедших обновляются вместе с состоянием и читаются без обхода индекса.
+public class GuestIndex {
+
+    public enum CheckInResult {
+        CHECKED_IN,         // Гость отмечен как пришедший
+        ALREADY_CHECKED_IN, // Повторное сканирование: гость уже прошел
+        NOT_INVITED         // Гостя нет в списке
+    }
+
+    private enum State { INVITED, ARRIVED, REMOVED }
+
+    private final Map<String, AtomicReference<State>> guests = new ConcurrentHashMap<>();
+    private final AtomicInteger invitedCount = new AtomicInteger();
+    private final AtomicInteger arrivedCount = new AtomicInteger();
+
+    // Добавление гостя; false - если такой гость уже есть
+    public boolean add(String guestName) {
+        if (guests.putIfAbsent(key(guestName), new AtomicReference<>(State.INVITED)) != null) {
+            return false;
+        }
+        invitedCount.incrementAndGet();
+        return true;
+    }
+
+    public boolean contains(String guestName) {
+        return guestName != null && guests.containsKey(key(guestName));
+    }
+
+    public boolean isCheckedIn(String guestName) {
+        AtomicReference<State> state = guestName == null ? null : guests.get(key(guestName));
+        return state != null && state.get() == State.ARRIVED;
+    }
+
+    // Отметка о прибытии: из нескольких одновременных сканирований одного гостя успешно только одно
+    public CheckInResult checkIn(String guestName) {
+        AtomicReference<State> state = guestName == null ? null : guests.get(key(guestName));
+        if (state == null) {
+            return CheckInResult.NOT_INVITED;
+        }
+        if (state.compareAndSet(State.INVITED, State.ARRIVED)) {
+            arrivedCount.incrementAndGet();
+            return CheckInResult.CHECKED_IN;
+        }
+        return state.get() == State.ARRIVED ? CheckInResult.ALREADY_CHECKED_IN : CheckInResult.NOT_INVITED;
+    }
+
+    public int getInvitedCount() {
+        return invitedCount.get();
+    }
+
+    public int getArrivedCount() {
+        return arrivedCount.get();
+    }
+
+    // Очистка индекса. Удаленный гость помечается REMOVED, чтобы одновременная отметка о прибытии
+    // не изменила счетчик пришедших после его пересчета
+    public void clear() {
+        for (String key : guests.keySet()) {
+            AtomicReference<State> state = guests.remove(key);
+            if (state != null) {
+                invitedCount.decrementAndGet();
+                if (state.getAndSet(State.REMOVED) == State.ARRIVED) {
+                    arrivedCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static String key(String guestName) {
+        return guestName.trim().toLowerCase(Locale.ROOT);
+    }
+}
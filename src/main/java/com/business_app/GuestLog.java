@@ -0,0 +1,301 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Журнал гостей премьеры только на добавление: каждое добавление (один гость или целая пачка) дописывается
+// в конец файла одним кадром "длина, данные, CRC32" - одна последовательная запись и один fsync.
+// Оборванный при сбое последний кадр отбрасывается при загрузке.
+// Когда файл становится вдвое больше, чем занял бы сжатый список, он переписывается одним кадром
+// (временный файл + атомарное переименование), поэтому сжатие в среднем стоит O(1) на гостя.
+// Если журнала еще нет, список читается из файла прежнего формата (<id>_guests.dat, сериализованный List);
+// старый файл не удаляется, но после появления журнала больше не читается.
+@Slf4j
+public class GuestLog implements AutoCloseable {
+
+    public static final String FILE_SUFFIX = "_guests.log";
+    public static final String LEGACY_FILE_SUFFIX = "_guests.dat";
+
+    private static final int MAGIC = 0x474C4731; // "GLG1"
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int FRAME_OVERHEAD = Integer.BYTES + Integer.BYTES; // Длина и CRC32 кадра
+    private static final byte OP_ADD = 'A';
+    private static final long COMPACT_MIN_BYTES = 64 * 1024; // Маленькие журналы не сжимаем
+
+    private final Path logPath;
+    private final Path legacyPath;
+    private FileChannel channel; // Открывается при первой записи: премьеры без гостей не создают файлов
+    private long logBytes; // Текущий размер журнала
+    private long liveBytes; // Размер имен гостей в кадре сжатого журнала
+    private boolean torn; // Недописанный кадр не удалось обрезать: следующая запись переписывает журнал целиком
+
+    public GuestLog(Path directory, String premiereId) {
+        this.logPath = directory.resolve(premiereId + FILE_SUFFIX);
+        this.legacyPath = directory.resolve(premiereId + LEGACY_FILE_SUFFIX);
+    }
+
+    public Path getPath() {
+        return logPath;
+    }
+
+    // Есть ли сохраненный список гостей (журнал или файл прежнего формата)
+    public boolean exists() {
+        return Files.exists(logPath) || Files.exists(legacyPath);
+    }
+
+    // Загрузка списка гостей: воспроизводим журнал, оборванный хвост обрезаем.
+    // Если журнала нет - читаем файл прежнего формата и сразу записываем его содержимое в журнал
+    public synchronized List<String> load() throws IOException {
+        closeChannel();
+        logBytes = 0;
+        liveBytes = 0;
+        torn = false; // Оборванный хвост обрежет воспроизведение
+        if (!Files.exists(logPath)) {
+            if (!Files.exists(legacyPath)) {
+                return new ArrayList<>();
+            }
+            List<String> guests = readLegacy();
+            compact(guests);
+            log.info("Список гостей {} перенесен в журнал {}: {} гостей", legacyPath, logPath, guests.size());
+            return guests;
+        }
+        List<String> guests = new ArrayList<>();
+        long validLength = replay(guests);
+        if (validLength < 0) {
+            compact(guests); // Заголовок не успел записаться - начинаем журнал заново
+        } else if (validLength < Files.size(logPath)) {
+            log.warn("Журнал гостей {} обрезан до последней целой записи: {} байт", logPath, validLength);
+            openChannel();
+            channel.truncate(validLength);
+            channel.position(validLength);
+            channel.force(true);
+            logBytes = validLength;
+        }
+        if (logBytes > COMPACT_MIN_BYTES && logBytes > 2 * compactedBytes()) {
+            compact(guests);
+        }
+        return guests;
+    }
+
+    // Дописываем добавленных гостей одним кадром. allGuests - весь список после добавления:
+    // из него строится сжатый журнал, если пора сжимать
+    public synchronized void append(List<String> names, List<String> allGuests) throws IOException {
+        if (names.isEmpty()) {
+            return;
+        }
+        byte[] frame = frame(encode(names));
+        if (torn) {
+            compact(allGuests);
+            return;
+        }
+        if (channel == null) {
+            if (!Files.exists(logPath)) {
+                compact(allGuests); // Первая запись создает журнал сразу со всем списком
+                return;
+            }
+            openChannel();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            discardTornFrame(e);
+            throw e;
+        }
+        logBytes += frame.length;
+        for (String name : names) {
+            liveBytes += encodedLength(name);
+        }
+        if (logBytes > COMPACT_MIN_BYTES && logBytes > 2 * compactedBytes()) {
+            compact(allGuests);
+        }
+    }
+
+    // Очистка списка: журнал заменяется пустым
+    public synchronized void clear() throws IOException {
+        if (channel != null || Files.exists(logPath)) {
+            compact(new ArrayList<>());
+        }
+    }
+
+    // Сжатие: весь список записывается одним кадром во временный файл, который атомарно заменяет журнал
+    public synchronized void compact(List<String> guests) throws IOException {
+        closeChannel();
+        Path temp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            byte[] frame = guests.isEmpty() ? new byte[0] : frame(encode(guests));
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + frame.length);
+            buffer.putInt(MAGIC).put(frame).flip();
+            while (buffer.hasRemaining()) {
+                tempChannel.write(buffer);
+            }
+            tempChannel.force(true);
+            logBytes = HEADER_SIZE + frame.length;
+        }
+        Files.move(temp, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        torn = false;
+        liveBytes = 0;
+        for (String guest : guests) {
+            liveBytes += encodedLength(guest);
+        }
+        log.debug("Журнал гостей {} сжат: {} гостей, {} байт", logPath, guests.size(), logBytes);
+    }
+
+    synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            log.warn("Ошибка при закрытии журнала гостей {}: {}", logPath, e.getMessage());
+        }
+    }
+
+    // Возвращает длину корректной части журнала или -1, если заголовок не записан
+    private long replay(List<String> guests) throws IOException {
+        byte[] data = Files.readAllBytes(logPath); // Журнал читается целиком: одна последовательная операция
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Неверный формат журнала гостей " + logPath);
+        }
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= FRAME_OVERHEAD) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(data, buffer.position(), length);
+            if (buffer.getInt(buffer.position() + length) != (int) crc.getValue()) {
+                buffer.position(start);
+                break;
+            }
+            apply(data, buffer.position(), length, guests);
+            buffer.position(buffer.position() + length + Integer.BYTES);
+        }
+        logBytes = buffer.position();
+        return logBytes;
+    }
+
+    private void apply(byte[] data, int offset, int length, List<String> guests) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+        byte op = in.readByte();
+        if (op != OP_ADD) {
+            log.warn("Неизвестная операция в журнале гостей {}: {}", logPath, op);
+            return;
+        }
+        for (int count = in.readInt(); count > 0; count--) {
+            String name = in.readUTF();
+            guests.add(name);
+            liveBytes += encodedLength(name);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> readLegacy() throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(legacyPath))) {
+            return new ArrayList<>((List<String>) in.readObject());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Неверный формат файла гостей " + legacyPath, e);
+        } catch (EOFException e) {
+            return new ArrayList<>(); // Пустой или оборванный файл прежнего формата
+        }
+    }
+
+    // Ошибка записи или fsync: обрезаем журнал до последнего целого кадра, иначе следующие кадры легли бы
+    // после мусора, а загрузка остановилась бы на нем и потеряла всех гостей, добавленных позже
+    private void discardTornFrame(IOException cause) {
+        try {
+            channel.truncate(logBytes);
+            channel.position(logBytes);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            torn = true;
+            try {
+                closeChannel();
+            } catch (IOException closeError) {
+                cause.addSuppressed(closeError);
+            }
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        logBytes = channel.size();
+        channel.position(logBytes);
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Размер журнала, если переписать весь список одним кадром
+    private long compactedBytes() {
+        return HEADER_SIZE + FRAME_OVERHEAD + 1 + Integer.BYTES + liveBytes;
+    }
+
+    private static byte[] encode(List<String> names) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * names.size() + 8);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_ADD);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать запись журнала гостей.", e);
+        }
+    }
+
+    // Формат кадра: длина, данные, CRC32 данных - как в журнале финансовых записей
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    // Размер имени в формате writeUTF: 2 байта длины и модифицированный UTF-8
+    private static int encodedLength(String name) {
+        int length = 2;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+}
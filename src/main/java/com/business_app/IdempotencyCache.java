@@ -0,0 +1,159 @@
+package com.business_app;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Кэш результатов операций по ключу идемпотентности: повтор запроса с тем же ключом не выполняет
+// операцию снова, а возвращает первый результат (поиск - O(1) в ConcurrentHashMap).
+// Если повтор пришел, пока первый запрос еще выполняется, он дожидается его результата.
+// Ключ помнится ttl; у всех ключей одинаковый срок, поэтому очередь в порядке добавления - это и очередь
+// истечения: устаревшие ключи и ключи сверх maxSize удаляются с головы очереди без обхода кэша.
+// Ключ выполняющейся операции не вытесняется ни по размеру, ни по сроку: иначе повтор выполнил бы ее второй раз.
+// Ошибки не запоминаются: после исключения тот же ключ можно повторить.
+public class IdempotencyCache<V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public IdempotencyCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    // Время задает nanoClock (в наносекундах) - для тестов
+    public IdempotencyCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть больше 0.");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Срок хранения ключей должен быть положительным.");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    // Выполнение operation один раз на ключ. request описывает параметры запроса: повтор ключа
+    // с другими параметрами - ошибка клиента, а не повтор
+    public V execute(String key, String request, Supplier<V> operation) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ключ идемпотентности не может быть пустым.");
+        }
+        long now = nanoClock.getAsLong();
+        evict(now);
+        while (true) {
+            // Обычно ключ новый (повторы редки), поэтому сразу вставляем - один поиск в таблице вместо двух
+            Entry<V> created = new Entry<>(key, request, now);
+            Entry<V> existing = entries.putIfAbsent(key, created);
+            if (existing == null) {
+                size.incrementAndGet();
+                order.add(created);
+                return run(created, operation);
+            }
+            if (existing.done && now - existing.createdNanos >= ttlNanos) {
+                remove(existing); // Ключ устарел, но еще не вытеснен - выполняем заново
+                continue;
+            }
+            if (!existing.request.equals(request)) {
+                throw new IllegalArgumentException("Ключ " + key + " уже использован для другого запроса: " + existing.request);
+            }
+            return await(existing);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private V run(Entry<V> entry, Supplier<V> operation) {
+        try {
+            V result = operation.get();
+            entry.complete(result, null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            remove(entry); // Неудачу не запоминаем: повтор выполнит операцию заново
+            entry.complete(null, e);
+            throw e;
+        }
+    }
+
+    // Результат первого запроса; если он еще выполняется - ждем его (редкий случай одновременного повтора)
+    private V await(Entry<V> entry) {
+        if (!entry.done) {
+            synchronized (entry) {
+                boolean interrupted = false;
+                while (!entry.done) {
+                    try {
+                        entry.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (entry.failure instanceof RuntimeException) {
+            throw (RuntimeException) entry.failure;
+        }
+        if (entry.failure != null) {
+            throw (Error) entry.failure;
+        }
+        return entry.result;
+    }
+
+    // Удаление с головы очереди: сначала истекшие ключи, затем самые старые сверх maxSize.
+    // Вытеснение останавливается на еще выполняющейся операции - кэш временно превышает maxSize
+    // не больше чем на число одновременно выполняющихся операций
+    private void evict(long now) {
+        Entry<V> head;
+        while ((head = order.peek()) != null && (size.get() > maxSize || now - head.createdNanos >= ttlNanos)) {
+            if (!head.done) {
+                break;
+            }
+            if (order.remove(head)) {
+                remove(head);
+            }
+        }
+    }
+
+    private void remove(Entry<V> entry) {
+        if (entries.remove(entry.key, entry)) {
+            size.decrementAndGet();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final String key;
+        private final String request;
+        private final long createdNanos;
+        private V result;
+        private Throwable failure;
+        private volatile boolean done; // Запись done публикует result и failure
+
+        private Entry(String key, String request, long createdNanos) {
+            this.key = key;
+            this.request = request;
+            this.createdNanos = createdNanos;
+        }
+
+        private void complete(V result, Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+            synchronized (this) {
+                done = true;
+                notifyAll();
+            }
+        }
+    }
+}
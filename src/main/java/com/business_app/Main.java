@@ -18,7 +18,15 @@ public class Main {
         MovieManager movieManager = new MovieManager();
         ContractManager contractManager = new ContractManager();
         PremiereManager premiereManager = new PremiereManager();
-        FinanceManager financeManager = new FinanceManager();
+        FinanceManager financeManager;
+        try {
+            financeManager = new FinanceManager();
+        } catch (IllegalStateException e) {
+            System.out.println("Финансовые записи недоступны: " + e.getMessage());
+            return;
+        }
+        CartPurchaseService cartPurchaseService = new CartPurchaseService(financeManager);
+        TicketSalesService ticketSalesService = new TicketSalesService(financeManager);
 
         Scanner scanner = new Scanner(System.in);
 
@@ -42,7 +50,9 @@ public class Main {
             System.out.println("16. Показать финансовый отчет");
             System.out.println("17. Добавить отзыв");
             System.out.println("18. Показать отзывы");
-            System.out.println("19. Выйти");
+            System.out.println("19. Групповая покупка билетов на несколько премьер");
+            System.out.println("20. Отметить гостей на входе");
+            System.out.println("21. Выйти");
 
             System.out.print("Выберите действие: ");
             int choice;
@@ -418,16 +428,16 @@ public class Main {
                         }
                     }
 
-                    double amount = -1;
-                    while (amount < 0) {
+                    long amountCents = -1;
+                    while (amountCents < 0) {
                         System.out.print("Введите сумму: ");
                         String amountInput = scanner.nextLine().trim();
                         try {
-                            amount = Double.parseDouble(amountInput);
-                            if (amount < 0) {
+                            amountCents = Money.parse(amountInput); // Сумма разбирается точно, в центах
+                            if (amountCents < 0) {
                                 System.out.println("Ошибка: Сумма не может быть отрицательной.");
                             }
-                        } catch (NumberFormatException exception) {
+                        } catch (IllegalArgumentException exception) {
                             System.out.println("Ошибка: Введите корректное число.");
                         }
                     }
@@ -449,8 +459,8 @@ public class Main {
                         }
                     }
                     if (date != null) {
-                        financeManager.addFinanceRecord(new FinanceRecord(UUID.randomUUID().toString().substring(0, 5),
-                                type, amount, description, date));
+                        financeManager.addFinanceRecord(FinanceRecord.ofCents(financeManager.nextRecordId(),
+                                type, amountCents, description, date, FinanceCategory.MANUAL, null));
                         System.out.println("Финансовая запись успешно добавлена.");
                     }
                     break;
@@ -471,10 +481,10 @@ public class Main {
                             System.out.println("Бюджет для премьеры " + premiereToCheck.getMovieTitle() + ": " + premiereToCheck.getBudget() + " добавлен.");
                             // Запись в финансовый менеджер
                             financeManager.addFinanceRecord(new FinanceRecord(
-                                    UUID.randomUUID().toString().substring(0, 5), FinanceType.INCOME, budgetToAdd,
-                                    "Добавление бюджета к премьере: " + premiereToCheck.getMovieTitle(), LocalDate.now()
+                                    financeManager.nextRecordId(), FinanceType.INCOME, budgetToAdd,
+                                    "Добавление бюджета к премьере: " + premiereToCheck.getMovieTitle(), LocalDate.now(),
+                                    FinanceCategory.PREMIERE_BUDGET, premiereToCheck.getId()
                             ));
-                            financeManager.generateFinanceReport(true);
                         } else {
                             System.out.println("Ошибка: бюджет для премьеры не может быть отрицательным или нулевым.");
                         }
@@ -505,23 +515,29 @@ public class Main {
                     Premiere premiere = premiereManager.findPremiereById(premiereIdForTickets);
 
                     if (premiere != null) {
-                        double ticketPrice = premiere.getTicketPrice();
-                        double totalIncome = ticketPrice * ticketsToSell;
-
-                        // Пробуем продать билеты через метод sellTickets в Premiere
-                        if (premiere.sellTickets(ticketsToSell)) {
-                            System.out.println("Билеты успешно проданы." + totalIncome);
-
-                            // Запись о продаже в финансовый менеджер
-                            financeManager.addFinanceRecord(new FinanceRecord(
-                                    UUID.randomUUID().toString().substring(0, 5), FinanceType.INCOME, totalIncome,
-                                    "Продажа билетов на премьеру: " + premiere.getMovieTitle(), LocalDate.now()
-                            ));
-
-                            // Экспортируем финансы в CSV после продажи билетов
-                            financeManager.generateFinanceReport(false);
+                        // Продажа и финансовая запись - одна операция сервиса: если запись не удалась, билеты не проданы.
+                        // Каждая продажа из меню - новый запрос, поэтому ключ идемпотентности новый
+                        TicketSaleResult sale;
+                        try {
+                            sale = ticketSalesService.sellTickets(UUID.randomUUID().toString(), premiere, ticketsToSell);
+                        } catch (RuntimeException e) {
+                            System.out.println("Ошибка при продаже билетов: " + e.getMessage());
+                            break;
+                        }
+                        if (sale.isCompleted()) {
+                            System.out.println("Билеты успешно проданы." + Money.format(sale.getAmountCents()));
                         } else {
                             System.out.println("Ошибка при продаже билетов. Недостаточно билетов.");
+                            System.out.print("Записаться в лист ожидания? Введите имя покупателя (пустая строка - нет): ");
+                            String waitingBuyer = scanner.nextLine();
+                            if (!waitingBuyer.trim().isEmpty()) {
+                                WaitlistEntry entry = ticketSalesService.joinWaitlist(premiere, waitingBuyer, ticketsToSell,
+                                        allocated -> System.out.println("Покупатель " + allocated.getBuyer() + " получил "
+                                                + allocated.getCount() + " билетов на премьеру " + premiere.getMovieTitle()
+                                                + " из листа ожидания."));
+                                System.out.println("Покупатель " + waitingBuyer + " в листе ожидания (статус: " + entry.getStatus()
+                                        + ", заявок в очереди: " + premiere.getWaitlistSize() + ").");
+                            }
                         }
                     } else {
                         System.out.println("Премьера с таким ID не найдена.");
@@ -539,24 +555,13 @@ public class Main {
                     Premiere premiereForReturn = premiereManager.findPremiereById(premiereIdForReturn);
 
                     if (premiereForReturn != null) {
-                        double ticketPrice = premiereForReturn.getTicketPrice();
-                        double totalRefund = ticketPrice * ticketsToReturn;
-
                         try {
-                            // Возвращаем билеты для найденной премьеры
-                            premiereForReturn.returnTickets(ticketsToReturn, premiereForReturn.getTicketSold(), true);
-                            System.out.println("Возвращено билетов на сумму: " + totalRefund);
-
-                            // Запись о возврате в финансовый менеджер
-                            financeManager.addFinanceRecord(new FinanceRecord(
-                                    UUID.randomUUID().toString().substring(0, 5), FinanceType.EXPENSE, totalRefund,
-                                    "Возврат билетов на премьеру: " + premiereForReturn.getMovieTitle(), LocalDate.now()
-                            ));
-
-                            // Экспортируем финансы в CSV после возврата билетов
-                            financeManager.generateFinanceReport(true);
-                        } catch (IllegalArgumentException e) {
-                            // Если возникла ошибка (например, возвращаем больше билетов, чем было продано), выводим сообщение
+                            // Возврат билетов и запись о расходе - одна операция сервиса
+                            TicketSaleResult refund = ticketSalesService.returnTickets(UUID.randomUUID().toString(),
+                                    premiereForReturn, ticketsToReturn);
+                            System.out.println("Возвращено билетов на сумму: " + Money.format(refund.getAmountCents()));
+                        } catch (RuntimeException e) {
+                            // Например, возвращаем больше билетов, чем было продано, или запись не сохранилась
                             System.out.println("Ошибка: " + e.getMessage());
                         }
                     } else {
@@ -567,6 +572,17 @@ public class Main {
                 case 16:// Генерация отчета
                     if (financeManager.hasRecords()) {
                         financeManager.generateFinanceReport(true);
+                        List<PremiereProfitAndLoss> topPremieres = financeManager.getTopPremieresByNet(5);
+                        if (!topPremieres.isEmpty()) {
+                            System.out.println("Самые прибыльные премьеры:");
+                            for (PremiereProfitAndLoss result : topPremieres) {
+                                System.out.println("Премьера " + result.getPremiereId()
+                                        + ": бюджет " + Money.format(result.getBudgetCents())
+                                        + ", билеты " + Money.format(result.getTicketIncomeCents())
+                                        + ", возвраты " + Money.format(result.getRefundsCents())
+                                        + ", итого " + Money.format(result.getNetCents()));
+                            }
+                        }
                     } else {
                         System.out.println("Отчет не может быть сгенерирован, так как нет записей для анализа.");
                     }
@@ -630,8 +646,73 @@ public class Main {
                     }
                     break;
 
-                case 19:
+                case 19: // Групповая покупка: билеты на все премьеры корзины или ни одного
+                    TicketCart cart = new TicketCart();
+                    while (true) {
+                        System.out.print("Введите ID премьеры (пустая строка - оформить покупку): ");
+                        String cartPremiereId = scanner.nextLine();
+                        if (cartPremiereId.trim().isEmpty()) {
+                            break;
+                        }
+                        Premiere cartPremiere = premiereManager.findPremiereById(cartPremiereId);
+                        if (cartPremiere == null) {
+                            System.out.println("Премьера с таким ID не найдена.");
+                            continue;
+                        }
+                        System.out.print("Введите количество билетов: ");
+                        try {
+                            int cartTickets = scanner.nextInt();
+                            scanner.nextLine();
+                            cart.add(cartPremiere, cartTickets);
+                        } catch (InputMismatchException e) {
+                            scanner.nextLine();
+                            System.out.println("Ошибка: Введите корректное число.");
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Ошибка: " + e.getMessage());
+                        }
+                    }
+                    if (cart.isEmpty()) {
+                        System.out.println("Корзина пуста.");
+                        break;
+                    }
+                    CartPurchaseResult cartResult = cartPurchaseService.purchase(cart);
+                    if (cartResult.isPurchased()) {
+                        System.out.println("Куплено билетов: " + cart.getTotalTickets() + " на сумму " + Money.format(cart.getTotalCents()));
+                    } else {
+                        System.out.println("Покупка отменена: недостаточно билетов на премьеру " + cartResult.getFailedPremiereId());
+                    }
+                    break;
+
+                case 20: // Проверка гостей на входе: имена сканируются одно за другим
+                    System.out.print("Введите ID премьеры: ");
+                    Premiere doorPremiere = premiereManager.findPremiereById(scanner.nextLine());
+                    if (doorPremiere == null) {
+                        System.out.println("Премьера с таким ID не найдена.");
+                        break;
+                    }
+                    while (true) {
+                        System.out.print("Введите имя гостя (пустая строка - завершить): ");
+                        String arrivingGuest = scanner.nextLine();
+                        if (arrivingGuest.trim().isEmpty()) {
+                            break;
+                        }
+                        switch (doorPremiere.checkInGuest(arrivingGuest)) {
+                            case CHECKED_IN:
+                                System.out.println("Гость " + arrivingGuest + " прошел.");
+                                break;
+                            case ALREADY_CHECKED_IN:
+                                System.out.println("Гость " + arrivingGuest + " уже прошел ранее.");
+                                break;
+                            default:
+                                System.out.println("Гостя " + arrivingGuest + " нет в списке.");
+                        }
+                    }
+                    System.out.println("Гостей пришло: " + doorPremiere.getArrivedGuestCount() + " из " + doorPremiere.getInvitedGuestCount());
+                    break;
+
+                case 21:
                     System.out.println("Выход из приложения...");
+                    financeManager.close(); // Дописываем журнал финансовых записей на диск
                     scanner.close();
                     return;
 
@@ -0,0 +1,47 @@
+package com.business_app;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Отчет в памяти: байты копируются в растущий массив. reset() очищает содержимое, сохраняя емкость
+public class MemoryReportSink implements ReportSink {
+
+    private final ReportFormat format;
+    private byte[] data = new byte[4096];
+    private int size;
+
+    public MemoryReportSink(ReportFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public ReportFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        if (size + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+        }
+        System.arraycopy(bytes, offset, data, size, length);
+        size += length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, 0, size, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.business_app;
+
+// Денежные суммы в виде long в минимальных единицах валюты (центах) с фиксированным масштабом SCALE.
+// Сложение и умножение на количество выполняются над long: точно и без создания объектов.
+// Перевод в double или строку нужен только на границах: вывод на экран, CSV, старые API с double.
+public final class Money {
+
+    public static final int SCALE = 2; // Знаков после запятой
+    public static final long MINOR_UNITS = 100; // Центов в единице валюты
+
+    private Money() {
+    }
+
+    // Перевод суммы из double в центы (округление до ближайшего цента)
+    public static long toMinor(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount) || Math.abs(amount) >= Long.MAX_VALUE / MINOR_UNITS) {
+            throw new IllegalArgumentException("Некорректная сумма: " + amount);
+        }
+        return Math.round(amount * MINOR_UNITS);
+    }
+
+    // Перевод центов в double для вывода и старых API
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_UNITS;
+    }
+
+    // Сложение с проверкой переполнения
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    // Стоимость quantity единиц по цене price (в центах)
+    public static long multiply(long price, long quantity) {
+        return Math.multiplyExact(price, quantity);
+    }
+
+    // Разбор десятичной строки ("1234.5", "-0.07", "10") в центы без промежуточного double.
+    // Лишние знаки после запятой округляются половиной вверх; экспоненциальная запись разбирается через double.
+    public static long parse(CharSequence text) {
+        int length = text == null ? 0 : text.length();
+        int start = 0;
+        while (start < length && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (length > start && text.charAt(length - 1) == ' ') {
+            length--;
+        }
+        if (start == length) {
+            throw new IllegalArgumentException("Сумма не может быть пустой.");
+        }
+        boolean negative = text.charAt(start) == '-';
+        int i = negative || text.charAt(start) == '+' ? start + 1 : start;
+        long units = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        boolean digits = false;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (!point) {
+                    if (units > (Long.MAX_VALUE - (c - '0')) / 10) {
+                        throw new IllegalArgumentException("Слишком большая сумма: " + text);
+                    }
+                    units = units * 10 + (c - '0');
+                } else if (fractionDigits < SCALE) {
+                    fraction = fraction * 10 + (c - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == SCALE) {
+                    roundUp = c >= '5'; // Первый отброшенный знак определяет округление
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return toMinor(parseDouble(text.subSequence(start, length).toString()));
+            }
+        }
+        if (!digits) {
+            throw new IllegalArgumentException("Некорректная сумма: " + text);
+        }
+        for (int d = Math.min(fractionDigits, SCALE); d < SCALE; d++) {
+            fraction *= 10;
+        }
+        try {
+            long minor = Math.addExact(Math.multiplyExact(units, MINOR_UNITS), fraction + (roundUp ? 1 : 0));
+            return negative ? -minor : minor;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Слишком большая сумма: " + text);
+        }
+    }
+
+    // Форматирование центов: "1234.50", "-0.07"
+    public static String format(long minor) {
+        StringBuilder builder = new StringBuilder(24);
+        appendTo(builder, minor);
+        return builder.toString();
+    }
+
+    // Форматирование центов в существующий буфер (без создания промежуточных строк)
+    public static void appendTo(StringBuilder builder, long minor) {
+        if (minor < 0) {
+            builder.append('-');
+        }
+        // Делим до смены знака: -Long.MIN_VALUE не помещается в long, а частное и остаток помещаются
+        builder.append(Math.abs(minor / MINOR_UNITS)).append('.');
+        long cents = Math.abs(minor % MINOR_UNITS);
+        if (cents < 10) {
+            builder.append('0');
+        }
+        builder.append(cents);
+    }
+
+    private static double parseDouble(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная сумма: " + text);
+        }
+    }
+}
@@ -15,7 +15,7 @@ public class Movie {
     private LocalDate startDate;              // Дата начала показа фильма
     private LocalDate endDate;                // Дата окончания показа фильма
     private MovieStatus status;               // Статус фильма (PLANNED, IN_PROGRESS, COMPLETED)
-    private double budget;                    // Бюджет фильма
+    private long budgetCents;                 // Бюджет фильма в центах
     private List<String> producer;            // Список продюсеров фильма
     private List<String> actors;              // Список актёров фильма
 
@@ -35,7 +35,7 @@ public class Movie {
         this.startDate = startDate;
         this.endDate = endDate;
         this.status = status;
-        this.budget = budget;
+        this.budgetCents = Money.toMinor(budget);
         this.producer = producer;
         this.actors = actors;
     }
@@ -66,7 +66,11 @@ public class Movie {
     }
 
     public double getBudget() {
-        return budget;
+        return Money.toMajor(budgetCents);
+    }
+
+    public long getBudgetCents() {
+        return budgetCents;
     }
 
     public List<String> getProducer() {
@@ -137,7 +141,7 @@ public class Movie {
             System.out.println("Бюджет не может быть отрицательным или меньше 0.");
             return;
         }
-        this.budget = budget;
+        this.budgetCents = Money.toMinor(budget);
     }
 
     public void setProducer(List<String> producer) {
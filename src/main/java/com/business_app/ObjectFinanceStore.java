@@ -0,0 +1,82 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Хранилище, где каждая запись - отдельный объект FinanceRecord.
+// Первичный индекс ID -> запись; LinkedHashMap сохраняет порядок добавления для отчетов.
+public class ObjectFinanceStore implements FinanceStore {
+
+    private final Map<String, FinanceRecord> records = new LinkedHashMap<>();
+    private final Map<FinanceCategory, Map<String, FinanceRecord>> recordsByCategory = new EnumMap<>(FinanceCategory.class);
+
+    public ObjectFinanceStore() {
+        for (FinanceCategory category : FinanceCategory.values()) {
+            recordsByCategory.put(category, new LinkedHashMap<>());
+        }
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return records.containsKey(id);
+    }
+
+    @Override
+    public FinanceRecord get(String id) {
+        return records.get(id);
+    }
+
+    @Override
+    public void add(FinanceRecord record) {
+        records.put(record.getId(), record);
+        recordsByCategory.get(record.getCategory()).put(record.getId(), record);
+    }
+
+    @Override
+    public FinanceRecord replace(FinanceRecord record) {
+        FinanceRecord previous = records.put(record.getId(), record); // Позиция в порядке добавления сохраняется
+        if (previous != null) {
+            recordsByCategory.get(previous.getCategory()).remove(previous.getId());
+        }
+        recordsByCategory.get(record.getCategory()).put(record.getId(), record);
+        return previous;
+    }
+
+    @Override
+    public FinanceRecord remove(String id) {
+        FinanceRecord removed = records.remove(id);
+        if (removed != null) {
+            recordsByCategory.get(removed.getCategory()).remove(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void forEach(Consumer<FinanceRecord> action) {
+        records.values().forEach(action);
+    }
+
+    @Override
+    public void forEachWhile(Predicate<FinanceRecord> action) {
+        for (FinanceRecord record : records.values()) {
+            if (!action.test(record)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<FinanceRecord> getByCategory(FinanceCategory category) {
+        return new ArrayList<>(recordsByCategory.get(category).values());
+    }
+}
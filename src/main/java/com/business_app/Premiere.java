@@ -1,12 +1,12 @@
 package com.business_app;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -16,6 +16,8 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 @Getter
 @Setter
@@ -29,13 +31,42 @@ public class Premiere implements Serializable {
     private String movieTitle;
     private ZonedDateTime date;
     private String location;
-    private int ticketCount; // кол-во доступных билетов
     private int initialTicketCount; // Исходное количество билетов
-    private int ticketSold;// кол-во проданных билетов
-    private double budget;
+    // Проданные и доступные билеты: один атомарный счетчик или корзины по ядрам (TicketInventoryMode)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile TicketInventory tickets;
+    // Схема зала для продажи мест с рассадкой; null - продаются билеты без мест
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile SeatMap seatMap;
+    // Удержанные на время оформления билеты: учет снял их с продажи, но не считает проданными,
+    // поэтому возврат не может списать удержанные билеты
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final AtomicInteger heldTickets = new AtomicInteger();
+    // Лист ожидания распроданной премьеры: возвращенные билеты сначала получают ожидающие покупатели.
+    // Не сериализуется (заявки держат обещания покупателям), после чтения премьеры лист ожидания пуст
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient TicketWaitlist waitlist = newWaitlist();
+    private long budgetCents; // Бюджет в центах
     private List<String> guestList;// Список гостей
+    // Индекс гостей для проверки на входе: без повторов, поиск и отметка о прибытии за O(1).
+    // Не сериализуется: после чтения премьеры строится заново по списку гостей, отметки о прибытии сбрасываются
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient GuestIndex guestIndex = new GuestIndex();
+    // Журнал гостей на диске (<id>_guests.log): добавления дописываются в конец, а не переписывают весь список
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient GuestLog guestLog;
     private List<String> reviews;
-    private double ticketPrice; // Стоимость билета
+    private long ticketPriceCents; // Стоимость билета в центах
     private int minAgeForAdmission; // Минимальный возраст для посещения премьеры
 
 
@@ -44,13 +75,15 @@ public class Premiere implements Serializable {
         this.movieTitle = movieTitle;
         this.date = date;
         this.location = location;
-        this.ticketCount = ticketCount;
+        if (ticketCount < 0) {
+            throw new IllegalArgumentException("Количество билетов не может быть отрицательным.");
+        }
+        this.tickets = new AtomicTicketInventory(0, ticketCount); // Ничего не продано, все билеты доступны
         this.initialTicketCount = ticketCount; // Начальное количество билетов
-        this.ticketSold = 0;
-        this.budget = 0;
+        this.budgetCents = 0;
         this.guestList = new ArrayList<>();
         this.reviews = new ArrayList<>();
-        this.ticketPrice = 10;
+        this.ticketPriceCents = 10 * Money.MINOR_UNITS;
         this.minAgeForAdmission = 18;
 
         // Вызов метода setDate для корректного парсинга даты
@@ -73,13 +106,182 @@ public class Premiere implements Serializable {
             throw new IllegalArgumentException("Ошибка: Некорректный формат даты. Требуется: " + DATE_FORMAT);
         }
     }
-    // Метод для установки количества билетов
+    // Метод для установки количества доступных билетов (проданные не меняются)
     public void setTicketCount(int ticketCount) {
         if (ticketCount < 0) {
             throw new IllegalArgumentException("Количество билетов не может быть отрицательным.");
         }
-        this.ticketCount = ticketCount;
+        tickets.setAvailable(ticketCount);
+    }
 
+    // Количество доступных для продажи билетов
+    @ToString.Include(name = "ticketCount")
+    public int getTicketCount() {
+        return tickets.getAvailable();
+    }
+
+    // Количество проданных (оплаченных) билетов; удержанные не входят
+    @ToString.Include(name = "ticketSold")
+    public int getTicketSold() {
+        return tickets.getSold();
+    }
+
+    // Количество удержанных (еще не оплаченных) билетов
+    @ToString.Include(name = "ticketHeld")
+    public int getTicketHeld() {
+        return heldTickets.get();
+    }
+
+    // Метод для установки количества проданных билетов: общее число мест (продано + доступно) сохраняется
+    public void setTicketSold(int ticketSold) {
+        if (ticketSold < 0) {
+            throw new IllegalArgumentException("Количество проданных билетов не может быть отрицательным.");
+        }
+        if (!tickets.setSold(ticketSold)) {
+            throw new IllegalArgumentException("Продано не может быть больше, чем всего билетов.");
+        }
+    }
+
+    // Способ учета билетов: ATOMIC (по умолчанию) или SHARDED для массовых продаж.
+    // Текущие счетчики переносятся в новый учет; переключать следует до начала продаж
+    public synchronized void setTicketInventoryMode(TicketInventoryMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Способ учета билетов должен быть указан.");
+        }
+        if (mode == getTicketInventoryMode()) {
+            return;
+        }
+        TicketInventory current = tickets;
+        tickets = mode == TicketInventoryMode.SHARDED
+                ? new ShardedTicketInventory(current.getSold(), current.getAvailable())
+                : new AtomicTicketInventory(current.getSold(), current.getAvailable());
+    }
+
+    public TicketInventoryMode getTicketInventoryMode() {
+        return tickets instanceof ShardedTicketInventory ? TicketInventoryMode.SHARDED : TicketInventoryMode.ATOMIC;
+    }
+
+    // Включение продажи мест с рассадкой: зал rows × seatsPerRow, количество билетов становится равным числу мест.
+    // Включать следует до начала продаж
+    public synchronized SeatMap enableSeatMap(int rows, int seatsPerRow) {
+        if (getTicketSold() > 0) {
+            throw new IllegalArgumentException("Схему зала нельзя включить после начала продаж.");
+        }
+        SeatMap map = new SeatMap(rows, seatsPerRow);
+        tickets.setAvailable(map.getCapacity());
+        seatMap = map;
+        return map;
+    }
+
+    // Продажа count соседних мест в лучших доступных рядах (zoneName == null - по всему залу):
+    // места удерживаются и сразу становятся проданными. Возвращает проданные места или null
+    public SeatBlock sellSeats(int count, String zoneName) {
+        if (count <= 0) {
+            logger.warning("Ошибка при продаже мест: количество мест должно быть положительным.");
+            return null;
+        }
+        SeatBlock block = holdSeats(count, zoneName);
+        if (block != null) {
+            confirmHeldTickets(count);
+        }
+        return block;
+    }
+
+    // Удержание count соседних мест: сначала удерживаются билеты, затем бронируются места; если подходящих
+    // соседних мест нет, удержание снимается. Завершается confirmHeldTickets (оплачено) или releaseHeldSeats.
+    // Возвращает удержанные места или null
+    public SeatBlock holdSeats(int count, String zoneName) {
+        SeatMap map = seatMap;
+        if (map == null) {
+            throw new IllegalArgumentException("Для премьеры " + id + " схема зала не задана.");
+        }
+        if (!holdTickets(count)) {
+            logger.warning("Ошибка при продаже мест: недостаточно билетов для продажи " + count + " мест.");
+            return null;
+        }
+        SeatBlock block;
+        try {
+            block = map.reserveBest(count, zoneName);
+        } catch (IllegalArgumentException e) {
+            releaseHeldTickets(count);
+            throw e;
+        }
+        if (block == null) {
+            releaseHeldTickets(count);
+            logger.warning("Ошибка при продаже мест: нет " + count + " соседних свободных мест.");
+        }
+        return block;
+    }
+
+    // Снятие удержания мест: места освобождаются, билеты снова доступны
+    public void releaseHeldSeats(SeatBlock block) {
+        seatMap.release(block);
+        releaseHeldTickets(block.getCount());
+    }
+
+    // Стоимость мест в центах: по цене ценовой зоны их ряда, вне зон - по цене билета премьеры
+    public long getSeatPriceCents(SeatBlock block) {
+        SeatMap map = seatMap;
+        SeatZone zone = map == null ? null : map.getZone(block.getRow());
+        return Money.multiply(zone == null ? ticketPriceCents : zone.getPriceCents(), block.getCount());
+    }
+
+    public SeatBlock sellSeats(int count) {
+        return sellSeats(count, null);
+    }
+
+    // Удержание count билетов на время оформления: списываются из доступных так же атомарно, как при продаже,
+    // но проданными не считаются. Удержание завершается confirmHeldTickets (оплачено) или releaseHeldTickets
+    // (отменено/истекло); счетчик удержанных уменьшается первым, поэтому одно удержание не завершить дважды
+    public boolean holdTickets(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Количество билетов должно быть положительным.");
+        }
+        if (waitlist.hasWaiters() || !tickets.tryHold(count)) {
+            return false;
+        }
+        heldTickets.addAndGet(count);
+        return true;
+    }
+
+    // Удержанные билеты оплачены и становятся проданными
+    public void confirmHeldTickets(int count) {
+        takeHeld(count);
+        tickets.confirmHeld(count);
+    }
+
+    // Удержанные билеты возвращаются в продажу
+    public void releaseHeldTickets(int count) {
+        takeHeld(count);
+        tickets.releaseHeld(count);
+        waitlist.drain(); // Снятые с удержания билеты - первым в листе ожидания
+    }
+
+    private void takeHeld(int count) {
+        int current;
+        do {
+            current = heldTickets.get();
+            if (count <= 0 || count > current) {
+                throw new IllegalArgumentException("Удержано только " + current + " билетов, а не " + count + ".");
+            }
+        } while (!heldTickets.compareAndSet(current, current - count));
+    }
+
+    // Возврат проданных мест: места освобождаются, билеты снова доступны
+    public void returnSeats(SeatBlock block) {
+        SeatMap map = seatMap;
+        if (map == null) {
+            throw new IllegalArgumentException("Для премьеры " + id + " схема зала не задана.");
+        }
+        map.release(block);
+        if (!tickets.tryReturn(block.getCount())) {
+            // Проданные билеты уже списал другой возврат: места снова занимаем, чтобы схема и счетчики не разошлись
+            if (!map.reserve(block)) {
+                logger.warning("Места " + block + " уже заняты другой продажей.");
+            }
+            throw new IllegalStateException("Ошибка при возврате мест: продано меньше " + block.getCount() + " билетов.");
+        }
+        waitlist.drain(); // Возвращенные билеты - первым в листе ожидания
     }
 
     public void setId(String id) {
@@ -89,6 +291,10 @@ public class Premiere implements Serializable {
         if (id.length() > 30) {
             throw new IllegalArgumentException("ID не может быть длиннее 30 символов.");
         }
+        if (guestLog != null && !id.equals(this.id)) {
+            guestLog.close();
+            guestLog = null;
+        }
         this.id = id;
     }
 
@@ -100,20 +306,45 @@ public class Premiere implements Serializable {
     }
 
     // Метод для добавления гостей с проверкой возраста и минимального возраста премьеры
-    public void addGuest(String guestName, int guestAge) {
-
-        if (guestName == null || guestName.trim().isEmpty()) {
-            logger.warning("Ошибка при добавлении гостя: Имя гостя не может быть пустым.");
+    public synchronized void addGuest(String guestName, int guestAge) {
+        if (!canAdmitGuest(guestName, guestAge)) {
             return;
         }
-        if (guestAge < minAgeForAdmission) {
-            logger.warning("Ошибка при добавлении гостя: Гость " + guestName + " должен быть старше " + minAgeForAdmission + " лет для посещения этой премьеры.");
+        if (!guestIndex.add(guestName)) {
+            logger.warning("Гость " + guestName + " уже есть в списке премьеры " + id + ".");
             return;
         }
         guestList.add(guestName); // Добавляем гостя в список
         System.out.println ("Гость " + guestName + " добавлен в список.");
 
-        saveGuestsToFile(); // Сохраняем гостей в файл
+        saveGuestsToFile(List.of(guestName)); // Дописываем гостя в журнал
+    }
+
+    // Метод для добавления пачки гостей (имя -> возраст): все прошедшие проверку гости
+    // записываются в журнал одной операцией, уже приглашенные пропускаются. Возвращает количество добавленных
+    public synchronized int addGuests(Map<String, Integer> guestsWithAge) {
+        List<String> admitted = new ArrayList<>();
+        for (Map.Entry<String, Integer> guest : guestsWithAge.entrySet()) {
+            if (guest.getValue() != null && canAdmitGuest(guest.getKey(), guest.getValue()) && guestIndex.add(guest.getKey())) {
+                admitted.add(guest.getKey());
+            }
+        }
+        guestList.addAll(admitted);
+        saveGuestsToFile(admitted);
+        System.out.println("В список гостей премьеры " + movieTitle + " добавлено: " + admitted.size());
+        return admitted.size();
+    }
+
+    private boolean canAdmitGuest(String guestName, int guestAge) {
+        if (guestName == null || guestName.trim().isEmpty()) {
+            logger.warning("Ошибка при добавлении гостя: Имя гостя не может быть пустым.");
+            return false;
+        }
+        if (guestAge < minAgeForAdmission) {
+            logger.warning("Ошибка при добавлении гостя: Гость " + guestName + " должен быть старше " + minAgeForAdmission + " лет для посещения этой премьеры.");
+            return false;
+        }
+        return true;
     }
 
     // Метод для проверки, можем ли мы продать указанное количество билетов
@@ -122,21 +353,28 @@ public class Premiere implements Serializable {
             logger.warning("Ошибка: Количество билетов не может быть отрицательным.");
             return false;
         }
-        // Проверяем, не продано ли больше билетов, чем есть в наличии
-        if (ticketSold + count <= ticketCount) {
-            return true; // Если количество проданных билетов и новые билеты не превышают доступных, возвращаем true
+        // Проверяем, хватает ли доступных билетов (только подсказка: между проверкой и продажей их могут купить)
+        if (count <= getTicketCount()) {
+            return true; // Если новые билеты не превышают доступных, возвращаем true
         } else {
             logger.warning("Ошибка: Недостаточно билетов для продажи " + count + " билетов.");
             return false; // Если билетов недостаточно, возвращаем false
         }
     }
 
-    /// Метод для продажи билетов
+    /// Метод для продажи билетов (линеаризуем: проверка наличия и списание - один compareAndSet)
     public boolean sellTickets(int count) {
-        // Проверяем, можем ли продать указанное количество билетов
-        if (canSellTickets(count)) {
-            // Если можем продать, то увеличиваем количество проданных билетов
-            ticketSold = ticketSold + count;
+        if (count <= 0) {
+            logger.warning("Ошибка: Количество билетов не может быть отрицательным.");
+            return false;
+        }
+        if (waitlist.hasWaiters()) {
+            // Освободившиеся билеты достаются очереди ожидания по порядку - без очереди не продаем
+            logger.warning("Ошибка при продаже билетов: есть покупатели в листе ожидания.");
+            System.out.println("Ошибка: Билеты распроданы, есть лист ожидания.");
+            return false;
+        }
+        if (tickets.trySell(count)) {
             return true;  // Продажа успешна
         } else {
             // Если нет, выводим сообщение об ошибке
@@ -155,16 +393,35 @@ public class Premiere implements Serializable {
             throw new IllegalArgumentException("Ошибка при возврате билетов: Невозможно вернуть больше билетов, чем было продано.");
         }
 
-        // Уменьшаем количество проданных билетов
-        ticketSold -= ticketsToReturn;
-
-        // Возвращаем билеты в доступные для продажи, но не превышаем начальное количество билетов
-        ticketCount = initialTicketCount - ticketSold;
-
+        // Уменьшаем количество проданных и возвращаем билеты в доступные (атомарно, без блокировок)
+        if (!tickets.tryReturn(ticketsToReturn)) {
+            throw new IllegalArgumentException("Ошибка при возврате билетов: Невозможно вернуть больше билетов, чем было продано.");
+        }
+        waitlist.drain(); // Возвращенные билеты - первым в листе ожидания
 
         System.out.println("Проданные билеты: " + ticketsSold);
         System.out.println("Возвращено " + ticketsToReturn + " билетов.");
-        System.out.println("Оставшиеся билеты для продажи: " + ticketCount);
+        System.out.println("Оставшиеся билеты для продажи: " + getTicketCount());
+    }
+
+    // Запись в лист ожидания, когда билетов нет: заявка получит count билетов целиком, как только
+    // они освободятся, в порядке очереди. Если билеты есть и очереди нет, заявка выполняется сразу
+    public WaitlistEntry joinWaitlist(String buyer, int count) {
+        WaitlistEntry entry = waitlist.join(buyer, count);
+        logger.fine("Покупатель " + buyer + " в листе ожидания премьеры " + id + " (билетов: " + count + ", статус: "
+                + entry.getStatus() + ")");
+        return entry;
+    }
+
+    // Выход из листа ожидания; false - если билеты уже выделены
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        boolean cancelled = entry.cancel();
+        waitlist.drain(); // Отмененная заявка могла задерживать очередь
+        return cancelled;
+    }
+
+    public int getWaitlistSize() {
+        return waitlist.size();
     }
 
     // Метод для проверки бюджета
@@ -181,12 +438,29 @@ public class Premiere implements Serializable {
     // Метод для добавления бюджета
     public void addBudget(double budgetToAdd) {
         if (budgetToAdd > 0) {
-            this.budget += budgetToAdd;  // Добавляем к текущему бюджету
+            this.budgetCents = Money.add(budgetCents, Money.toMinor(budgetToAdd));  // Добавляем к текущему бюджету
         } else {
             throw new IllegalArgumentException("Бюджет не может быть отрицательным или нулевым.");
         }
     }
 
+    // Бюджет и цена билета в единицах валюты - для вывода и старого кода; хранятся точно, в центах
+    public double getBudget() {
+        return Money.toMajor(budgetCents);
+    }
+
+    public void setBudget(double budget) {
+        this.budgetCents = Money.toMinor(budget);
+    }
+
+    public double getTicketPrice() {
+        return Money.toMajor(ticketPriceCents);
+    }
+
+    public void setTicketPrice(double ticketPrice) {
+        this.ticketPriceCents = Money.toMinor(ticketPrice);
+    }
+
     // Метод для добавления отзыва
     public void addReview(String review) {
         if (review == null || review.trim().isEmpty()) {
@@ -231,18 +505,51 @@ public class Premiere implements Serializable {
         }
     }
 
+    // Метод для замены списка гостей (без сохранения в файл): индекс строится заново, повторы отбрасываются
+    public synchronized void setGuestList(List<String> guests) {
+        guestIndex.clear();
+        guestList = new ArrayList<>();
+        for (String guest : guests) {
+            if (guest != null && !guest.trim().isEmpty() && guestIndex.add(guest)) {
+                guestList.add(guest);
+            }
+        }
+    }
+
+    // Приглашен ли гость: поиск в индексе, без обхода списка
+    public boolean isGuestInvited(String guestName) {
+        return guestIndex.contains(guestName);
+    }
+
+    // Отметка гостя на входе; безопасна для нескольких сканеров одновременно
+    public GuestIndex.CheckInResult checkInGuest(String guestName) {
+        return guestIndex.checkIn(guestName);
+    }
+
+    public int getInvitedGuestCount() {
+        return guestIndex.getInvitedCount();
+    }
+
+    public int getArrivedGuestCount() {
+        return guestIndex.getArrivedCount();
+    }
+
     // Метод для очистки списка гостей
-    public void clearGuests() {
+    public synchronized void clearGuests() {
         guestList.clear();
+        guestIndex.clear();
+        try {
+            guestLog().clear();
+        } catch (IOException e) {
+            logger.warning("Ошибка при очистке файла гостей для премьеры " + id + ": " + e.getMessage());
+        }
         System.out.println("Список гостей для премьеры " + movieTitle + " очищен.");
     }
 
-    // Метод для сохранения гостей в файл
-    private void saveGuestsToFile() {
-        String fileName = id + "_guests.dat"; // Используем ID премьеры для имени файла
-        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(Paths.get(fileName)))) {
-            oos.writeObject(guestList);
-            System.out.println("Список гостей для премьеры " + id + " сохранен в файл: " + fileName);
+    // Метод для сохранения добавленных гостей: одна запись в конец журнала
+    private void saveGuestsToFile(List<String> addedGuests) {
+        try {
+            guestLog().append(addedGuests, guestList);
         } catch (IOException e) {
             System.out.println("Ошибка при сохранении гостей: " + id + ": " + e.getMessage());
             logger.warning("Ошибка при сохранении гостей в файл для премьеры " + id + ": " + e.getMessage());
@@ -250,34 +557,79 @@ public class Premiere implements Serializable {
     }
 
     // Метод для загрузки гостей из файла
-    public void loadGuestsFromFile() {
-        String fileName = id + "_guests.dat"; // Используем ID премьеры для имени файла
-        Path path = Paths.get(fileName);
-        System.out.println("Месторасположение файла: " + path.toAbsolutePath());
-        if (!Files.exists(path)) {
-            logger.warning("Файл не найден: " + fileName);
+    public synchronized void loadGuestsFromFile() {
+        GuestLog journal = guestLog();
+        System.out.println("Месторасположение файла: " + journal.getPath().toAbsolutePath());
+        if (!journal.exists()) {
+            logger.warning("Файл не найден: " + journal.getPath());
             return; // Прерываем выполнение метода, если файла нет
         }
-        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(path))) {
-            guestList = (List<String>) ois.readObject();
-            System.out.println ("Список гостей для премьеры " + id + " загружен из файла: " + fileName);
-        } catch (IOException | ClassNotFoundException e) {
+        try {
+            List<String> loaded = journal.load();
+            guestIndex.clear();
+            guestList = new ArrayList<>(loaded.size());
+            for (String guest : loaded) {
+                if (guestIndex.add(guest)) { // Повторы из старых файлов отбрасываем
+                    guestList.add(guest);
+                }
+            }
+            System.out.println ("Список гостей для премьеры " + id + " загружен из файла: " + journal.getPath());
+        } catch (IOException e) {
             logger.warning("Ошибка при загрузке гостей из файла для премьеры " + id + ": " + e.getMessage());
-            System.out.println("Ошибка при загрузке гостей из файла для премьеры " + id + ": " + e.getMessage());;
+            System.out.println("Ошибка при загрузке гостей из файла для премьеры " + id + ": " + e.getMessage());
+        }
+    }
+
+    // Закрытие журнала гостей (премьера удалена или заменена); при следующей записи журнал откроется заново
+    public synchronized void closeGuestLog() {
+        if (guestLog != null) {
+            guestLog.close();
+            guestLog = null;
+        }
+    }
+
+    // Открыт ли файл журнала гостей (для тестов и диагностики)
+    synchronized boolean isGuestLogOpen() {
+        return guestLog != null && guestLog.isOpen();
+    }
+
+    private TicketWaitlist newWaitlist() {
+        return new TicketWaitlist(count -> tickets.trySell(count), count -> tickets.tryReturn(count));
+    }
+
+    // Восстановление несериализуемых полей после чтения премьеры
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        waitlist = newWaitlist();
+        guestIndex = new GuestIndex();
+        if (guestList != null) {
+            for (String guest : guestList) {
+                guestIndex.add(guest);
+            }
+        }
+    }
+
+    // Журнал гостей в рабочем каталоге; при смене ID премьеры открывается журнал нового ID
+    private GuestLog guestLog() {
+        if (guestLog == null) {
+            guestLog = new GuestLog(Paths.get(""), id);
         }
+        return guestLog;
     }
 
     // Генерация отчета о премьере
     public String generateReport() {
-        double totalRevenue = ticketSold * ticketPrice; // Примерная стоимость билета $10
+        int ticketSold = getTicketSold();
+        long totalRevenue = Money.multiply(ticketPriceCents, ticketSold); // Примерная стоимость билета $10
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
         String formattedDate = date.format(formatter);  // Форматируем дату
         String report = "Отчет о премьере: " + movieTitle + "\n" +
                 "Дата: " + formattedDate + "\n" +
                 "Место проведения: " + location + "\n" +
                 "Продано билетов: " + ticketSold + "\n" +
-                "Общая прибыль: $" + totalRevenue + "\n" +
+                "Общая прибыль: $" + Money.format(totalRevenue) + "\n" +
                 "Список гостей: " + (guestList.isEmpty() ? "Нет гостей" : String.join(", ", guestList)) + "\n" +
+                "Гостей пришло: " + getArrivedGuestCount() + " из " + getInvitedGuestCount() + "\n" +
                 "Отзывы: " + String.join("; ", reviews) + "\n";
         return report; // Возвращаем строку отчета
     }
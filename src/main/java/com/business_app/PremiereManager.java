@@ -37,7 +37,10 @@ public class PremiereManager {
             logger.warning("Попытка добавить премьеру без ID.");
             throw new IllegalArgumentException("ID премьеры не может быть null.");
         }
-        premiereMap.put(premiere.getId(), premiere);
+        Premiere previous = premiereMap.put(premiere.getId(), premiere);
+        if (previous != null && previous != premiere) {
+            previous.closeGuestLog(); // Замененная премьера больше не пишет гостей, файл ей не нужен
+        }
         System.out.println ("Премьера добавлена: " + premiere.getMovieTitle());
         saveToFile();
     }
@@ -81,6 +84,7 @@ public class PremiereManager {
             logger.warning("Не удалось удалить премьеру с ID " + id + ": Премьера не найдена.");
         System.out.println("Не удалось удалить премьеру с ID " + id + ": Премьера не найдена.");
         } else {
+            premiere.closeGuestLog();
             System.out.println("Премьера с ID " + id + " удалена.");
             saveToFile();
         }
@@ -95,7 +99,7 @@ public class PremiereManager {
             for (Premiere premiere : premiereMap.values()) {
                 // Форматируем данные премьеры в строку
                 String premiereData = premiere.getId() + ", " + premiere.getMovieTitle() + ", " +
-                        premiere.getDate().toString() + ", " + premiere.getBudget() + ", " + premiere.getLocation() + ", " +
+                        premiere.getDate().toString() + ", " + Money.format(premiere.getBudgetCents()) + ", " + premiere.getLocation() + ", " +
                         premiere.getTicketCount();
                 writer.write(premiereData);  // Записываем строку в файл
                 writer.newLine();  // Переход на новую строку
@@ -117,12 +121,12 @@ public class PremiereManager {
                     String id = data[0];  // ID премьеры
                     String movieTitle = data[1];  // Название фильма
                     ZonedDateTime dateTime = ZonedDateTime.parse(data[2]);  // Преобразуем строку в ZonedDateTime
-                    double budget = Double.parseDouble(data[3]);  // Бюджет
+                    long budgetCents = Money.parse(data[3]);  // Бюджет в центах (старые файлы с "100.0" тоже читаются)
                     String location = data[4];  // Местоположение
                     int ticketCount = Integer.parseInt(data[5]);  // Количество билетов
 
                     Premiere premiere = new Premiere(id, movieTitle, dateTime, location, ticketCount);  // Создаем объект Premiere
-                    premiere.setBudget(budget);  // Устанавливаем бюджет
+                    premiere.setBudgetCents(budgetCents);  // Устанавливаем бюджет
                     premiereMap.put(id, premiere);  // Добавляем премьеру в карту
                 }
             }
@@ -0,0 +1,47 @@
+package com.business_app;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+// Прибыль и убытки премьеры в центах: бюджет, доход от билетов, возвраты и прочие записи премьеры
+@Getter
+@ToString
+@EqualsAndHashCode
+public class PremiereProfitAndLoss {
+
+    private final String premiereId;
+    private final long budgetCents; // Вложенный бюджет (записи PREMIERE_BUDGET)
+    private final long ticketIncomeCents; // Продажи билетов
+    private final long refundsCents; // Возвраты билетов
+    private final long otherCents; // Прочие записи премьеры: доходы со знаком +, расходы со знаком -
+
+    public PremiereProfitAndLoss(String premiereId, long budgetCents, long ticketIncomeCents, long refundsCents, long otherCents) {
+        this.premiereId = premiereId;
+        this.budgetCents = budgetCents;
+        this.ticketIncomeCents = ticketIncomeCents;
+        this.refundsCents = refundsCents;
+        this.otherCents = otherCents;
+    }
+
+    // Чистый результат: билеты минус возвраты минус бюджет плюс прочее
+    public long getNetCents() {
+        return ticketIncomeCents - refundsCents - budgetCents + otherCents;
+    }
+
+    public double getBudget() {
+        return Money.toMajor(budgetCents);
+    }
+
+    public double getTicketIncome() {
+        return Money.toMajor(ticketIncomeCents);
+    }
+
+    public double getRefunds() {
+        return Money.toMajor(refundsCents);
+    }
+
+    public double getNet() {
+        return Money.toMajor(getNetCents());
+    }
+}
@@ -0,0 +1,7 @@
+package com.business_app;
+
+// Формат строк финансового отчета
+public enum ReportFormat {
+    CSV, // ID, Тип, Сумма, Описание, Дата - с заголовком и итоговыми строками (читается FinanceCsvLoader)
+    JSON_LINES // Один JSON-объект на строку, без заголовка
+}
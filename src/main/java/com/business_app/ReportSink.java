@@ -0,0 +1,17 @@
+package com.business_app;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Приемник строк отчета. Кодировщик передает готовые байты строки (UTF-8) в своем буфере:
+// приемник должен скопировать или записать их до возврата, буфер будет использован для следующей строки.
+public interface ReportSink extends Closeable {
+
+    ReportFormat getFormat();
+
+    void write(byte[] bytes, int offset, int length) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
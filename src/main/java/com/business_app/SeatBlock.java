@@ -0,0 +1,31 @@
+package com.business_app;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+// Группа соседних мест в одном ряду: ряд и первое место (с 1), количество мест
+@Getter
+@EqualsAndHashCode
+public class SeatBlock implements Serializable {
+
+    private final int row;
+    private final int firstSeat;
+    private final int count;
+
+    public SeatBlock(int row, int firstSeat, int count) {
+        this.row = row;
+        this.firstSeat = firstSeat;
+        this.count = count;
+    }
+
+    public int getLastSeat() {
+        return firstSeat + count - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Ряд " + row + ", места " + firstSeat + (count > 1 ? "-" + getLastSeat() : "");
+    }
+}
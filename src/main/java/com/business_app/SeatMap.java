@@ -0,0 +1,355 @@
+package com.business_app;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Схема зала премьеры: ряды × места, занятость хранится битами (1 - место занято) в AtomicLongArray.
+// Каждый ряд начинается с нового 64-битного слова; биты после последнего места ряда всегда установлены,
+// поэтому поиск свободных мест идет по словам целиком: полностью занятые слова пропускаются сразу,
+// а границы свободных отрезков находятся через numberOfTrailingZeros.
+// Бронирование без блокировок: биты группы устанавливаются compareAndSet по словам; если другой поток
+// успел занять хотя бы одно место группы, уже установленные биты снимаются и поиск повторяется.
+// Так одно место никогда не продается дважды. Ряды и места нумеруются с 1.
+public class SeatMap implements Serializable {
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final int wordsPerRow;
+    private final AtomicLongArray words;
+    private final LongAdder reserved = new LongAdder();
+    private final List<SeatZone> zones = new ArrayList<>();
+    private volatile int preferredRow; // Лучший ряд: от него подбираются места "лучшие из доступных"
+
+    public SeatMap(int rows, int seatsPerRow) {
+        if (rows <= 0 || seatsPerRow <= 0) {
+            throw new IllegalArgumentException("Количество рядов и мест в ряду должно быть больше 0.");
+        }
+        if ((long) rows * seatsPerRow > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком большой зал: " + rows + " × " + seatsPerRow + ".");
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.wordsPerRow = (seatsPerRow + 63) >>> 6;
+        this.words = new AtomicLongArray(rows * wordsPerRow);
+        this.preferredRow = (rows + 1) / 2; // По умолчанию - середина зала
+        int tail = seatsPerRow & 63;
+        if (tail != 0) {
+            for (int row = 0; row < rows; row++) {
+                words.set(row * wordsPerRow + wordsPerRow - 1, -1L << tail); // Несуществующие места "заняты"
+            }
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getCapacity() {
+        return rows * seatsPerRow;
+    }
+
+    public int getReservedCount() {
+        return reserved.intValue();
+    }
+
+    public int getAvailableCount() {
+        return getCapacity() - getReservedCount();
+    }
+
+    public int getPreferredRow() {
+        return preferredRow;
+    }
+
+    public void setPreferredRow(int preferredRow) {
+        checkRow(preferredRow);
+        this.preferredRow = preferredRow;
+    }
+
+    // Добавление ценовой зоны; зоны не должны пересекаться
+    public synchronized void addZone(SeatZone zone) {
+        if (zone.getToRow() > rows) {
+            throw new IllegalArgumentException("Зона " + zone.getName() + " выходит за пределы зала (рядов: " + rows + ").");
+        }
+        for (SeatZone existing : zones) {
+            if (existing.getName().equals(zone.getName())) {
+                throw new IllegalArgumentException("Зона с названием " + zone.getName() + " уже существует.");
+            }
+            if (zone.getFromRow() <= existing.getToRow() && existing.getFromRow() <= zone.getToRow()) {
+                throw new IllegalArgumentException("Зона " + zone.getName() + " пересекается с зоной " + existing.getName() + ".");
+            }
+        }
+        zones.add(zone);
+    }
+
+    public synchronized List<SeatZone> getZones() {
+        return new ArrayList<>(zones);
+    }
+
+    // Зона ряда или null, если ряд не входит ни в одну зону
+    public synchronized SeatZone getZone(int row) {
+        for (SeatZone zone : zones) {
+            if (zone.containsRow(row)) {
+                return zone;
+            }
+        }
+        return null;
+    }
+
+    public boolean isReserved(int row, int seat) {
+        checkSeat(row, seat);
+        int bit = seat - 1;
+        return (words.get((row - 1) * wordsPerRow + (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    // Бронирование count соседних мест в лучших доступных рядах всего зала; null - если таких мест нет
+    public SeatBlock reserveBest(int count) {
+        return reserveBest(count, null);
+    }
+
+    // То же в пределах ценовой зоны (zoneName == null - весь зал)
+    public SeatBlock reserveBest(int count, String zoneName) {
+        if (count <= 0 || count > seatsPerRow) {
+            throw new IllegalArgumentException("Количество мест должно быть от 1 до " + seatsPerRow + ".");
+        }
+        int fromRow = 1;
+        int toRow = rows;
+        if (zoneName != null) {
+            SeatZone zone = findZone(zoneName);
+            fromRow = zone.getFromRow();
+            toRow = zone.getToRow();
+        }
+        while (true) {
+            SeatBlock candidate = findBest(count, fromRow, toRow);
+            if (candidate == null) {
+                return null;
+            }
+            if (claim(candidate)) {
+                return candidate;
+            }
+            // Места перехватил другой поток - ищем заново
+        }
+    }
+
+    // Бронирование конкретных мест; false - если хотя бы одно из них уже занято
+    public boolean reserve(SeatBlock block) {
+        checkBlock(block);
+        return claim(block);
+    }
+
+    // Освобождение ранее забронированных мест. Биты снимаются compareAndSet по словам, как при бронировании:
+    // слово освобождается, только если все его места группы заняты, поэтому из двух одновременных
+    // освобождений одной группы успешно только одно, а второе получает исключение
+    public void release(SeatBlock block) {
+        checkBlock(block);
+        int start = block.getFirstSeat() - 1;
+        int end = start + block.getCount();
+        int base = (block.getRow() - 1) * wordsPerRow;
+        for (int bit = start; bit < end; ) {
+            int word = bit >>> 6;
+            long mask = rangeMask(bit, Math.min(end, (word + 1) << 6));
+            if (!clearIfReserved(base + word, mask)) {
+                // Часть группы уже свободна - возвращаем снятые биты предыдущих слов
+                for (int undo = start; undo < bit; ) {
+                    int undoWord = undo >>> 6;
+                    restore(base + undoWord, rangeMask(undo, Math.min(end, (undoWord + 1) << 6)));
+                    undo = (undoWord + 1) << 6;
+                }
+                throw new IllegalArgumentException("Места " + block + " не забронированы.");
+            }
+            bit = (word + 1) << 6;
+        }
+        reserved.add(-block.getCount());
+    }
+
+    // Поиск лучшего блока: ряды по удаленности от лучшего ряда, в ряду - ближе всего к центру
+    private SeatBlock findBest(int count, int fromRow, int toRow) {
+        int preferred = Math.max(fromRow, Math.min(toRow, preferredRow));
+        for (int distance = 0; preferred - distance >= fromRow || preferred + distance <= toRow; distance++) {
+            int row = preferred - distance;
+            if (row >= fromRow) {
+                int seat = bestInRow(row, count);
+                if (seat >= 0) {
+                    return new SeatBlock(row, seat + 1, count);
+                }
+            }
+            row = preferred + distance;
+            if (distance > 0 && row <= toRow) {
+                int seat = bestInRow(row, count);
+                if (seat >= 0) {
+                    return new SeatBlock(row, seat + 1, count);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Первое место (с 0) лучшего блока из count свободных мест в ряду или -1.
+    // Обход свободных отрезков по словам: занятое слово целиком пропускается одной проверкой
+    private int bestInRow(int row, int count) {
+        int base = (row - 1) * wordsPerRow;
+        int center = seatsPerRow - count; // Удвоенная позиция, при которой блок стоит ровно по центру ряда
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int runStart = -1;
+        for (int word = 0; word < wordsPerRow; word++) {
+            long taken = words.get(base + word);
+            int offset = word << 6;
+            if (taken == -1L) {
+                if (runStart >= 0) {
+                    int seat = placeInRun(runStart, offset, count, center);
+                    if (seat >= 0 && Math.abs(2 * seat - center) < bestDistance) {
+                        best = seat;
+                        bestDistance = Math.abs(2 * seat - center);
+                    }
+                    runStart = -1;
+                }
+                continue;
+            }
+            int bit = 0;
+            while (bit < 64) {
+                if (runStart < 0) {
+                    // Ищем начало свободного отрезка: первый нулевой бит
+                    long free = ~taken & (-1L << bit);
+                    if (free == 0) {
+                        break;
+                    }
+                    bit = Long.numberOfTrailingZeros(free);
+                    runStart = offset + bit;
+                }
+                // Ищем конец свободного отрезка: первый единичный бит
+                long busy = taken & (-1L << bit);
+                if (busy == 0) {
+                    break; // Отрезок продолжается в следующем слове
+                }
+                bit = Long.numberOfTrailingZeros(busy);
+                int seat = placeInRun(runStart, offset + bit, count, center);
+                if (seat >= 0 && Math.abs(2 * seat - center) < bestDistance) {
+                    best = seat;
+                    bestDistance = Math.abs(2 * seat - center);
+                }
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            int seat = placeInRun(runStart, wordsPerRow << 6, count, center);
+            if (seat >= 0 && Math.abs(2 * seat - center) < bestDistance) {
+                best = seat;
+            }
+        }
+        return best;
+    }
+
+    // Положение блока в свободном отрезке [start, end), ближайшее к центру; -1 - если блок не помещается
+    private static int placeInRun(int start, int end, int count, int center) {
+        if (end - start < count) {
+            return -1;
+        }
+        return Math.max(start, Math.min(end - count, center / 2));
+    }
+
+    // Установка битов блока по словам; при конфликте уже установленные биты снимаются
+    private boolean claim(SeatBlock block) {
+        int start = block.getFirstSeat() - 1;
+        int end = start + block.getCount();
+        int base = (block.getRow() - 1) * wordsPerRow;
+        for (int bit = start; bit < end; ) {
+            int word = bit >>> 6;
+            long mask = rangeMask(bit, Math.min(end, (word + 1) << 6));
+            if (!setIfFree(base + word, mask)) {
+                for (int undo = start; undo < bit; ) {
+                    int undoWord = undo >>> 6;
+                    clear(base + undoWord, rangeMask(undo, Math.min(end, (undoWord + 1) << 6)));
+                    undo = (undoWord + 1) << 6;
+                }
+                return false;
+            }
+            bit = (word + 1) << 6;
+        }
+        reserved.add(block.getCount());
+        return true;
+    }
+
+    private boolean setIfFree(int index, long mask) {
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean clearIfReserved(int index, long mask) {
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != mask) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current & ~mask)) {
+                return true;
+            }
+        }
+    }
+
+    // Возврат битов при отмене освобождения. Место, которое за это время успел забронировать другой поток,
+    // остается за ним, а для нашей группы считается освобожденным
+    private void restore(int index, long mask) {
+        long current;
+        do {
+            current = words.get(index);
+        } while (!words.compareAndSet(index, current, current | mask));
+        reserved.add(-Long.bitCount(current & mask));
+    }
+
+    private void clear(int index, long mask) {
+        long current;
+        do {
+            current = words.get(index);
+        } while (!words.compareAndSet(index, current, current & ~mask));
+    }
+
+    // Маска битов [from, to) внутри одного слова (позиции считаются от начала ряда)
+    private static long rangeMask(int from, int to) {
+        int length = to - from;
+        return length == 64 ? -1L : ((1L << length) - 1) << (from & 63);
+    }
+
+    private synchronized SeatZone findZone(String zoneName) {
+        for (SeatZone zone : zones) {
+            if (zone.getName().equals(zoneName)) {
+                return zone;
+            }
+        }
+        throw new IllegalArgumentException("Зона " + zoneName + " не найдена.");
+    }
+
+    private void checkRow(int row) {
+        if (row < 1 || row > rows) {
+            throw new IllegalArgumentException("Ряд должен быть от 1 до " + rows + ".");
+        }
+    }
+
+    private void checkSeat(int row, int seat) {
+        checkRow(row);
+        if (seat < 1 || seat > seatsPerRow) {
+            throw new IllegalArgumentException("Место должно быть от 1 до " + seatsPerRow + ".");
+        }
+    }
+
+    private void checkBlock(SeatBlock block) {
+        if (block == null || block.getCount() <= 0) {
+            throw new IllegalArgumentException("Группа мест не указана.");
+        }
+        checkSeat(block.getRow(), block.getFirstSeat());
+        checkSeat(block.getRow(), block.getLastSeat());
+    }
+}
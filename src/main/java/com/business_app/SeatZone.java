@@ -0,0 +1,41 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+// Ценовая зона зала: ряды fromRow..toRow (включительно, с 1) и цена места в центах
+@Getter
+@ToString
+public class SeatZone implements Serializable {
+
+    private final String name;
+    private final int fromRow;
+    private final int toRow;
+    private final long priceCents;
+
+    public SeatZone(String name, int fromRow, int toRow, long priceCents) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Название зоны не может быть пустым.");
+        }
+        if (fromRow <= 0 || toRow < fromRow) {
+            throw new IllegalArgumentException("Некорректные ряды зоны: " + fromRow + "-" + toRow + ".");
+        }
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Цена места не может быть отрицательной.");
+        }
+        this.name = name;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.priceCents = priceCents;
+    }
+
+    public boolean containsRow(int row) {
+        return row >= fromRow && row <= toRow;
+    }
+
+    public double getPrice() {
+        return Money.toMajor(priceCents);
+    }
+}
@@ -0,0 +1,225 @@
+package com.business_app;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Билеты, разбитые на корзины (по числу ядер): каждая корзина - такой же упакованный счетчик
+// "продано/доступно", как в AtomicTicketInventory, но поток продает из "своей" корзины,
+// поэтому при массовой продаже потоки не конкурируют за одну ячейку памяти.
+// Если своей корзины не хватает, поток забирает у соседних корзин половину их остатка (не меньше недостающего)
+// и продает уже из своей. Билеты только переходят между корзинами, поэтому сумма по корзинам точна,
+// когда нет незавершенных продаж. Переносы выполняет один поток за раз (своя корзина продает без блокировки),
+// и если занятого у соседей не хватило, последний проход собирает в свою корзину все доступные билеты:
+// продажа не удается, только если билетов действительно не хватает.
+// Установка счетчиков (setAvailable/setSold) предназначена для настройки до начала продаж.
+public class ShardedTicketInventory implements TicketInventory {
+
+    // Корзины разнесены на 128 байт, чтобы соседние счетчики не попадали в одну строку кэша
+    private static final int STRIDE = 16;
+
+    private final AtomicLongArray shards;
+    private final int shardCount;
+    private final int mask;
+
+    public ShardedTicketInventory(int sold, int available, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество корзин должно быть больше 0.");
+        }
+        int count = 1;
+        while (count < shardCount) {
+            count <<= 1; // Округляем до степени двойки
+        }
+        this.shardCount = count;
+        this.mask = count - 1;
+        this.shards = new AtomicLongArray(count * STRIDE);
+        distribute(sold, available);
+    }
+
+    // Число корзин по умолчанию - по числу ядер
+    public ShardedTicketInventory(int sold, int available) {
+        this(sold, available, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int getSold() {
+        long sold = 0;
+        for (int i = 0; i < shardCount; i++) {
+            sold += AtomicTicketInventory.sold(shards.get(i * STRIDE));
+        }
+        return (int) sold;
+    }
+
+    @Override
+    public int getAvailable() {
+        long available = 0;
+        for (int i = 0; i < shardCount; i++) {
+            available += AtomicTicketInventory.available(shards.get(i * STRIDE));
+        }
+        return (int) available;
+    }
+
+    @Override
+    public void setAvailable(int available) {
+        distribute(getSold(), available);
+    }
+
+    @Override
+    public boolean setSold(int sold) {
+        long total = (long) getSold() + getAvailable();
+        if (sold > total) {
+            return false;
+        }
+        distribute(sold, (int) (total - sold));
+        return true;
+    }
+
+    @Override
+    public boolean trySell(int count) {
+        return take(count, count);
+    }
+
+    @Override
+    public boolean tryHold(int count) {
+        return take(count, 0);
+    }
+
+    @Override
+    public void confirmHeld(int count) {
+        update(homeShard(), count, 0);
+    }
+
+    @Override
+    public void releaseHeld(int count) {
+        update(homeShard(), 0, count);
+    }
+
+    // Списание count доступных билетов; проданные корзины увеличиваются на soldDelta (0 - удержание)
+    private boolean take(int count, int soldDelta) {
+        int home = homeShard();
+        if (sellFrom(home, count, soldDelta)) {
+            return true;
+        }
+        // Своей корзины не хватило. Переносы между корзинами - по одному: перенесенные билеты на мгновение
+        // не видны ни в одной корзине, и параллельный перенос мог бы их пропустить
+        synchronized (shards) {
+            // Занимаем у соседей по очереди
+            for (int step = 1; step < shardCount; step++) {
+                int missing = count - AtomicTicketInventory.available(shards.get(home * STRIDE));
+                if (missing > 0) {
+                    borrow((home + step) & mask, home, missing);
+                }
+                if (sellFrom(home, count, soldDelta)) {
+                    return true;
+                }
+            }
+            // Занятое могли раскупить из своей корзины другие потоки: точный проход собирает все доступные билеты.
+            // Других переносов сейчас нет, поэтому неудача значит, что билетов действительно меньше count
+            for (int step = 1; step < shardCount; step++) {
+                borrow((home + step) & mask, home, Integer.MAX_VALUE);
+            }
+            return sellFrom(home, count, soldDelta);
+        }
+    }
+
+    @Override
+    public boolean tryReturn(int count) {
+        int home = homeShard();
+        // Сначала списываем проданные (с любых корзин), затем добавляем билеты в доступные своей корзины
+        int[] taken = new int[shardCount];
+        int remaining = count;
+        for (int step = 0; step < shardCount && remaining > 0; step++) {
+            int shard = (home + step) & mask;
+            taken[shard] = takeSold(shard, remaining);
+            remaining -= taken[shard];
+        }
+        if (remaining > 0) {
+            // Продано меньше, чем возвращают: восстанавливаем списанное
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (taken[shard] > 0) {
+                    update(shard, taken[shard], 0);
+                }
+            }
+            return false;
+        }
+        update(home, 0, count);
+        return true;
+    }
+
+    private boolean sellFrom(int shard, int count, int soldDelta) {
+        int index = shard * STRIDE;
+        while (true) {
+            long current = shards.get(index);
+            int available = AtomicTicketInventory.available(current);
+            if (available < count) {
+                return false;
+            }
+            long updated = AtomicTicketInventory.pack(AtomicTicketInventory.sold(current) + soldDelta, available - count);
+            if (shards.compareAndSet(index, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    // Перенос доступных билетов из корзины from в корзину to: половина остатка, но не меньше missing
+    private void borrow(int from, int to, int missing) {
+        int index = from * STRIDE;
+        int moved;
+        while (true) {
+            long current = shards.get(index);
+            int available = AtomicTicketInventory.available(current);
+            if (available == 0) {
+                return;
+            }
+            moved = Math.min(available, Math.max(missing, available / 2));
+            long updated = AtomicTicketInventory.pack(AtomicTicketInventory.sold(current), available - moved);
+            if (shards.compareAndSet(index, current, updated)) {
+                break;
+            }
+        }
+        update(to, 0, moved);
+    }
+
+    // Списание до limit проданных билетов корзины; возвращает, сколько списано
+    private int takeSold(int shard, int limit) {
+        int index = shard * STRIDE;
+        while (true) {
+            long current = shards.get(index);
+            int sold = AtomicTicketInventory.sold(current);
+            int taken = Math.min(sold, limit);
+            if (taken == 0) {
+                return 0;
+            }
+            long updated = AtomicTicketInventory.pack(sold - taken, AtomicTicketInventory.available(current));
+            if (shards.compareAndSet(index, current, updated)) {
+                return taken;
+            }
+        }
+    }
+
+    // Прибавление к счетчикам корзины (без проверок)
+    private void update(int shard, int soldDelta, int availableDelta) {
+        int index = shard * STRIDE;
+        long current;
+        do {
+            current = shards.get(index);
+        } while (!shards.compareAndSet(index, current, AtomicTicketInventory.pack(
+                AtomicTicketInventory.sold(current) + soldDelta, AtomicTicketInventory.available(current) + availableDelta)));
+    }
+
+    // Проданные - в первую корзину, доступные - поровну по всем корзинам
+    private void distribute(int sold, int available) {
+        for (int i = 0; i < shardCount; i++) {
+            int share = available / shardCount + (i < available % shardCount ? 1 : 0);
+            shards.set(i * STRIDE, AtomicTicketInventory.pack(i == 0 ? sold : 0, share));
+        }
+    }
+
+    // Корзина текущего потока: перемешанный ID потока, чтобы соседние ID попадали в разные корзины
+    private int homeShard() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
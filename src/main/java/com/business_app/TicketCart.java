@@ -0,0 +1,84 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Корзина групповой покупки: билеты на несколько премьер, покупаются все вместе или ни одного.
+// Строки хранятся по ID премьеры (повторное добавление премьеры увеличивает количество),
+// поэтому любая корзина удерживает билеты премьер в одном и том же порядке
+@ToString
+public class TicketCart {
+
+    private final Map<String, Line> lines = new TreeMap<>();
+
+    public TicketCart add(Premiere premiere, int count) {
+        if (premiere == null || premiere.getId() == null) {
+            throw new IllegalArgumentException("Премьера не может быть null.");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Количество билетов должно быть положительным.");
+        }
+        Line line = lines.get(premiere.getId());
+        if (line == null) {
+            lines.put(premiere.getId(), new Line(premiere, count));
+        } else if (line.getPremiere() != premiere) {
+            throw new IllegalArgumentException("В корзине уже есть другая премьера с ID " + premiere.getId() + ".");
+        } else {
+            lines.put(premiere.getId(), new Line(premiere, Math.addExact(line.getCount(), count)));
+        }
+        return this;
+    }
+
+    // Строки корзины в порядке ID премьер
+    public List<Line> getLines() {
+        return new ArrayList<>(lines.values());
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public int getTotalTickets() {
+        int total = 0;
+        for (Line line : lines.values()) {
+            total = Math.addExact(total, line.getCount());
+        }
+        return total;
+    }
+
+    // Стоимость корзины в центах по текущим ценам билетов
+    public long getTotalCents() {
+        long total = 0;
+        for (Line line : lines.values()) {
+            total = Money.add(total, line.getAmountCents());
+        }
+        return total;
+    }
+
+    @Getter
+    @ToString
+    public static class Line {
+        @ToString.Exclude
+        private final Premiere premiere;
+        private final int count;
+
+        public Line(Premiere premiere, int count) {
+            this.premiere = premiere;
+            this.count = count;
+        }
+
+        @ToString.Include(name = "premiereId")
+        public String getPremiereId() {
+            return premiere.getId();
+        }
+
+        public long getAmountCents() {
+            return Money.multiply(premiere.getTicketPriceCents(), count);
+        }
+    }
+}
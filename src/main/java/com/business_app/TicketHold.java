@@ -0,0 +1,51 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Удержание билетов (и, если задана схема зала, мест) на время оформления покупки.
+// Состояние меняется один раз compareAndSet: подтверждение, отмена и истечение срока не могут сработать вместе
+@Getter
+@ToString
+public class TicketHold {
+
+    public enum Status {
+        HELD,       // Билеты удержаны, ждем оплаты
+        CONFIRMED,  // Оплачено: билеты проданы
+        RELEASED,   // Отменено покупателем: билеты вернулись в продажу
+        EXPIRED     // Срок истек: билеты вернулись в продажу
+    }
+
+    private final long id;
+    @ToString.Exclude
+    private final Premiere premiere;
+    private final int count;
+    private final SeatBlock seats; // null - удержаны билеты без мест
+    private final long expiresAtMillis;
+    @ToString.Exclude
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.HELD);
+
+    public TicketHold(long id, Premiere premiere, int count, SeatBlock seats, long expiresAtMillis) {
+        this.id = id;
+        this.premiere = premiere;
+        this.count = count;
+        this.seats = seats;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getPremiereId() {
+        return premiere.getId();
+    }
+
+    @ToString.Include(name = "status")
+    public Status getStatus() {
+        return status.get();
+    }
+
+    // Перевод из HELD в итоговое состояние; false - если удержание уже завершено
+    boolean finish(Status result) {
+        return status.compareAndSet(Status.HELD, result);
+    }
+}
@@ -0,0 +1,195 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Временные удержания билетов между выбором и оплатой: hold -> confirm (оплачено) или release (отмена).
+// Неподтвержденные удержания истекают сами: срок каждого записан в иерархическое колесо таймеров,
+// фоновый поток раз в тик продвигает колесо и возвращает в продажу только истекшие удержания,
+// не перебирая остальные. Подтвержденные и отмененные удержания из колеса не удаляются:
+// когда их ячейка сработает, они просто пропускаются (состояние уже не HELD).
+@Slf4j
+public class TicketHoldManager implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final TimingWheel<TicketHold> wheel;
+    private final Map<Long, TicketHold> holds = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final ScheduledExecutorService executor;
+
+    // Удержания с фоновым истечением по системным часам
+    public TicketHoldManager() {
+        this(DEFAULT_TICK_MILLIS, System::currentTimeMillis, true);
+    }
+
+    // Без фонового потока: время задает clock, истечение - вызовом expireHolds (для тестов и пакетной обработки)
+    public TicketHoldManager(long tickMillis, LongSupplier clock) {
+        this(tickMillis, clock, false);
+    }
+
+    private TicketHoldManager(long tickMillis, LongSupplier clock, boolean background) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Длительность тика должна быть больше 0.");
+        }
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(clock.getAsLong() / tickMillis);
+        if (background) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ticket-hold-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(this::expireHoldsSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    // Удержание count билетов премьеры на время ttl; null - если билетов не хватает
+    public TicketHold hold(Premiere premiere, int count, Duration ttl) {
+        checkRequest(premiere, ttl);
+        if (!premiere.holdTickets(count)) {
+            log.warn("Недостаточно билетов для удержания {} билетов премьеры {}", count, premiere.getId());
+            return null;
+        }
+        return register(premiere, count, null, ttl);
+    }
+
+    // Удержание count соседних мест (лучших доступных, в зоне zoneName или во всем зале при null)
+    public TicketHold holdSeats(Premiere premiere, int count, String zoneName, Duration ttl) {
+        checkRequest(premiere, ttl);
+        SeatBlock seats = premiere.holdSeats(count, zoneName);
+        if (seats == null) {
+            log.warn("Нет {} билетов или соседних свободных мест для удержания на премьеру {}", count, premiere.getId());
+            return null;
+        }
+        return register(premiere, count, seats, ttl);
+    }
+
+    // Подтверждение оплаты: удержанные билеты становятся проданными
+    public TicketHold confirm(long holdId) {
+        TicketHold hold = finish(holdId, TicketHold.Status.CONFIRMED);
+        hold.getPremiere().confirmHeldTickets(hold.getCount());
+        return hold;
+    }
+
+    // Отмена удержания: билеты и места возвращаются в продажу
+    public TicketHold release(long holdId) {
+        TicketHold hold = finish(holdId, TicketHold.Status.RELEASED);
+        giveBack(hold);
+        return hold;
+    }
+
+    public TicketHold getHold(long holdId) {
+        return holds.get(holdId);
+    }
+
+    // Количество действующих (не подтвержденных и не истекших) удержаний
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    // Продвижение колеса до текущего времени и возврат истекших удержаний; возвращает их количество
+    public int expireHolds() {
+        List<TicketHold> expired = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advanceTo(clock.getAsLong() / tickMillis, expired::add);
+        }
+        int count = 0;
+        for (TicketHold hold : expired) {
+            if (hold.finish(TicketHold.Status.EXPIRED)) {
+                holds.remove(hold.getId());
+                count++;
+                try {
+                    giveBack(hold);
+                } catch (RuntimeException e) {
+                    // Удержание уже снято с колеса: ошибка не должна помешать вернуть билеты остальных
+                    log.error("Ошибка при возврате билетов истекшего удержания {}: {}", hold.getId(), e.getMessage(), e);
+                }
+            }
+        }
+        if (count > 0) {
+            expiredCount.addAndGet(count);
+            log.info("Истекло удержаний: {}", count);
+        }
+        return count;
+    }
+
+    // Задача фонового потока. Исключение из задачи scheduleAtFixedRate отменяет все ее следующие запуски,
+    // и удержания перестали бы истекать - поэтому ошибка только записывается в лог
+    private void expireHoldsSafely() {
+        try {
+            expireHolds();
+        } catch (RuntimeException e) {
+            log.error("Ошибка при истечении удержаний билетов: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private TicketHold register(Premiere premiere, int count, SeatBlock seats, Duration ttl) {
+        long expiresAt = clock.getAsLong() + ttl.toMillis();
+        TicketHold hold = new TicketHold(nextId.incrementAndGet(), premiere, count, seats, expiresAt);
+        holds.put(hold.getId(), hold);
+        synchronized (wheel) {
+            try {
+                wheel.add(hold, (expiresAt + tickMillis - 1) / tickMillis); // Не раньше срока: округляем вверх
+            } catch (IllegalArgumentException e) {
+                holds.remove(hold.getId());
+                giveBack(hold);
+                throw e;
+            }
+        }
+        return hold;
+    }
+
+    private TicketHold finish(long holdId, TicketHold.Status result) {
+        TicketHold hold = holds.get(holdId);
+        if (hold == null || !hold.finish(result)) {
+            throw new IllegalArgumentException("Удержание " + holdId + " не найдено, уже завершено или истекло.");
+        }
+        holds.remove(holdId);
+        return hold;
+    }
+
+    private static void giveBack(TicketHold hold) {
+        if (hold.getSeats() != null) {
+            hold.getPremiere().releaseHeldSeats(hold.getSeats());
+        } else {
+            hold.getPremiere().releaseHeldTickets(hold.getCount());
+        }
+    }
+
+    private static void checkRequest(Premiere premiere, Duration ttl) {
+        if (premiere == null) {
+            throw new IllegalArgumentException("Премьера не может быть null.");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Срок удержания должен быть положительным.");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.business_app;
+
+import java.io.Serializable;
+
+// Учет проданных и доступных билетов премьеры. Реализации потокобезопасны и не используют блокировок.
+// Удержанные билеты не входят ни в проданные, ни в доступные: возврат проверяется только по оплаченным.
+public interface TicketInventory extends Serializable {
+
+    int getSold();
+
+    int getAvailable();
+
+    // Установка доступных билетов (проданные не меняются)
+    void setAvailable(int available);
+
+    // Установка проданных билетов с сохранением общего числа мест; false - если продано больше, чем мест
+    boolean setSold(int sold);
+
+    // Продажа count билетов, если их хватает; иначе false и состояние не меняется
+    boolean trySell(int count);
+
+    // Возврат count проданных билетов в доступные; false - если продано меньше count
+    boolean tryReturn(int count);
+
+    // Удержание count билетов: доступные уменьшаются, проданные не меняются; false - если билетов не хватает
+    boolean tryHold(int count);
+
+    // Удержанные count билетов становятся проданными (сколько удержано, проверяет вызывающий код)
+    void confirmHeld(int count);
+
+    // Удержанные count билетов снова доступны
+    void releaseHeld(int count);
+}
@@ -0,0 +1,7 @@
+package com.business_app;
+
+// Способ учета билетов премьеры
+public enum TicketInventoryMode {
+    ATOMIC, // Один атомарный счетчик - точен в любой момент, подходит для обычных премьер
+    SHARDED // Счетчик разбит на корзины по ядрам - для массовых продаж с очень большим числом покупателей
+}
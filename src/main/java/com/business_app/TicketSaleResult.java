@@ -0,0 +1,32 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// Итог продажи или возврата билетов: выполнена ли операция, на какую сумму и какой финансовой записью.
+// Повтор запроса с тем же ключом идемпотентности возвращает этот же объект
+@Getter
+@ToString
+public class TicketSaleResult {
+
+    private final boolean completed;
+    private final String premiereId;
+    private final int count;
+    private final long amountCents;
+    private final String financeRecordId; // null, если операция не выполнена или сумма нулевая
+    private final SeatBlock seats; // Проданные места; null - продажа без рассадки или не выполнена
+
+    public TicketSaleResult(boolean completed, String premiereId, int count, long amountCents, String financeRecordId) {
+        this(completed, premiereId, count, amountCents, financeRecordId, null);
+    }
+
+    public TicketSaleResult(boolean completed, String premiereId, int count, long amountCents, String financeRecordId,
+                            SeatBlock seats) {
+        this.completed = completed;
+        this.premiereId = premiereId;
+        this.count = count;
+        this.amountCents = amountCents;
+        this.financeRecordId = financeRecordId;
+        this.seats = seats;
+    }
+}
@@ -0,0 +1,162 @@
+package com.business_app;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+// Продажа и возврат билетов с ключом идемпотентности: клиент, повторивший запрос после таймаута,
+// получает первый результат, а билеты и финансовые записи не дублируются.
+// Ключи хранятся в ограниченном кэше (IdempotencyCache) в течение ttl; ключи продаж и возвратов
+// не пересекаются, а повтор ключа с другими параметрами отклоняется.
+@Slf4j
+public class TicketSalesService {
+
+    public static final int DEFAULT_MAX_KEYS = 1_000_000;
+    public static final Duration DEFAULT_KEY_TTL = Duration.ofHours(24);
+
+    private final FinanceManager financeManager;
+    private final IdempotencyCache<TicketSaleResult> processed;
+
+    public TicketSalesService(FinanceManager financeManager) {
+        this(financeManager, new IdempotencyCache<>(DEFAULT_MAX_KEYS, DEFAULT_KEY_TTL));
+    }
+
+    public TicketSalesService(FinanceManager financeManager, IdempotencyCache<TicketSaleResult> processed) {
+        if (financeManager == null) {
+            throw new IllegalArgumentException("Финансовый менеджер не может быть null.");
+        }
+        this.financeManager = financeManager;
+        this.processed = processed;
+    }
+
+    // Продажа count билетов; повтор с тем же ключом возвращает первый результат.
+    // Билеты сначала удерживаются и становятся проданными только после финансовой записи: если запись
+    // не удалась, удержание снимается, ключ не запоминается, и повтор продает билеты один раз
+    public TicketSaleResult sellTickets(String idempotencyKey, Premiere premiere, int count) {
+        checkPremiere(premiere);
+        return processed.execute("sale:" + idempotencyKey, describe(premiere, count), () -> {
+            if (!premiere.holdTickets(count)) {
+                log.warn("Недостаточно билетов для продажи {} билетов премьеры {}", count, premiere.getId());
+                return new TicketSaleResult(false, premiere.getId(), count, 0, null);
+            }
+            long amount;
+            String recordId;
+            try {
+                amount = Money.multiply(premiere.getTicketPriceCents(), count);
+                recordId = record(FinanceType.INCOME, amount, "Продажа билетов на премьеру: " + premiere.getMovieTitle(),
+                        FinanceCategory.TICKET_SALE, premiere);
+            } catch (RuntimeException e) {
+                premiere.releaseHeldTickets(count);
+                throw e;
+            }
+            premiere.confirmHeldTickets(count);
+            return new TicketSaleResult(true, premiere.getId(), count, amount, recordId);
+        });
+    }
+
+    // Продажа count соседних мест (zoneName == null - по всему залу) по цене ценовой зоны их ряда.
+    // Как и при продаже билетов, места удерживаются до финансовой записи и при ее сбое освобождаются
+    public TicketSaleResult sellSeats(String idempotencyKey, Premiere premiere, int count, String zoneName) {
+        checkPremiere(premiere);
+        return processed.execute("seats:" + idempotencyKey, describe(premiere, count) + "@" + zoneName, () -> {
+            SeatBlock seats = premiere.holdSeats(count, zoneName);
+            if (seats == null) {
+                return new TicketSaleResult(false, premiere.getId(), count, 0, null);
+            }
+            long amount;
+            String recordId;
+            try {
+                amount = premiere.getSeatPriceCents(seats);
+                recordId = record(FinanceType.INCOME, amount, "Продажа мест на премьеру: " + premiere.getMovieTitle()
+                        + " (ряд " + seats.getRow() + ", мест: " + count + ")", FinanceCategory.TICKET_SALE, premiere);
+            } catch (RuntimeException e) {
+                premiere.releaseHeldSeats(seats);
+                throw e;
+            }
+            premiere.confirmHeldTickets(count);
+            return new TicketSaleResult(true, premiere.getId(), count, amount, recordId, seats);
+        });
+    }
+
+    // Возврат count билетов; повтор с тем же ключом возвращает первый результат и не возвращает деньги дважды.
+    // Сначала записывается расход, затем возвращаются билеты: возвращенные билеты сразу могут достаться
+    // листу ожидания и обратно не забираются, а запись о расходе при неудачном возврате удаляется
+    public TicketSaleResult returnTickets(String idempotencyKey, Premiere premiere, int count) {
+        checkPremiere(premiere);
+        return processed.execute("refund:" + idempotencyKey, describe(premiere, count), () -> {
+            if (count <= 0 || count > premiere.getTicketSold()) {
+                throw new IllegalArgumentException("Ошибка при возврате билетов: Невозможно вернуть " + count
+                        + " билетов, продано " + premiere.getTicketSold() + ".");
+            }
+            long amount = Money.multiply(premiere.getTicketPriceCents(), count);
+            String recordId = record(FinanceType.EXPENSE, amount, "Возврат билетов на премьеру: " + premiere.getMovieTitle(),
+                    FinanceCategory.TICKET_REFUND, premiere);
+            try {
+                premiere.returnTickets(count, premiere.getTicketSold(), true);
+            } catch (RuntimeException e) {
+                // Билеты успел вернуть параллельный запрос - деньги по этому запросу не возвращаются
+                discard(recordId);
+                throw e;
+            }
+            return new TicketSaleResult(true, premiere.getId(), count, amount, recordId);
+        });
+    }
+
+    // Запись в лист ожидания. Когда заявке выделят билеты (обычно при чужом возврате, в потоке возврата),
+    // продажа записывается в финансы так же, как обычная, а покупатель получает уведомление onAllocated
+    public WaitlistEntry joinWaitlist(Premiere premiere, String buyer, int count, Consumer<WaitlistEntry> onAllocated) {
+        checkPremiere(premiere);
+        WaitlistEntry entry = premiere.joinWaitlist(buyer, count);
+        entry.getAllocation().thenAccept(allocated -> {
+            try {
+                long amount = Money.multiply(premiere.getTicketPriceCents(), allocated.getCount());
+                record(FinanceType.INCOME, amount, "Продажа билетов на премьеру: " + premiere.getMovieTitle()
+                        + " (лист ожидания, покупатель: " + allocated.getBuyer() + ")", FinanceCategory.TICKET_SALE, premiere);
+            } catch (RuntimeException e) {
+                // Билеты уже у покупателя: ошибку записи не скрываем, но уведомление отправляем
+                log.error("Продажа по листу ожидания премьеры {} не записана: {}", premiere.getId(), e.getMessage());
+            }
+            log.info("Покупателю {} выделено {} билетов на премьеру {} из листа ожидания",
+                    allocated.getBuyer(), allocated.getCount(), premiere.getId());
+            if (onAllocated != null) {
+                onAllocated.accept(allocated);
+            }
+        });
+        return entry;
+    }
+
+    private String record(FinanceType type, long amount, String description, FinanceCategory category, Premiere premiere) {
+        if (amount <= 0) {
+            return null; // Бесплатные билеты финансовых записей не дают
+        }
+        String recordId = financeManager.nextRecordId();
+        // Если запись не сохранилась на диск, FinanceManager сам убирает ее из памяти
+        financeManager.addFinanceRecord(FinanceRecord.ofCents(recordId, type, amount, description, LocalDate.now(),
+                category, premiere.getId()));
+        return recordId;
+    }
+
+    // Удаление финансовой записи операции, которая не состоялась
+    private void discard(String recordId) {
+        if (recordId == null || financeManager.findFinanceRecordById(recordId) == null) {
+            return;
+        }
+        try {
+            financeManager.removeFinanceRecord(recordId);
+        } catch (RuntimeException e) {
+            log.error("Не удалось удалить запись {} несостоявшейся операции: {}", recordId, e.getMessage());
+        }
+    }
+
+    private static String describe(Premiere premiere, int count) {
+        return premiere.getId() + "×" + count;
+    }
+
+    private static void checkPremiere(Premiere premiere) {
+        if (premiere == null) {
+            throw new IllegalArgumentException("Премьера не может быть null.");
+        }
+    }
+}
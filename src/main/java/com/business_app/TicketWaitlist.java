@@ -0,0 +1,75 @@
+package com.business_app;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+// Лист ожидания премьеры: очередь заявок без блокировок (ConcurrentLinkedQueue).
+// После каждого возврата билетов (и каждой новой заявки) очередь разбирается с головы: первая заявка получает
+// билеты, если их хватает на нее целиком; иначе разбор останавливается - заявки не обгоняют друг друга.
+// Разбирает очередь только один поток за раз: счетчик work считает запросы на разбор, и поток, который
+// поднял его с нуля, повторяет проход, пока запросы не кончатся. Поэтому один билет не выделяется двум
+// заявкам, а возврат, пришедший во время разбора, не теряется. Работа одного разбора пропорциональна
+// числу выделенных (и пропущенных отмененных) заявок, а не длине очереди.
+public class TicketWaitlist {
+
+    private final Queue<WaitlistEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger work = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    private final IntPredicate trySell;
+    private final IntPredicate tryReturn;
+
+    // trySell/tryReturn - атомарные продажа и возврат билетов премьеры
+    public TicketWaitlist(IntPredicate trySell, IntPredicate tryReturn) {
+        this.trySell = trySell;
+        this.tryReturn = tryReturn;
+    }
+
+    public WaitlistEntry join(String buyer, int count) {
+        WaitlistEntry entry = new WaitlistEntry(buyer, count);
+        size.incrementAndGet();
+        queue.add(entry);
+        drain(); // Билеты могли освободиться до того, как заявка встала в очередь
+        return entry;
+    }
+
+    public boolean hasWaiters() {
+        return queue.peek() != null;
+    }
+
+    // Количество заявок в очереди (включая отмененные, еще не дошедшие до головы)
+    public int size() {
+        return size.get();
+    }
+
+    // Разбор очереди после освобождения билетов или отмены заявки
+    public void drain() {
+        if (work.getAndIncrement() != 0) {
+            return; // Очередь уже разбирает другой поток - он сделает еще один проход
+        }
+        int missed = 1;
+        do {
+            WaitlistEntry head;
+            while ((head = queue.peek()) != null) {
+                if (head.getStatus() == WaitlistEntry.Status.CANCELLED) {
+                    remove();
+                    continue;
+                }
+                if (!trySell.test(head.getCount())) {
+                    break; // Билетов на первую заявку не хватает - ждем следующего возврата
+                }
+                if (!head.allocate()) {
+                    tryReturn.test(head.getCount()); // Заявку отменили в последний момент - билеты обратно
+                }
+                remove();
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void remove() {
+        queue.poll();
+        size.decrementAndGet();
+    }
+}
@@ -0,0 +1,114 @@
+package com.business_app;
+
+import java.util.function.Consumer;
+
+// Иерархическое колесо таймеров: LEVELS уровней по 64 ячейки, время измеряется в тиках.
+// Элемент со сроком через delay тиков попадает на уровень, где 64^уровень <= delay < 64^(уровень+1),
+// в ячейку по соответствующим разрядам срока. Добавление - O(1); на каждом тике срабатывает одна ячейка
+// нижнего уровня, и раз в 64 тика ячейка следующего уровня переносится ниже (каскад).
+// Поэтому истекшие элементы находятся без обхода всех элементов. Не потокобезопасен: синхронизирует владелец.
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    public static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final Node<T>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long startTick) {
+        this.slots = (Node<T>[][]) new Node<?>[LEVELS][SLOTS]; // Массив параметризованного типа создать нельзя
+        this.currentTick = startTick;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Добавление элемента со сроком deadlineTick; просроченный элемент сработает на следующем тике
+    public void add(T item, long deadlineTick) {
+        if (deadlineTick - currentTick > MAX_DELAY_TICKS) {
+            throw new IllegalArgumentException("Срок таймера слишком далек: " + (deadlineTick - currentTick) + " тиков.");
+        }
+        // Ячейка текущего тика уже обработана: просроченный элемент переносим на следующий тик
+        place(new Node<>(item, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    // Продвижение времени до тика tick включительно; сработавшие элементы передаются в expired
+    public void advanceTo(long tick, Consumer<? super T> expired) {
+        while (currentTick < tick) {
+            if (size == 0) {
+                currentTick = tick; // Пустое колесо: пропускаем тики разом
+                return;
+            }
+            currentTick++;
+            cascade();
+            Node<T> node = slots[0][(int) currentTick & SLOT_MASK];
+            slots[0][(int) currentTick & SLOT_MASK] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                if (node.deadline <= currentTick) {
+                    size--;
+                    expired.accept(node.item);
+                } else {
+                    place(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    // Перенос ячеек верхних уровней, чей интервал начинается с текущего тика (сначала самый верхний)
+    private void cascade() {
+        int level = 0;
+        while (level + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        for (; level > 0; level--) {
+            int slot = (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+            Node<T> node = slots[level][slot];
+            slots[level][slot] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                place(node);
+                node = next;
+            }
+        }
+    }
+
+    private void place(Node<T> node) {
+        long delay = node.deadline - currentTick;
+        int level = 0;
+        int slot;
+        if (delay <= 0) {
+            slot = (int) currentTick & SLOT_MASK; // Каскад к текущему тику: ячейка будет обработана сразу после него
+        } else {
+            while (level + 1 < LEVELS && delay >= 1L << (SLOT_BITS * (level + 1))) {
+                level++;
+            }
+            slot = (int) (node.deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        }
+        node.next = slots[level][slot];
+        slots[level][slot] = node;
+    }
+
+    private static final class Node<T> {
+        private final T item;
+        private final long deadline;
+        private Node<T> next;
+
+        private Node(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.business_app;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Заявка в листе ожидания распроданной премьеры: покупатель и нужное количество билетов.
+// Когда билеты освобождаются, заявка получает их целиком, и future getAllocation() завершается
+@Getter
+@ToString
+public class WaitlistEntry {
+
+    public enum Status {
+        WAITING,   // Ждет освобождения билетов
+        ALLOCATED, // Билеты выделены (проданы покупателю)
+        CANCELLED  // Покупатель ушел из очереди
+    }
+
+    private final String buyer;
+    private final int count;
+    @ToString.Exclude
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.WAITING);
+    @ToString.Exclude
+    private final CompletableFuture<WaitlistEntry> allocation = new CompletableFuture<>();
+
+    public WaitlistEntry(String buyer, int count) {
+        if (buyer == null || buyer.trim().isEmpty()) {
+            throw new IllegalArgumentException("Покупатель не может быть пустым.");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Количество билетов должно быть положительным.");
+        }
+        this.buyer = buyer;
+        this.count = count;
+    }
+
+    @ToString.Include(name = "status")
+    public Status getStatus() {
+        return status.get();
+    }
+
+    // Отмена заявки; false - если билеты уже выделены
+    public boolean cancel() {
+        if (status.compareAndSet(Status.WAITING, Status.CANCELLED)) {
+            allocation.cancel(false);
+            return true;
+        }
+        return status.get() == Status.CANCELLED;
+    }
+
+    boolean allocate() {
+        if (status.compareAndSet(Status.WAITING, Status.ALLOCATED)) {
+            allocation.complete(this);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package com.business_app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Пропускная способность групповых покупок: потоки покупают корзины из 2-4 премьер, выбранных из небольшого
+// набора, поэтому корзины постоянно пересекаются. Сравнивается CartPurchaseService и та же покупка
+// под одной общей блокировкой. Финансовые записи каждой корзины пишутся в журнал (с fsync) в обоих вариантах.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.CartPurchaseBenchmark
+//         -Dbenchmark.args="4000 8"
+public class CartPurchaseBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8, 64};
+
+    public static void main(String[] args) throws Exception {
+        int carts = args.length < 1 ? 4_000 : Integer.parseInt(args[0]);
+        int premiereCount = args.length < 2 ? 8 : Integer.parseInt(args[1]);
+        System.out.println("Корзин за раунд: " + carts + ", премьер: " + premiereCount
+                + ", ядер: " + Runtime.getRuntime().availableProcessors());
+        for (int threads : THREAD_COUNTS) {
+            double optimistic = run(threads, carts, premiereCount, false);
+            double locked = run(threads, carts, premiereCount, true);
+            System.out.printf("  потоков %2d: без общей блокировки %8.0f корзин/с, с общей блокировкой %8.0f корзин/с%n",
+                    threads, optimistic, locked);
+        }
+    }
+
+    private static double run(int threads, int carts, int premiereCount, boolean globalLock) throws Exception {
+        Path directory = Files.createTempDirectory("cart-benchmark");
+        List<Premiere> premieres = new ArrayList<>();
+        for (int i = 0; i < premiereCount; i++) {
+            premieres.add(new Premiere("bench-cart-" + i, "Фильм " + i, ZonedDateTime.now().plusDays(1), "Зал", carts * 12));
+        }
+        Object lock = new Object();
+        AtomicInteger purchased = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long elapsed;
+        try (FinanceManager financeManager = new FinanceManager(directory)) {
+            CartPurchaseService service = new CartPurchaseService(financeManager);
+            for (int t = 0; t < threads; t++) {
+                int share = carts / threads + (t < carts % threads ? 1 : 0);
+                int seed = t;
+                Thread worker = new Thread(() -> {
+                    Random random = new Random(seed);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < share; i++) {
+                        TicketCart cart = new TicketCart();
+                        int lines = 2 + random.nextInt(3);
+                        for (int line = 0; line < lines; line++) {
+                            cart.add(premieres.get(random.nextInt(premieres.size())), 1 + random.nextInt(3));
+                        }
+                        boolean done;
+                        if (globalLock) {
+                            synchronized (lock) {
+                                done = service.purchase(cart).isPurchased();
+                            }
+                        } else {
+                            done = service.purchase(cart).isPurchased();
+                        }
+                        if (done) {
+                            purchased.incrementAndGet();
+                        }
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            elapsed = System.nanoTime() - started;
+
+            long soldCents = 0;
+            for (Premiere premiere : premieres) {
+                soldCents += premiere.getTicketSold() * premiere.getTicketPriceCents();
+            }
+            if (purchased.get() != carts || soldCents != financeManager.getCategoryTotalCents(FinanceCategory.TICKET_SALE)) {
+                throw new IllegalStateException("Продажи и финансовые записи разошлись");
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+        return carts * 1e9 / elapsed;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+}
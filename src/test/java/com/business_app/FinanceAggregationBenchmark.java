@@ -0,0 +1,64 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Масштабирование параллельной группировки по числу потоков: тип × месяц × премьера × категория.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.FinanceAggregationBenchmark
+//         -Dbenchmark.args="5000000"
+public class FinanceAggregationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int rows = args.length == 0 ? 2_000_000 : Integer.parseInt(args[0]);
+        int maxThreads = args.length < 2 ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[1]);
+        List<FinanceRecord> records = new ArrayList<>(rows);
+        FinanceStorageBenchmark.fill(rows, records::add);
+        System.out.println("Строк: " + rows + ", ядер: " + Runtime.getRuntime().availableProcessors());
+
+        List<FinanceAggregate> reference = null;
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<FinanceAggregate> result = null;
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    result = FinanceAggregator.aggregate(records, pool, FinanceDimension.values());
+                }
+                long started = System.nanoTime();
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    result = FinanceAggregator.aggregate(records, pool, FinanceDimension.values());
+                }
+                double millis = (System.nanoTime() - started) / 1e6 / MEASURED_ROUNDS;
+                if (reference == null) {
+                    reference = result;
+                    baseline = millis;
+                } else if (!sameResult(reference, result)) {
+                    throw new IllegalStateException("Результат при " + threads + " потоках отличается от однопоточного.");
+                }
+                System.out.printf("  потоков %3d: %8.1f мс, ускорение %5.2fx, групп %d%n",
+                        threads, millis, baseline / millis, result.size());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static boolean sameResult(List<FinanceAggregate> expected, List<FinanceAggregate> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            FinanceAggregate a = expected.get(i);
+            FinanceAggregate b = actual.get(i);
+            if (!a.getKey().equals(b.getKey()) || a.getCount() != b.getCount()
+                    || a.getIncomeCents() != b.getIncomeCents() || a.getExpensesCents() != b.getExpensesCents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
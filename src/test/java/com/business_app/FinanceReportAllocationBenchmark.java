@@ -0,0 +1,79 @@
+package com.business_app;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Выделения памяти на строку отчета: старый способ (склейка строк + getBytes) против потокового кодировщика.
+// Байты считает JVM по текущему потоку (com.sun.management.ThreadMXBean.getThreadAllocatedBytes).
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.FinanceReportAllocationBenchmark
+//         -Dbenchmark.args="1000000"
+public class FinanceReportAllocationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length == 0 ? 1_000_000 : Integer.parseInt(args[0]);
+        List<FinanceRecord> records = new ArrayList<>(rows);
+        FinanceStorageBenchmark.fill(rows, records::add);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        System.out.println("Строк: " + rows);
+
+        MemoryReportSink legacySink = new MemoryReportSink(ReportFormat.CSV);
+        MemoryReportSink csvSink = new MemoryReportSink(ReportFormat.CSV);
+        MemoryReportSink jsonSink = new MemoryReportSink(ReportFormat.JSON_LINES);
+        FinanceReportEncoder encoder = new FinanceReportEncoder();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            writeLegacy(records, legacySink);
+            writeEncoded(encoder, records, List.of(csvSink, jsonSink));
+        }
+
+        long legacyBytes = 0;
+        long legacyNanos = 0;
+        long encodedBytes = 0;
+        long encodedNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long started = System.nanoTime();
+            writeLegacy(records, legacySink);
+            legacyNanos += System.nanoTime() - started;
+            legacyBytes += threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            started = System.nanoTime();
+            writeEncoded(encoder, records, List.of(csvSink, jsonSink));
+            encodedNanos += System.nanoTime() - started;
+            encodedBytes += threads.getThreadAllocatedBytes(threadId) - allocated;
+        }
+        long measuredRows = (long) rows * MEASURED_ROUNDS;
+        System.out.printf("  склейка строк (CSV):      %8.1f байт/строку, %6.1f нс/строку%n",
+                (double) legacyBytes / measuredRows, (double) legacyNanos / measuredRows);
+        System.out.printf("  кодировщик (CSV + JSON):  %8.1f байт/строку, %6.1f нс/строку%n",
+                (double) encodedBytes / measuredRows, (double) encodedNanos / measuredRows);
+    }
+
+    // Прежний экспорт: строка на запись через конкатенацию и Money.format, затем перевод в байты
+    private static void writeLegacy(List<FinanceRecord> records, MemoryReportSink sink) throws IOException {
+        sink.reset();
+        for (FinanceRecord record : records) {
+            String line = record.getId() + ", " + record.getType() + ", " + Money.format(record.getAmountCents()) + ", "
+                    + record.getDescription() + ", " + record.getDate() + "\n";
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            sink.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeEncoded(FinanceReportEncoder encoder, List<FinanceRecord> records,
+                                     List<MemoryReportSink> sinks) throws IOException {
+        for (MemoryReportSink sink : sinks) {
+            sink.reset();
+        }
+        encoder.writeReport(records, sinks);
+    }
+}
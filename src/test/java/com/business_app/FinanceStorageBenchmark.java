@@ -0,0 +1,83 @@
+package com.business_app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Сравнение памяти, занимаемой журналом при разных способах хранения:
+// ArrayList<FinanceRecord> (исходный вариант), ObjectFinanceStore и ColumnarFinanceStore.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.FinanceStorageBenchmark
+//         -Dbenchmark.args="1000000 10000000" -Dbenchmark.heap=6g
+public class FinanceStorageBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int rows : sizes) {
+            System.out.println("Строк: " + rows);
+            measure("ArrayList<FinanceRecord>", rows, ArrayList::new, List::add);
+            measure("ObjectFinanceStore", rows, ObjectFinanceStore::new, FinanceStore::add);
+            measure("ColumnarFinanceStore", rows, ColumnarFinanceStore::new, FinanceStore::add);
+        }
+    }
+
+    private static <T> void measure(String name, int rows, Supplier<T> factory, Adder<T> adder) {
+        long before = usedHeap();
+        T storage = factory.get();
+        long started = System.nanoTime();
+        fill(rows, record -> adder.add(storage, record));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        long used = usedHeap() - before;
+        System.out.printf("  %-26s %8.1f МБ, %5.1f байт/строка, заполнение %d мс%n",
+                name, used / (1024.0 * 1024.0), (double) used / rows, elapsedMillis);
+        if (storage.hashCode() == 42) {
+            System.out.println(); // Удерживаем хранилище до замера памяти
+        }
+    }
+
+    // Синтетический журнал: продажи и возвраты по 200 премьерам и немного ручных записей
+    static void fill(int rows, Consumer<FinanceRecord> sink) {
+        FinanceRecordIdGenerator generator = new FinanceRecordIdGenerator(1);
+        String[] sales = new String[200];
+        String[] refunds = new String[200];
+        String[] premiereIds = new String[200];
+        for (int i = 0; i < sales.length; i++) {
+            sales[i] = "Продажа билетов на премьеру: Фильм " + i;
+            refunds[i] = "Возврат билетов на премьеру: Фильм " + i;
+            premiereIds[i] = Integer.toString(i);
+        }
+        String[] manual = {"Аренда зала", "Реклама", "Зарплата", "Кейтеринг"};
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            int premiere = i % 200;
+            FinanceRecord record;
+            if (i % 10 == 9) {
+                record = new FinanceRecord(generator.nextIdString(), FinanceType.EXPENSE, 100 + i % 5000,
+                        manual[i % manual.length], start.plusDays(i % 730));
+            } else if (i % 10 == 8) {
+                record = new FinanceRecord(generator.nextIdString(), FinanceType.EXPENSE, 10 * (1 + i % 4),
+                        refunds[premiere], start.plusDays(i % 730), FinanceCategory.TICKET_REFUND, premiereIds[premiere]);
+            } else {
+                record = new FinanceRecord(generator.nextIdString(), FinanceType.INCOME, 10 * (1 + i % 8),
+                        sales[premiere], start.plusDays(i % 730), FinanceCategory.TICKET_SALE, premiereIds[premiere]);
+            }
+            sink.accept(record);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface Adder<T> {
+        void add(T storage, FinanceRecord record);
+    }
+}
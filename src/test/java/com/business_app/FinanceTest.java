@@ -1,15 +1,57 @@
 package com.business_app;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -18,11 +60,20 @@ public class FinanceTest {
     private FinanceManager financeManager;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
+        // Удаляем файлы, оставшиеся от предыдущих тестов, чтобы каждый тест начинался с пустого журнала
+        Files.deleteIfExists(Paths.get("finance_records.csv"));
+        Files.deleteIfExists(Paths.get(FinanceJournal.JOURNAL_FILE_NAME));
+        Files.deleteIfExists(Paths.get(FinanceJournal.SNAPSHOT_FILE_NAME));
         // Создаем новый объект FinanceManager перед каждым тестом
         financeManager = new FinanceManager();
     }
 
+    @AfterEach
+    void tearDown() {
+        financeManager.close();
+    }
+
     // Параметризованный тест для добавления записи
     @ParameterizedTest
     @CsvSource({
@@ -266,4 +317,1433 @@ public class FinanceTest {
         // Act: экспорт в CSV
         //financeManager.exportToCSV();  // проверяем, что метод не вызывает ошибок
     }
+
+    // Тестируем, что итоги поддерживаются инкрементально и совпадают с пересчетом с нуля
+    @Test
+    void testRunningTotalsStayConsistent() {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        financeManager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 0.1, "Tickets", date));
+        financeManager.addFinanceRecord(new FinanceRecord("2", FinanceType.INCOME, 0.2, "Tickets", date));
+        financeManager.addFinanceRecord(new FinanceRecord("3", FinanceType.EXPENSE, 150.25, "Rent", date));
+        financeManager.addPremiereBudget(new Premiere("10", "Titanic", ZonedDateTime.now(), "Cinema City", 100), 500.0);
+
+        assertEquals(500.3, financeManager.calculateTotalIncome(), 0.0001);
+        assertEquals(150.25, financeManager.calculateTotalExpenses(), 0.0001);
+        assertTrue(financeManager.verifyTotals());
+
+        // Act: удаляем записи и проверяем, что итоги вернулись к точным значениям без дрейфа
+        financeManager.removeFinanceRecord("1");
+        financeManager.removeFinanceRecord("2");
+        financeManager.removeFinanceRecord("3");
+
+        assertEquals(500.0, financeManager.calculateTotalIncome());
+        assertEquals(0.0, financeManager.calculateTotalExpenses());
+        assertTrue(financeManager.verifyTotals());
+    }
+
+    // Тестируем поиск, обновление и защиту от повторяющихся ID в индексе
+    @Test
+    void testRecordIndexLookupUpdateAndDuplicate() {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        financeManager.addFinanceRecord(new FinanceRecord("1", FinanceType.EXPENSE, 200.0, "Groceries", date));
+
+        assertEquals("Groceries", financeManager.findFinanceRecordById("1").getDescription());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                financeManager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 50.0, "Duplicate", date)));
+        assertEquals("Запись с таким ID уже существует.", exception.getMessage());
+
+        financeManager.updateFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 75.0, "Refund", date));
+        assertEquals(75.0, financeManager.calculateTotalIncome());
+        assertEquals(0.0, financeManager.calculateTotalExpenses());
+        assertTrue(financeManager.verifyTotals());
+
+        // Запись без ID получает ID от генератора
+        FinanceRecord withoutId = new FinanceRecord(null, FinanceType.INCOME, 10.0, "Tickets", date);
+        financeManager.addFinanceRecord(withoutId);
+        assertEquals(withoutId, financeManager.findFinanceRecordById(withoutId.getId()));
+    }
+
+    // Тестируем, что генератор ID выдает уникальные и возрастающие значения из нескольких потоков
+    @Test
+    void testIdGeneratorUniqueAcrossThreads() throws InterruptedException {
+        FinanceRecordIdGenerator generator = new FinanceRecordIdGenerator(7);
+        int threads = 8;
+        int perThread = 20_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicBoolean monotonic = new AtomicBoolean(true);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                long previous = Long.MIN_VALUE;
+                for (int i = 0; i < perThread; i++) {
+                    long id = generator.nextId();
+                    if (id <= previous) {
+                        monotonic.set(false);
+                    }
+                    previous = id;
+                    ids.add(id);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(monotonic.get(), "ID должны возрастать в пределах потока");
+        assertEquals(threads * perThread, ids.size());
+
+        // После "перезапуска" с учетом сохраненного ID новые ID больше сохраненного
+        long maxId = ids.stream().mapToLong(Long::longValue).max().getAsLong();
+        FinanceRecordIdGenerator restarted = new FinanceRecordIdGenerator(7);
+        restarted.observe(Long.toString(maxId + (1L << 40)));
+        assertTrue(restarted.nextId() > maxId + (1L << 40));
+    }
+
+    // Тестируем восстановление записей из журнала после перезапуска
+    @Test
+    void testJournalRecoveryAfterRestart(@TempDir Path dataDirectory) {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 1000.0, "Salary, bonus", date));
+            manager.addFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 200.0, "Groceries", date));
+            manager.addFinanceRecord(new FinanceRecord("3", FinanceType.EXPENSE, 50.0, "Taxi", date));
+            manager.updateFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 250.0, "Groceries", date));
+            manager.removeFinanceRecord("3");
+        }
+
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(2, restored.getAllFinanceRecords().size());
+            assertEquals("Salary, bonus", restored.findFinanceRecordById("1").getDescription());
+            assertEquals(250.0, restored.calculateTotalExpenses());
+            assertTrue(restored.verifyTotals());
+        }
+    }
+
+    // Запись, добавление которой завершилось, уже на диске: копия каталога без flush/close ("сбой" сразу после
+    // возврата из методов) восстанавливается со всеми операциями
+    @Test
+    void testAcknowledgedOperationsSurviveCrashWithoutFlush(@TempDir Path dataDirectory, @TempDir Path crashCopy) throws IOException {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 1000.0, "Salary", date));
+            manager.addFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 200.0, "Groceries", date));
+            manager.updateFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 250.0, "Groceries", date));
+            manager.removeFinanceRecord("1");
+            Files.copy(dataDirectory.resolve(FinanceJournal.JOURNAL_FILE_NAME), crashCopy.resolve(FinanceJournal.JOURNAL_FILE_NAME));
+        }
+
+        try (FinanceManager restored = new FinanceManager(crashCopy)) {
+            assertEquals(1, restored.getAllFinanceRecords().size());
+            assertEquals(0.0, restored.calculateTotalIncome());
+            assertEquals(250.0, restored.calculateTotalExpenses());
+        }
+    }
+
+    // Тестируем сжатие журнала в снимок и дозапись после него
+    @Test
+    void testJournalCompactionIntoSnapshot(@TempDir Path dataDirectory) {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 1000.0, "Salary", date));
+            manager.compactJournal();
+            manager.addFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 200.0, "Groceries", date));
+            manager.removeFinanceRecord("1");
+        }
+        assertTrue(Files.exists(dataDirectory.resolve(FinanceJournal.SNAPSHOT_FILE_NAME)));
+
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(1, restored.getAllFinanceRecords().size());
+            assertEquals(0.0, restored.calculateTotalIncome());
+            assertEquals(200.0, restored.calculateTotalExpenses());
+        }
+    }
+
+    // Тестируем, что оборванная последняя запись журнала (сбой во время записи) отбрасывается
+    @Test
+    void testJournalRecoveryIgnoresTornTail(@TempDir Path dataDirectory) throws IOException {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 1000.0, "Salary", date));
+            manager.addFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 200.0, "Groceries", date));
+        }
+        Path journalFile = dataDirectory.resolve(FinanceJournal.JOURNAL_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(1, restored.getAllFinanceRecords().size());
+            restored.addFinanceRecord(new FinanceRecord("3", FinanceType.EXPENSE, 20.0, "Taxi", date));
+        }
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(2, restored.getAllFinanceRecords().size());
+            assertEquals(20.0, restored.calculateTotalExpenses());
+        }
+    }
+
+    // Тестируем потоковый разбор CSV: разделитель и кавычки в описании, экспонента, итоговые строки отчета
+    @Test
+    void testCsvLoaderParsesFieldsInPlace(@TempDir Path dataDirectory) throws IOException {
+        Files.write(dataDirectory.resolve("finance_records.csv"), List.of(
+                "ID, Тип, Сумма, Описание, Дата",
+                "Продажа билетов, 0.0, Доход от продажи билетов, 2025-02-11",
+                "1, INCOME, 1500.5, Продажа билетов на премьеру: Titanic, 2D, 2025-02-10",
+                "2, EXPENSE, 1.0E7, \"Аренда зала \"\"IMAX\"\"\", 2024-02-29",
+                "3, Бюджет, 0.1, Бюджет для премьеры: Avatar, 2025-12-31",
+                "4, UNKNOWN, 10.0, Пропускаем, 2025-01-01"
+        ), StandardCharsets.UTF_8);
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            assertEquals(3, manager.getAllFinanceRecords().size());
+            FinanceRecord titanic = manager.findFinanceRecordById("1");
+            assertEquals("Продажа билетов на премьеру: Titanic, 2D", titanic.getDescription());
+            assertEquals(LocalDate.of(2025, 2, 10), titanic.getDate());
+            assertEquals(1.0E7, manager.findFinanceRecordById("2").getAmount());
+            assertEquals("Аренда зала \"IMAX\"", manager.findFinanceRecordById("2").getDescription());
+            assertEquals(LocalDate.of(2024, 2, 29), manager.findFinanceRecordById("2").getDate());
+            assertEquals(FinanceType.INCOME, manager.findFinanceRecordById("3").getType());
+            assertEquals(0.1, manager.findFinanceRecordById("3").getAmount());
+        }
+    }
+
+    // Старый CSV писал описания без экранирования: одиночная кавычка не склеивает следующие строки,
+    // а пропущенные строки считаются по одной
+    @Test
+    void testCsvLoaderKeepsRowsAfterStrayQuote(@TempDir Path dataDirectory) throws IOException {
+        Path file = dataDirectory.resolve("finance_records.csv");
+        Files.write(file, List.of(
+                "ID, Тип, Сумма, Описание, Дата",
+                "1, INCOME, 10.0, Премьера 12\" дюймов, 2025-01-01",
+                "2, EXPENSE, 5.0, Аренда зала, 2025-01-02",
+                "3, INCOME, 7.0, \"Незакрытая кавычка, 2025-01-03",
+                "4, UNKNOWN, 1.0, Пропускаем, 2025-01-04",
+                "5, INCOME, 3.0, Последняя, 2025-01-05"
+        ), StandardCharsets.UTF_8);
+
+        List<String> ids = new ArrayList<>();
+        FinanceCsvLoader.Result result = new FinanceCsvLoader().load(file,
+                (id, type, amountCents, description, epochDay) -> ids.add(id + ":" + description));
+        assertEquals(List.of("1:Премьера 12\" дюймов", "2:Аренда зала", "3:\"Незакрытая кавычка", "5:Последняя"), ids);
+        assertEquals(4, result.getRows());
+        assertEquals(1, result.getSkipped());
+    }
+
+    // Тестируем, что суммы и даты, разобранные из байтов, совпадают со стандартным разбором,
+    // а экспорт отчета снова читается без потерь
+    @Test
+    void testCsvLoaderMatchesStandardParsing(@TempDir Path dataDirectory) throws IOException {
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+        List<Double> amounts = new ArrayList<>();
+        List<LocalDate> dates = new ArrayList<>();
+        lines.add("ID, Тип, Сумма, Описание, Дата");
+        for (int i = 0; i < 2_000; i++) {
+            String amountText = (random.nextInt(10_000_000) + 1) + "." + random.nextInt(100);
+            LocalDate date = LocalDate.ofEpochDay(random.nextInt(60_000) - 10_000);
+            amounts.add(Double.parseDouble(amountText));
+            dates.add(date);
+            lines.add(i + ", EXPENSE, " + amountText + ", Запись " + i + ", " + date);
+        }
+        Files.write(dataDirectory.resolve("finance_records.csv"), lines, StandardCharsets.UTF_8);
+
+        List<FinanceRecord> parsed = new ArrayList<>();
+        FinanceCsvLoader.Result result = new FinanceCsvLoader().load(dataDirectory.resolve("finance_records.csv"),
+                (id, type, amountCents, description, epochDay) -> parsed.add(FinanceRecord.ofCents(id, type, amountCents,
+                        description, LocalDate.ofEpochDay(epochDay), FinanceCategory.MANUAL, null)));
+        assertEquals(2_000, result.getRows());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(amounts.get(i), parsed.get(i).getAmount());
+            assertEquals(dates.get(i), parsed.get(i).getDate());
+        }
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("quoted", FinanceType.INCOME, 5.0, "Строка с \"кавычками\"\nи переводом", dates.get(0)));
+            manager.generateFinanceReport(false);
+        }
+        Path copy = Files.createDirectory(dataDirectory.resolve("copy"));
+        Files.copy(dataDirectory.resolve("finance_records.csv"), copy.resolve("finance_records.csv"));
+        try (FinanceManager reloaded = new FinanceManager(copy)) {
+            assertEquals(2_001, reloaded.getAllFinanceRecords().size());
+            assertEquals("Строка с \"кавычками\"\nи переводом", reloaded.findFinanceRecordById("quoted").getDescription());
+        }
+    }
+
+    // Тестируем суммы и выборки по категориям, а также классификацию старых строк CSV
+    @Test
+    void testCategoryTotalsAndLegacyClassification(@TempDir Path dataDirectory) throws IOException {
+        Files.write(dataDirectory.resolve("finance_records.csv"), List.of(
+                "ID, Тип, Сумма, Описание, Дата",
+                "1, INCOME, 100.0, Продажа билетов на премьеру: Titanic, 2025-02-10",
+                "2, EXPENSE, 20.0, Возврат билетов на премьеру: Titanic, 2025-02-11",
+                "3, INCOME, 500.0, Бюджет для премьеры: Titanic, 2025-02-09",
+                "4, EXPENSE, 30.0, Аренда, 2025-02-09"
+        ), StandardCharsets.UTF_8);
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            assertEquals(FinanceCategory.TICKET_SALE, manager.findFinanceRecordById("1").getCategory());
+            assertEquals(FinanceCategory.PREMIERE_BUDGET, manager.findFinanceRecordById("3").getCategory());
+            assertEquals(100.0, manager.getTicketSales());
+            assertEquals(20.0, manager.getTicketRefunds());
+
+            // Новые записи несут категорию явно, описание на подсчет больше не влияет
+            manager.addFinanceRecord(new FinanceRecord("5", FinanceType.INCOME, 40.0, "Билеты: Avatar",
+                    LocalDate.of(2025, 2, 12), FinanceCategory.TICKET_SALE, "2"));
+            manager.removeFinanceRecord("1");
+            assertEquals(40.0, manager.getTicketSales());
+            assertEquals(1, manager.getRecordsByCategory(FinanceCategory.TICKET_SALE).size());
+            assertEquals("2", manager.getRecordsByCategory(FinanceCategory.TICKET_SALE).get(0).getPremiereId());
+            assertEquals(30.0, manager.getCategoryTotal(FinanceCategory.MANUAL));
+            assertTrue(manager.verifyTotals());
+        }
+
+        // Категория и премьера сохраняются в журнале
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(40.0, restored.getTicketSales());
+            assertEquals("2", restored.findFinanceRecordById("5").getPremiereId());
+        }
+    }
+
+    // Тестируем одинаковое поведение объектного и колоночного хранилища
+    @ParameterizedTest
+    @EnumSource(FinanceStorageMode.class)
+    void testStorageModesBehaveTheSame(FinanceStorageMode mode, @TempDir Path dataDirectory) {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory, mode)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                FinanceRecord record = new FinanceRecord(null, i % 3 == 0 ? FinanceType.EXPENSE : FinanceType.INCOME,
+                        1 + i % 50 + 0.25, "Запись " + i % 10, date.plusDays(i % 100),
+                        i % 2 == 0 ? FinanceCategory.TICKET_SALE : FinanceCategory.MANUAL, i % 2 == 0 ? "p" + i % 7 : null);
+                manager.addFinanceRecord(record);
+                ids.add(record.getId());
+            }
+            manager.addFinanceRecord(new FinanceRecord("legacy-1", FinanceType.INCOME, 5.0, "Ручная", date));
+            for (int i = 0; i < ids.size(); i += 4) {
+                manager.removeFinanceRecord(ids.get(i));
+            }
+            // Обновление со сменой категории
+            FinanceRecord changed = manager.findFinanceRecordById(ids.get(2));
+            manager.updateFinanceRecord(new FinanceRecord(changed.getId(), FinanceType.EXPENSE, 7.5, "Возврат",
+                    date, FinanceCategory.TICKET_REFUND, "p1"));
+
+            assertEquals(3_751, manager.getAllFinanceRecords().size());
+            assertEquals(ids.get(1), manager.getAllFinanceRecords().get(0).getId());
+            assertEquals(FinanceCategory.TICKET_REFUND, manager.findFinanceRecordById(ids.get(2)).getCategory());
+            assertEquals("p1", manager.getRecordsByCategory(FinanceCategory.TICKET_REFUND).get(0).getPremiereId());
+            assertEquals(1_249, manager.getRecordsByCategory(FinanceCategory.TICKET_SALE).size());
+            assertEquals(5.0, manager.findFinanceRecordById("legacy-1").getAmount());
+            assertFalse(manager.getAllFinanceRecords().stream().anyMatch(r -> r.getId().equals(ids.get(0))));
+            assertTrue(manager.verifyTotals());
+        }
+        try (FinanceManager restored = new FinanceManager(dataDirectory, mode)) {
+            assertEquals(3_751, restored.getAllFinanceRecords().size());
+            assertTrue(restored.verifyTotals());
+        }
+    }
+
+    // Колоночное хранилище: после удаления большинства строк они сжимаются, порядок, индексы и категории
+    // сохраняются; запись с недопустимой датой отклоняется без следа в хранилище
+    @Test
+    void testColumnarStoreCompactsDeletedRowsAndRejectsBadDates() {
+        ColumnarFinanceStore store = new ColumnarFinanceStore();
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        for (int i = 0; i < 6_000; i++) {
+            store.add(FinanceRecord.ofCents(i % 5 == 0 ? "ручная-" + i : Integer.toString(i), FinanceType.INCOME, 100 + i,
+                    "Запись " + i, date, i % 2 == 0 ? FinanceCategory.TICKET_SALE : FinanceCategory.MANUAL, "p" + i % 3));
+        }
+        for (int i = 0; i < 6_000; i++) {
+            if (i % 10 != 3 && i % 10 != 5) { // Остаются строки с i = 3, 5 (mod 10) - числовые и текстовые ID
+                store.remove(i % 5 == 0 ? "ручная-" + i : Integer.toString(i));
+            }
+        }
+        assertEquals(1_200, store.size());
+        List<FinanceRecord> live = new ArrayList<>();
+        store.forEach(live::add);
+        assertEquals("3", live.get(0).getId());
+        assertEquals("ручная-5", live.get(1).getId());
+        assertEquals("Запись 5", live.get(1).getDescription());
+        assertEquals("p2", live.get(1).getPremiereId());
+        assertEquals(105, store.get("ручная-5").getAmountCents());
+        assertEquals(1_200, store.getByCategory(FinanceCategory.MANUAL).size());
+        assertTrue(store.getByCategory(FinanceCategory.TICKET_SALE).isEmpty());
+        assertNull(store.get("4"));
+
+        FinanceRecord farFuture = FinanceRecord.ofCents("bad", FinanceType.INCOME, 100, "Дата", LocalDate.MAX,
+                FinanceCategory.MANUAL, null);
+        assertThrows(IllegalArgumentException.class, () -> store.add(farFuture));
+        assertFalse(store.contains("bad"));
+        assertEquals(1_200, store.size());
+        store.add(FinanceRecord.ofCents("after", FinanceType.EXPENSE, 7, "После сжатия", date, FinanceCategory.MANUAL, null));
+        assertEquals(1_201, store.size());
+        assertEquals("after", store.get("after").getId());
+    }
+
+    // Тестируем суммы за интервал дат: сверяем с полным перебором при добавлениях и удалениях
+    @Test
+    void testSumBetweenMatchesFullScan(@TempDir Path dataDirectory) {
+        Random random = new Random(7);
+        LocalDate origin = LocalDate.of(2025, 6, 1);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                // Даты в обе стороны на несколько лет - индекс расширяет диапазон дней
+                LocalDate date = origin.plusDays(random.nextInt(4_000) - 2_000);
+                FinanceRecord record = new FinanceRecord(null, random.nextBoolean() ? FinanceType.INCOME : FinanceType.EXPENSE,
+                        1 + random.nextInt(10_000) / 100.0, "Запись", date);
+                manager.addFinanceRecord(record);
+                ids.add(record.getId());
+                if (i % 5 == 0) {
+                    manager.removeFinanceRecord(ids.remove(random.nextInt(ids.size())));
+                }
+            }
+
+            for (int q = 0; q < 200; q++) {
+                LocalDate from = origin.plusDays(random.nextInt(5_000) - 2_500);
+                LocalDate to = from.plusDays(random.nextInt(1_500));
+                FinanceType type = q % 2 == 0 ? FinanceType.INCOME : FinanceType.EXPENSE;
+                long expected = 0;
+                for (FinanceRecord record : manager.getAllFinanceRecords()) {
+                    if (record.getType() == type && !record.getDate().isBefore(from) && !record.getDate().isAfter(to)) {
+                        expected += Math.round(record.getAmount() * 100);
+                    }
+                }
+                assertEquals(expected / 100.0, manager.sumBetween(from, to, type));
+            }
+            assertEquals(0.0, manager.sumBetween(origin, origin.minusDays(1), FinanceType.INCOME));
+            assertThrows(IllegalArgumentException.class, () -> manager.sumBetween(null, origin, FinanceType.INCOME));
+        }
+    }
+
+    // Дата вне поддерживаемого диапазона отклоняется проверкой до изменения хранилища, итогов и журнала
+    @Test
+    void testOutOfRangeDateIsRejectedBeforeAnyChange(@TempDir Path dataDirectory) {
+        LocalDate date = LocalDate.of(2025, 2, 10);
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 100.0, "Продажа", date));
+            assertThrows(IllegalArgumentException.class,
+                    () -> manager.addFinanceRecord(new FinanceRecord("2", FinanceType.INCOME, 5.0, "Далекое будущее", LocalDate.MAX)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> manager.updateFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 5.0, "Прошлое", LocalDate.of(1000, 1, 1))));
+            FinanceBatchResult batch = manager.addFinanceRecords(List.of(
+                    new FinanceRecord("3", FinanceType.EXPENSE, 7.0, "Аренда", date),
+                    new FinanceRecord("4", FinanceType.EXPENSE, 8.0, "Аренда", LocalDate.MIN)));
+            assertEquals(1, batch.getRejected().size());
+            assertEquals("4", batch.getRejected().get(0).getRecord().getId());
+
+            assertEquals(2, manager.getAllFinanceRecords().size());
+            assertEquals(100.0, manager.findFinanceRecordById("1").getAmount());
+            assertEquals(100.0, manager.sumBetween(FinanceRecord.MIN_DATE, FinanceRecord.MAX_DATE, FinanceType.INCOME));
+            assertTrue(manager.verifyTotals());
+        }
+        try (FinanceManager restored = new FinanceManager(dataDirectory)) {
+            assertEquals(2, restored.getAllFinanceRecords().size());
+            assertTrue(restored.verifyTotals());
+        }
+    }
+
+    // Тестируем помесячные и годовые итоги и сброс кэша закрытого периода при записи задним числом
+    @Test
+    void testRollupByMonthAndYear(@TempDir Path dataDirectory) {
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 100.0, "Продажа", LocalDate.of(2024, 1, 15)));
+            manager.addFinanceRecord(new FinanceRecord("2", FinanceType.EXPENSE, 40.0, "Аренда", LocalDate.of(2024, 1, 31)));
+            manager.addFinanceRecord(new FinanceRecord("3", FinanceType.INCOME, 25.5, "Продажа", LocalDate.of(2024, 3, 1)));
+            manager.addFinanceRecord(new FinanceRecord("4", FinanceType.EXPENSE, 10.0, "Аренда", LocalDate.of(2025, 2, 10)));
+
+            List<FinancePeriodTotals> months = manager.rollup(FinanceGranularity.MONTH);
+            assertEquals(3, months.size()); // Пустые месяцы пропускаются
+            assertEquals(LocalDate.of(2024, 1, 1), months.get(0).getPeriodStart());
+            assertEquals(100.0, months.get(0).getIncome());
+            assertEquals(40.0, months.get(0).getExpenses());
+            assertEquals(60.0, months.get(0).getNet());
+            assertEquals(LocalDate.of(2024, 3, 1), months.get(1).getPeriodStart());
+            assertEquals(LocalDate.of(2025, 2, 1), months.get(2).getPeriodStart());
+
+            List<FinancePeriodTotals> years = manager.rollup(FinanceGranularity.YEAR);
+            assertEquals(2, years.size());
+            assertEquals(125.5, years.get(0).getIncome());
+            assertEquals(10.0, years.get(1).getExpenses());
+
+            // Январь 2024 уже в кэше закрытых периодов - изменение задним числом должно его сбросить
+            manager.addFinanceRecord(new FinanceRecord("5", FinanceType.INCOME, 5.0, "Продажа", LocalDate.of(2024, 1, 2)));
+            manager.removeFinanceRecord("2");
+            FinancePeriodTotals january = manager.rollup(FinanceGranularity.MONTH).get(0);
+            assertEquals(105.0, january.getIncome());
+            assertEquals(0.0, january.getExpenses());
+            assertEquals(130.5, manager.rollup(FinanceGranularity.YEAR).get(0).getIncome());
+
+            // Интервал обрезает крайние периоды
+            List<FinancePeriodTotals> clipped = manager.rollup(FinanceGranularity.MONTH,
+                    LocalDate.of(2024, 1, 10), LocalDate.of(2024, 2, 20));
+            assertEquals(1, clipped.size());
+            assertEquals(100.0, clipped.get(0).getIncome());
+        }
+    }
+
+    // Тестируем групповой отчет: совпадение с последовательным подсчетом и независимость от числа потоков
+    @Test
+    void testParallelAggregationIsDeterministic(@TempDir Path dataDirectory) {
+        Random random = new Random(11);
+        List<FinanceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            boolean sale = random.nextBoolean();
+            records.add(new FinanceRecord(Integer.toString(i), sale ? FinanceType.INCOME : FinanceType.EXPENSE,
+                    1 + random.nextInt(100_000) / 100.0, "Запись", LocalDate.of(2024, 1, 1).plusDays(random.nextInt(400)),
+                    sale ? FinanceCategory.TICKET_SALE : FinanceCategory.MANUAL, sale ? "p" + random.nextInt(20) : null));
+        }
+
+        Map<FinanceGroupKey, Long> expected = new TreeMap<>();
+        for (FinanceRecord record : records) {
+            FinanceGroupKey key = new FinanceGroupKey(record.getType(), YearMonth.from(record.getDate()),
+                    record.getPremiereId(), null);
+            expected.merge(key, Math.round(record.getAmount() * 100), Long::sum);
+        }
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            List<FinanceAggregate> sequential = FinanceAggregator.aggregate(records, single,
+                    FinanceDimension.TYPE, FinanceDimension.MONTH, FinanceDimension.PREMIERE);
+            List<FinanceAggregate> parallel = FinanceAggregator.aggregate(records, many,
+                    FinanceDimension.TYPE, FinanceDimension.MONTH, FinanceDimension.PREMIERE);
+            assertEquals(expected.size(), sequential.size());
+            assertEquals(new ArrayList<>(expected.keySet()), sequential.stream().map(FinanceAggregate::getKey).toList());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(expected.get(sequential.get(i).getKey()),
+                        sequential.get(i).getIncomeCents() + sequential.get(i).getExpensesCents());
+                assertEquals(sequential.get(i).getKey(), parallel.get(i).getKey());
+                assertEquals(sequential.get(i).getNetCents(), parallel.get(i).getNetCents());
+                assertEquals(sequential.get(i).getCount(), parallel.get(i).getCount());
+            }
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            records.subList(0, 1_000).forEach(manager::addFinanceRecord);
+            List<FinanceAggregate> byType = manager.aggregate(FinanceDimension.TYPE);
+            assertEquals(2, byType.size());
+            assertEquals(FinanceType.INCOME, byType.get(0).getKey().getType());
+            assertEquals(manager.calculateTotalIncome(), byType.get(0).getIncome());
+            assertEquals(manager.calculateTotalExpenses(), byType.get(1).getExpenses());
+            assertEquals(1_000, byType.get(0).getCount() + byType.get(1).getCount());
+        }
+    }
+
+    // Группировка без типа: в группе доходы и расходы не смешиваются, чистый результат посчитан вручную
+    @Test
+    void testAggregationWithoutTypeKeepsIncomeAndExpensesApart() {
+        String premiere = "p1";
+        List<FinanceRecord> records = List.of(
+                FinanceRecord.ofCents("1", FinanceType.INCOME, 10_000, "Билеты", LocalDate.of(2024, 1, 5), FinanceCategory.TICKET_SALE, premiere),
+                FinanceRecord.ofCents("2", FinanceType.EXPENSE, 2_500, "Возврат", LocalDate.of(2024, 1, 9), FinanceCategory.TICKET_REFUND, premiere),
+                FinanceRecord.ofCents("3", FinanceType.EXPENSE, 4_000, "Аренда", LocalDate.of(2024, 1, 20), FinanceCategory.MANUAL, premiere),
+                FinanceRecord.ofCents("4", FinanceType.INCOME, 1_234, "Бюджет", LocalDate.of(2024, 2, 1), FinanceCategory.PREMIERE_BUDGET, premiere));
+
+        List<FinanceAggregate> byMonth = FinanceAggregator.aggregate(records, FinanceDimension.PREMIERE, FinanceDimension.MONTH);
+        assertEquals(2, byMonth.size());
+        FinanceAggregate january = byMonth.get(0);
+        assertEquals(YearMonth.of(2024, 1), january.getKey().getMonth());
+        assertEquals(3, january.getCount());
+        assertEquals(10_000, january.getIncomeCents());
+        assertEquals(6_500, january.getExpensesCents());
+        assertEquals(3_500, january.getNetCents()); // 100.00 - 25.00 - 40.00
+        assertEquals(1_234, byMonth.get(1).getNetCents());
+
+        FinanceAggregate total = FinanceAggregator.aggregate(records).get(0); // Без измерений - одна группа
+        assertEquals(4, total.getCount());
+        assertEquals(4_734, total.getNetCents());
+        assertEquals(47.34, total.getNet());
+    }
+
+    // Хранилища OBJECTS и COLUMNAR не потокобезопасны: FinanceManager выполняет изменения по одному,
+    // поэтому одновременные добавления и удаления из многих потоков не портят хранилище и итоги
+    @ParameterizedTest
+    @EnumSource(value = FinanceStorageMode.class, names = {"OBJECTS", "COLUMNAR"})
+    void testSingleThreadedStoresSurviveConcurrentWriters(FinanceStorageMode mode, @TempDir Path dataDirectory)
+            throws InterruptedException {
+        try (FinanceManager manager = new FinanceManager(dataDirectory, mode)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        FinanceRecord record = FinanceRecord.ofCents(null, i % 2 == 0 ? FinanceType.INCOME : FinanceType.EXPENSE,
+                                100 + i, "Запись " + i, LocalDate.of(2025, 1, 1).plusDays(i % 90), FinanceCategory.MANUAL, null);
+                        manager.addFinanceRecord(record);
+                        if (i % 5 == 0) {
+                            manager.removeFinanceRecord(record.getId());
+                        }
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertEquals(8 * 400, manager.getAllFinanceRecords().size());
+            assertEquals(8 * 400, new HashSet<>(manager.getAllFinanceRecords().stream()
+                    .map(FinanceRecord::getId).collect(Collectors.toList())).size());
+            assertTrue(manager.verifyTotals());
+        }
+    }
+
+    // Стресс-тест режима CONCURRENT: много потоков добавляют, обновляют и удаляют записи, читатель берет снимки.
+    // Итоги не должны терять обновлений, снимки должны быть согласованными, журнал - восстанавливаться.
+    @Test
+    void testConcurrentModeHasNoLostUpdates(@TempDir Path dataDirectory) throws Exception {
+        int threads = 8;
+        int recordsPerThread = 3_000;
+        Map<String, int[]> origin = new ConcurrentHashMap<>(); // ID -> {поток, номер записи}
+        List<String> snapshotErrors = Collections.synchronizedList(new ArrayList<>());
+        long expectedIncome;
+        long expectedExpenses;
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory, FinanceStorageMode.CONCURRENT)) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        FinanceRecord record = new FinanceRecord(null, i % 2 == 0 ? FinanceType.INCOME : FinanceType.EXPENSE,
+                                1 + i % 100, "Поток " + thread, LocalDate.of(2025, 1, 1).plusDays(i % 365));
+                        manager.addFinanceRecord(record);
+                        origin.put(record.getId(), new int[]{thread, i});
+                        if (i % 7 == 0) {
+                            // Обновление: сумма увеличивается на 0.5
+                            manager.updateFinanceRecord(new FinanceRecord(record.getId(), record.getType(),
+                                    record.getAmount() + 0.5, record.getDescription(), record.getDate()));
+                        }
+                        if (i % 10 == 0) {
+                            manager.removeFinanceRecord(record.getId());
+                        }
+                    }
+                }));
+            }
+            Thread reader = new Thread(() -> {
+                while (writing.get()) {
+                    List<FinanceRecord> snapshot = manager.getAllFinanceRecords();
+                    // Каждый поток выполняет свои операции по порядку, а снимок - префикс общего журнала,
+                    // поэтому из сохраняемых записей потока видны ровно все с номером не больше максимального
+                    int[] maxKept = new int[threads];
+                    int[] keptCount = new int[threads];
+                    Arrays.fill(maxKept, -1);
+                    Set<String> seen = new HashSet<>();
+                    for (FinanceRecord record : snapshot) {
+                        if (!seen.add(record.getId())) {
+                            snapshotErrors.add("Повтор ID в снимке: " + record.getId());
+                        }
+                        int[] position = origin.get(record.getId());
+                        if (position != null && position[1] % 10 != 0) {
+                            maxKept[position[0]] = Math.max(maxKept[position[0]], position[1]);
+                            keptCount[position[0]]++;
+                        }
+                    }
+                    for (int t = 0; t < threads; t++) {
+                        int expected = maxKept[t] + 1 - (maxKept[t] + 10) / 10; // Номера 0..max без кратных 10
+                        if (keptCount[t] != expected) {
+                            snapshotErrors.add("Снимок не согласован для потока " + t);
+                        }
+                    }
+                }
+            });
+            writers.forEach(Thread::start);
+            reader.start();
+            start.countDown();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            writing.set(false);
+            reader.join();
+
+            long income = 0;
+            long expenses = 0;
+            int live = 0;
+            for (int i = 0; i < recordsPerThread; i++) {
+                if (i % 10 == 0) {
+                    continue;
+                }
+                long cents = (1 + i % 100) * 100L + (i % 7 == 0 ? 50 : 0);
+                if (i % 2 == 0) {
+                    income += cents;
+                } else {
+                    expenses += cents;
+                }
+                live++;
+            }
+            expectedIncome = income * threads;
+            expectedExpenses = expenses * threads;
+
+            assertTrue(snapshotErrors.isEmpty(), () -> snapshotErrors.get(0));
+            assertEquals(live * threads, manager.getAllFinanceRecords().size());
+            assertEquals(expectedIncome / 100.0, manager.calculateTotalIncome());
+            assertEquals(expectedExpenses / 100.0, manager.calculateTotalExpenses());
+            assertEquals(expectedIncome / 100.0, manager.sumBetween(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31),
+                    FinanceType.INCOME));
+            assertTrue(manager.verifyTotals());
+        }
+
+        // Снимки сжатия строились лениво во время записи - состояние должно восстановиться полностью
+        try (FinanceManager restored = new FinanceManager(dataDirectory, FinanceStorageMode.CONCURRENT)) {
+            assertEquals(expectedIncome / 100.0, restored.calculateTotalIncome());
+            assertEquals(expectedExpenses / 100.0, restored.calculateTotalExpenses());
+            assertTrue(restored.verifyTotals());
+        }
+    }
+
+    // Тестируем снимки хранилища CONCURRENT при одновременных заменах и удалениях: ни один ID не повторяется
+    @Test
+    void testConcurrentStoreSnapshotsNeverRepeatIds() throws Exception {
+        ConcurrentFinanceStore store = new ConcurrentFinanceStore();
+        int writers = 4;
+        int idsPerWriter = 50;
+        LocalDate date = LocalDate.of(2025, 3, 1);
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < idsPerWriter; i++) {
+                store.add(FinanceRecord.ofCents(w + "-" + i, FinanceType.INCOME, 100, "Запись", date, FinanceCategory.MANUAL, null));
+            }
+        }
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            // Каждый писатель работает со своими ID, как при блокировках по ID в FinanceManager
+            threads.add(new Thread(() -> {
+                for (int round = 0; round < 2_000; round++) {
+                    for (int i = 0; i < idsPerWriter; i++) {
+                        String id = writer + "-" + i;
+                        if ((round + i) % 3 == 0) {
+                            store.remove(id);
+                            store.add(FinanceRecord.ofCents(id, FinanceType.INCOME, round, "Снова", date, FinanceCategory.MANUAL, null));
+                        } else {
+                            store.replace(FinanceRecord.ofCents(id, FinanceType.INCOME, round, "Замена", date, FinanceCategory.MANUAL, null));
+                        }
+                    }
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                Set<String> seen = new HashSet<>();
+                for (FinanceRecord record : store.snapshot().get()) {
+                    if (!seen.add(record.getId())) {
+                        errors.add("Повтор ID в снимке: " + record.getId());
+                    }
+                }
+            }
+        });
+        threads.forEach(Thread::start);
+        reader.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writing.set(false);
+        reader.join();
+
+        assertTrue(errors.isEmpty(), () -> errors.get(0));
+        assertEquals(writers * idsPerWriter, store.snapshot().get().size());
+    }
+
+    // Тестируем сжатие журнала в памяти: память освобождается, взятый до сжатия снимок остается прежним
+    @Test
+    void testConcurrentStoreCompactsOperationLog() {
+        ConcurrentFinanceStore store = new ConcurrentFinanceStore();
+        LocalDate date = LocalDate.of(2025, 3, 1);
+        for (int i = 0; i < 1_000; i++) {
+            store.add(FinanceRecord.ofCents(Integer.toString(i), FinanceType.INCOME, i, "Запись", date, FinanceCategory.MANUAL, null));
+        }
+        for (int version = 1; version <= 30; version++) {
+            for (int i = 0; i < 1_000; i++) {
+                store.replace(FinanceRecord.ofCents(Integer.toString(i), FinanceType.INCOME, i + version, "Запись", date,
+                        FinanceCategory.MANUAL, null));
+            }
+        }
+        store.remove("0");
+        Supplier<List<FinanceRecord>> before = store.snapshot();
+        List<FinanceRecord> expected = new ArrayList<>();
+        store.forEach(expected::add);
+        assertEquals(31_001, store.operationCount());
+
+        store.compactLog();
+        assertEquals(999, store.operationCount());
+        store.remove("1");
+        store.replace(FinanceRecord.ofCents("2", FinanceType.EXPENSE, 5, "После сжатия", date, FinanceCategory.MANUAL, null));
+
+        // Старое поколение больше не меняется - снимок видит состояние на момент взятия
+        assertEquals(expected, before.get());
+        List<FinanceRecord> after = new ArrayList<>();
+        store.forEach(after::add);
+        assertEquals(998, after.size());
+        assertEquals("3", after.get(0).getId()); // Порядок живых записей сохраняется
+        assertEquals("2", after.get(after.size() - 1).getId());
+        assertEquals(5, store.get("2").getAmountCents());
+        assertNull(store.get("1"));
+
+        store.compactLog(); // Мертвых ячеек мало - журнал не переписывается
+        assertEquals(1_001, store.operationCount());
+    }
+
+    // Тестируем денежные суммы: точный разбор и форматирование, итоги без накопления ошибки double
+    @Test
+    void testMoneyIsExact(@TempDir Path dataDirectory) {
+        assertEquals(123_456, Money.parse("1234.56"));
+        assertEquals(-7, Money.parse("-0.07"));
+        assertEquals(1_000, Money.parse(" 10 "));
+        assertEquals(1_001, Money.parse("10.005")); // Лишние знаки округляются половиной вверх
+        assertEquals(1_000_000_000, Money.parse("1.0E7"));
+        assertEquals("1234.50", Money.format(123_450));
+        assertEquals("-0.07", Money.format(-7));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("abc"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("99999999999999999999"));
+
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            double naive = 0;
+            for (int i = 0; i < 100_000; i++) {
+                manager.addFinanceRecord(new FinanceRecord(null, FinanceType.INCOME, 0.1, "Копейка", LocalDate.of(2025, 1, 1)));
+                naive += 0.1;
+            }
+            assertTrue(naive != 10_000.0); // Сумма в double уже "уплыла"
+            assertEquals(1_000_000, manager.getTotalIncomeCents());
+            assertEquals(10_000.0, manager.calculateTotalIncome());
+        }
+    }
+
+    // Тестируем журнал прежнего формата (суммы в double): он не читается и не перезаписывается
+    @Test
+    void testOldJournalFormatIsRejected(@TempDir Path dataDirectory) throws IOException {
+        ByteBuffer journal = ByteBuffer.allocate(12);
+        journal.putInt(0x464A4E4C).putLong(0); // "FJNL"
+        Path journalFile = dataDirectory.resolve(FinanceJournal.JOURNAL_FILE_NAME);
+        Files.write(journalFile, journal.array());
+
+        assertThrows(IllegalStateException.class, () -> new FinanceManager(dataDirectory));
+        assertArrayEquals(journal.array(), Files.readAllBytes(journalFile));
+    }
+
+    // Сбой фонового потока журнала: ожидающие операции завершаются с ошибкой, новые отклоняются, закрытие не виснет
+    @Test
+    void testJournalWriterFailureFailsPendingAndRejectsNewOperations(@TempDir Path dataDirectory) throws IOException {
+        FinanceJournal journal = new FinanceJournal(dataDirectory);
+        assertThrows(IllegalStateException.class, () -> journal.appendRemove("1")); // Журнал еще не восстановлен
+        journal.recover(record -> { }, null);
+        FinanceRecord record = FinanceRecord.ofCents("1", FinanceType.INCOME, 100, "Доход", LocalDate.of(2025, 1, 1),
+                FinanceCategory.MANUAL, null);
+        journal.appendAdd(record).join();
+
+        CompletableFuture<Void> snapshot = journal.compact(() -> {
+            throw new ConcurrentModificationException("Хранилище изменено во время снимка");
+        });
+        assertThrows(CompletionException.class, snapshot::join);
+        assertThrows(IllegalStateException.class, () -> journal.appendAdd(record));
+        journal.close();
+
+        List<FinanceRecord> recovered = new ArrayList<>();
+        FinanceJournal reopened = new FinanceJournal(dataDirectory);
+        reopened.recover(recovered::add, new FinanceJournal.ReplayHandler() {
+            @Override
+            public void onAdd(FinanceRecord added) {
+                recovered.add(added);
+            }
+
+            @Override
+            public void onUpdate(FinanceRecord updated) {
+            }
+
+            @Override
+            public void onRemove(String recordId) {
+            }
+        });
+        reopened.close();
+        assertEquals(1, recovered.size()); // Подтвержденная запись пережила сбой
+    }
+
+    // Тестируем форматирование крайних сумм: дробная часть всегда из двух цифр
+    @Test
+    void testExtremeAmountsAreFormattedWithTwoFractionDigits() {
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-0.01", Money.format(-1));
+
+        FinanceReportEncoder encoder = new FinanceReportEncoder();
+        encoder.encodeCsv(FinanceRecord.ofCents("1", FinanceType.EXPENSE, Long.MIN_VALUE, "Предел", LocalDate.of(2025, 1, 1),
+                FinanceCategory.MANUAL, null));
+        assertEquals("1, EXPENSE, -92233720368547758.08, Предел, 2025-01-01\n",
+                new String(encoder.buffer(), 0, encoder.length(), StandardCharsets.UTF_8));
+        encoder.encodeJson(FinanceRecord.ofCents("2", FinanceType.INCOME, -105, "Минус", LocalDate.of(2025, 1, 1),
+                FinanceCategory.MANUAL, null));
+        assertTrue(new String(encoder.buffer(), 0, encoder.length(), StandardCharsets.UTF_8).contains("-1.05"));
+    }
+
+    // Тестируем фоновый экспорт: серия запросов объединяется в несколько записей, файл отражает последнее состояние
+    @Test
+    void testReportExportIsCoalesced(@TempDir Path dataDirectory) throws IOException {
+        Path report = dataDirectory.resolve("report.csv");
+        try (FinanceReportExporter exporter = new FinanceReportExporter(report, 200)) {
+            List<FinanceRecord> records = new ArrayList<>();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                records.add(FinanceRecord.ofCents(Integer.toString(i), FinanceType.INCOME, 1_000, "Продажа билетов",
+                        LocalDate.of(2025, 2, 10), FinanceCategory.TICKET_SALE, "1"));
+                List<FinanceRecord> snapshot = new ArrayList<>(records);
+                futures.add(exporter.requestExport(() -> snapshot));
+            }
+            exporter.flush().join();
+            assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+            assertTrue(exporter.getWriteCount() < 10, "Записей файла: " + exporter.getWriteCount());
+
+            List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+            assertEquals(1_003, lines.size()); // Заголовок, две итоговые строки и все записи
+            assertTrue(lines.get(1).startsWith("Продажа билетов, 10000.00,"));
+            assertFalse(Files.exists(dataDirectory.resolve("report.csv.tmp")));
+        }
+
+        // Экспорт через менеджер: close() дожидается записи отчета
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.EXPENSE, 12.5, "Аренда", LocalDate.of(2025, 2, 1)));
+            CompletableFuture<Void> first = manager.generateFinanceReport(false);
+            CompletableFuture<Void> second = manager.generateFinanceReport(false);
+            assertSame(first, second); // Второй запрос присоединился к еще не записанному первому
+        }
+        assertTrue(Files.readAllLines(dataDirectory.resolve("finance_records.csv"), StandardCharsets.UTF_8)
+                .contains("1, EXPENSE, 12.50, Аренда, 2025-02-01"));
+    }
+
+    @Test
+    void testReportEncoderWritesCsvAndJsonInOnePass(@TempDir Path dataDirectory) throws IOException {
+        List<FinanceRecord> records = List.of(
+                FinanceRecord.ofCents("1", FinanceType.INCOME, 1_050, "Продажа билетов", LocalDate.of(2025, 2, 10),
+                        FinanceCategory.TICKET_SALE, "7"),
+                FinanceRecord.ofCents("2", FinanceType.EXPENSE, -7, "Кавычки \"и\"\nперевод\t😀", LocalDate.of(2025, 3, 1),
+                        FinanceCategory.MANUAL, null));
+        MemoryReportSink csv = new MemoryReportSink(ReportFormat.CSV);
+        MemoryReportSink json = new MemoryReportSink(ReportFormat.JSON_LINES);
+        Path file = dataDirectory.resolve("report.csv");
+        try (FileReportSink fileSink = new FileReportSink(file, ReportFormat.CSV)) {
+            new FinanceReportEncoder().writeReport(records, List.of(csv, json, fileSink));
+        }
+
+        String today = LocalDate.now().toString();
+        assertEquals("ID, Тип, Сумма, Описание, Дата\n"
+                + "Продажа билетов, 10.50, Доход от продажи билетов, " + today + "\n"
+                + "Возврат билетов, 0.00, Расходы на возврат билетов, " + today + "\n"
+                + "1, INCOME, 10.50, Продажа билетов, 2025-02-10\n"
+                + "2, EXPENSE, -0.07, \"Кавычки \"\"и\"\"\nперевод\t😀\", 2025-03-01\n", csv.toString());
+        assertTrue(Arrays.equals(csv.toByteArray(), Files.readAllBytes(file))); // Файл и память получили одни и те же байты
+        assertEquals("{\"id\":\"1\",\"type\":\"INCOME\",\"amount\":10.50,\"description\":\"Продажа билетов\","
+                + "\"date\":\"2025-02-10\",\"category\":\"TICKET_SALE\",\"premiereId\":\"7\"}\n"
+                + "{\"id\":\"2\",\"type\":\"EXPENSE\",\"amount\":-0.07,\"description\":\"Кавычки \\\"и\\\"\\nперевод\\t😀\","
+                + "\"date\":\"2025-03-01\",\"category\":\"MANUAL\",\"premiereId\":null}\n", json.toString());
+
+        // Запись через менеджер совпадает с файлом фонового экспорта
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.EXPENSE, 12.5, "Аренда", LocalDate.of(2025, 2, 1)));
+            MemoryReportSink sink = new MemoryReportSink(ReportFormat.CSV);
+            manager.writeFinanceReport(List.of(sink));
+            manager.generateFinanceReport(false).join();
+            assertEquals(Files.readString(dataDirectory.resolve("finance_records.csv"), StandardCharsets.UTF_8), sink.toString());
+        }
+    }
+
+    @Test
+    void testReportEncoderDoesNotAllocatePerRow() throws IOException {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        List<FinanceRecord> records = new ArrayList<>();
+        FinanceStorageBenchmark.fill(20_000, records::add);
+        List<MemoryReportSink> sinks = List.of(new MemoryReportSink(ReportFormat.CSV), new MemoryReportSink(ReportFormat.JSON_LINES));
+        FinanceReportEncoder encoder = new FinanceReportEncoder();
+        long threadId = Thread.currentThread().getId();
+        long allocated = 0;
+        for (int round = 0; round < 20; round++) { // Прогрев: буферы приемников дорастают до нужного размера
+            sinks.forEach(MemoryReportSink::reset);
+            long before = threads.getThreadAllocatedBytes(threadId);
+            encoder.writeReport(records, sinks);
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+        assertTrue(allocated < records.size(), "Выделено байт на отчет: " + allocated);
+    }
+
+    @Test
+    void testPremiereProfitAndLossIsMaintained(@TempDir Path dataDirectory) {
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            Premiere premiere = new Premiere("P1", "Фильм", ZonedDateTime.now().plusDays(1), "Москва", 100);
+            manager.addPremiereBudget(premiere, 500.0);
+            manager.addFinanceRecord(FinanceRecord.ofCents("10", FinanceType.INCOME, 120_000, "Продажа билетов",
+                    LocalDate.of(2025, 5, 1), FinanceCategory.TICKET_SALE, "P1"));
+            manager.addFinanceRecord(FinanceRecord.ofCents("11", FinanceType.EXPENSE, 2_000, "Возврат билетов",
+                    LocalDate.of(2025, 5, 2), FinanceCategory.TICKET_REFUND, "P1"));
+            manager.addFinanceRecord(FinanceRecord.ofCents("12", FinanceType.EXPENSE, 5_000, "Аренда зала",
+                    LocalDate.of(2025, 5, 1), FinanceCategory.MANUAL, "P1"));
+            manager.addFinanceRecord(FinanceRecord.ofCents("20", FinanceType.INCOME, 30_000, "Продажа билетов",
+                    LocalDate.of(2025, 5, 3), FinanceCategory.TICKET_SALE, "P2"));
+            manager.addFinanceRecord(FinanceRecord.ofCents("30", FinanceType.INCOME, 30_000, "Продажа билетов",
+                    LocalDate.of(2025, 5, 3), FinanceCategory.TICKET_SALE, "P3"));
+            manager.addFinanceRecord(new FinanceRecord("40", FinanceType.INCOME, 999.0, "Без премьеры", LocalDate.of(2025, 5, 3)));
+
+            PremiereProfitAndLoss first = manager.getPremiereProfitAndLoss("P1");
+            assertEquals(50_000, first.getBudgetCents());
+            assertEquals(120_000, first.getTicketIncomeCents());
+            assertEquals(2_000, first.getRefundsCents());
+            assertEquals(120_000 - 2_000 - 50_000 - 5_000, first.getNetCents());
+            assertNull(manager.getPremiereProfitAndLoss("нет такой"));
+
+            // Обновление и удаление записей сразу отражаются в отчете
+            manager.updateFinanceRecord(FinanceRecord.ofCents("20", FinanceType.INCOME, 90_000, "Продажа билетов",
+                    LocalDate.of(2025, 5, 3), FinanceCategory.TICKET_SALE, "P2"));
+            manager.removeFinanceRecord("11");
+            assertEquals(90_000, manager.getPremiereProfitAndLoss("P2").getNetCents());
+            assertEquals(65_000, manager.getPremiereProfitAndLoss("P1").getNetCents());
+
+            List<PremiereProfitAndLoss> top = manager.getTopPremieresByNet(2);
+            assertEquals(List.of("P2", "P1"), Arrays.asList(top.get(0).getPremiereId(), top.get(1).getPremiereId()));
+            assertEquals(3, manager.getTopPremieresByNet(10).size());
+            assertEquals(3, manager.getPremiereProfitAndLoss().size());
+            assertThrows(IllegalArgumentException.class, () -> manager.getTopPremieresByNet(0));
+            assertTrue(manager.verifyTotals());
+        }
+
+        // После восстановления из журнала отчет строится заново
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            assertEquals(65_000, manager.getPremiereProfitAndLoss("P1").getNetCents());
+            assertEquals(90_000, manager.getPremiereProfitAndLoss("P2").getNetCents());
+        }
+    }
+
+    @Test
+    void testBatchIngestionCollectsErrorsAndPersistsOnce(@TempDir Path dataDirectory) {
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            manager.addFinanceRecord(new FinanceRecord("1", FinanceType.INCOME, 10.0, "Существующая", LocalDate.of(2025, 1, 1)));
+            List<FinanceRecord> batch = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                batch.add(FinanceRecord.ofCents(null, i % 2 == 0 ? FinanceType.INCOME : FinanceType.EXPENSE, 100 + i,
+                        "Строка выписки " + i, LocalDate.of(2025, 1, 1).plusDays(i % 90), FinanceCategory.MANUAL, null));
+            }
+            batch.set(10, new FinanceRecord("b1", FinanceType.INCOME, -5.0, "Отрицательная сумма", LocalDate.of(2025, 1, 1)));
+            batch.set(20, new FinanceRecord("1", FinanceType.INCOME, 5.0, "Повтор существующего ID", LocalDate.of(2025, 1, 1)));
+            batch.set(30, new FinanceRecord("b2", FinanceType.INCOME, 5.0, "", LocalDate.of(2025, 1, 1)));
+            batch.set(40, new FinanceRecord("b3", FinanceType.INCOME, 5.0, "Первая", LocalDate.of(2025, 1, 1)));
+            batch.set(50, new FinanceRecord("b3", FinanceType.INCOME, 5.0, "Повтор внутри пакета", LocalDate.of(2025, 1, 1)));
+
+            FinanceBatchResult result = manager.addFinanceRecords(batch);
+            assertEquals(4_996, result.getAcceptedCount());
+            assertEquals(List.of(10, 20, 30, 50), result.getRejected().stream().map(FinanceBatchRejection::getIndex).collect(Collectors.toList()));
+            assertEquals("Запись с таким ID уже существует.", result.getRejected().get(1).getReason());
+            assertTrue(result.getRecordsPerSecond() > 0);
+            assertEquals(4_997, manager.getAllFinanceRecords().size());
+            assertTrue(manager.verifyTotals());
+
+            FinanceBatchResult fromStream = manager.addFinanceRecords(Stream.of(
+                    new FinanceRecord("s1", FinanceType.EXPENSE, 1.5, "Из потока", LocalDate.of(2025, 2, 1))));
+            assertEquals(1, fromStream.getAcceptedCount());
+            assertTrue(fromStream.getRejected().isEmpty());
+        }
+
+        // Пакет восстанавливается из журнала целиком
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            assertEquals(4_998, manager.getAllFinanceRecords().size());
+            assertEquals("Первая", manager.findFinanceRecordById("b3").getDescription());
+            assertTrue(manager.verifyTotals());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FinanceStorageMode.class)
+    void testLargestRecordsMatchFullSortAfterDeletes(FinanceStorageMode mode, @TempDir Path dataDirectory) {
+        Random random = new Random(42);
+        try (FinanceManager manager = new FinanceManager(dataDirectory, mode)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 3_000; i++) {
+                String id = Integer.toString(i);
+                ids.add(id);
+                manager.addFinanceRecord(FinanceRecord.ofCents(id, random.nextBoolean() ? FinanceType.INCOME : FinanceType.EXPENSE,
+                        1 + random.nextInt(50_000), "Операция " + i, LocalDate.of(2025, 1, 1).plusDays(random.nextInt(120)),
+                        FinanceCategory.MANUAL, null));
+            }
+            // Удаляем и уменьшаем в первую очередь крупнейшие записи, чтобы индексу пришлось перестраиваться
+            for (int round = 0; round < 3; round++) {
+                for (FinanceRecord record : manager.getLargestRecords(FinanceType.EXPENSE, 90)) {
+                    manager.removeFinanceRecord(record.getId());
+                    ids.remove(record.getId());
+                }
+                for (FinanceRecord record : manager.getLargestRecords(FinanceType.INCOME, 50)) {
+                    manager.updateFinanceRecord(FinanceRecord.ofCents(record.getId(), record.getType(), 1, record.getDescription(),
+                            record.getDate(), record.getCategory(), null));
+                }
+            }
+
+            for (FinanceType type : FinanceType.values()) {
+                for (int limit : new int[]{1, 10, 100, 250}) {
+                    assertEquals(largestByFullSort(manager, type, null, limit), idsOf(manager.getLargestRecords(type, limit)));
+                    YearMonth month = YearMonth.of(2025, 2);
+                    assertEquals(largestByFullSort(manager, type, month, limit), idsOf(manager.getLargestRecords(type, month, limit)));
+                }
+            }
+            assertTrue(manager.getLargestRecords(FinanceType.INCOME, YearMonth.of(2030, 1), 5).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> manager.getLargestRecords(FinanceType.INCOME, 0));
+
+            // Страницы в сумме дают все записи в порядке обхода
+            List<FinanceRecord> paged = new ArrayList<>();
+            for (int offset = 0; ; offset += 700) {
+                List<FinanceRecord> page = manager.getFinanceRecordsPage(offset, 700);
+                paged.addAll(page);
+                if (page.size() < 700) {
+                    break;
+                }
+            }
+            assertEquals(idsOf(manager.getAllFinanceRecords()), idsOf(paged));
+            List<FinanceRecord> streamed = new ArrayList<>();
+            manager.forEachFinanceRecord(streamed::add);
+            assertEquals(ids.size(), streamed.size());
+        }
+    }
+
+    // В колоночном режиме записи - новые объекты-представления, поэтому сравниваем ID
+    private static List<String> idsOf(List<FinanceRecord> records) {
+        return records.stream().map(FinanceRecord::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> largestByFullSort(FinanceManager manager, FinanceType type, YearMonth month, int limit) {
+        return manager.getAllFinanceRecords().stream()
+                .filter(record -> record.getType() == type && (month == null || YearMonth.from(record.getDate()).equals(month)))
+                .sorted((a, b) -> a.getAmountCents() != b.getAmountCents()
+                        ? Long.compare(b.getAmountCents(), a.getAmountCents()) : a.getId().compareTo(b.getId()))
+                .limit(limit)
+                .map(FinanceRecord::getId)
+                .collect(Collectors.toList());
+    }
+
+    // Групповая покупка: корзина покупается целиком или не покупается вовсе, записи пишутся одним пакетом
+    @Test
+    void testCartPurchaseIsAllOrNothing() {
+        Premiere first = new Premiere("cart-1", "Фильм 1", ZonedDateTime.now().plusDays(1), "Зал 1", 10);
+        Premiere second = new Premiere("cart-2", "Фильм 2", ZonedDateTime.now().plusDays(1), "Зал 2", 3);
+        second.setTicketPrice(25.5);
+        CartPurchaseService service = new CartPurchaseService(financeManager);
+
+        CartPurchaseResult failed = service.purchase(new TicketCart().add(first, 4).add(second, 4));
+        assertFalse(failed.isPurchased());
+        assertEquals("cart-2", failed.getFailedPremiereId());
+        assertEquals(10, first.getTicketCount()); // Удержанные билеты первой премьеры вернулись
+        assertEquals(0, first.getTicketSold());
+        assertFalse(financeManager.hasRecords());
+
+        CartPurchaseResult bought = service.purchase(new TicketCart().add(second, 2).add(first, 3).add(first, 1));
+        assertTrue(bought.isPurchased());
+        assertEquals(4, first.getTicketSold());
+        assertEquals(2, second.getTicketSold());
+        assertEquals(0, first.getTicketHeld() + second.getTicketHeld());
+        assertEquals(Arrays.asList("cart-1", "cart-2"),
+                bought.getRecords().stream().map(FinanceRecord::getPremiereId).collect(Collectors.toList()));
+        assertEquals(4000 + 5100, financeManager.getCategoryTotalCents(FinanceCategory.TICKET_SALE));
+        assertEquals(5100, financeManager.getPremiereProfitAndLoss("cart-2").getTicketIncomeCents());
+        assertThrows(IllegalArgumentException.class, () -> service.purchase(new TicketCart()));
+    }
+
+    // Пакет записей корзины не сохранился на диск: в финансах не остается продаж, удержания сняты
+    @Test
+    void testCartPurchaseLeavesNoRecordsWhenJournalFails(@TempDir Path parent) throws IOException {
+        Path dataDirectory = Files.createDirectory(parent.resolve("data"));
+        FinanceManager manager = new FinanceManager(dataDirectory);
+        Premiere first = new Premiere("cart-f1", "Фильм 1", ZonedDateTime.now().plusDays(1), "Зал 1", 10);
+        Premiere second = new Premiere("cart-f2", "Фильм 2", ZonedDateTime.now().plusDays(1), "Зал 2", 10);
+        CartPurchaseService service = new CartPurchaseService(manager);
+
+        breakJournal(manager, dataDirectory);
+        assertThrows(RuntimeException.class, () -> service.purchase(new TicketCart().add(first, 2).add(second, 3)));
+        assertTrue(manager.getRecordsByCategory(FinanceCategory.TICKET_SALE).isEmpty());
+        assertEquals(0, manager.getCategoryTotalCents(FinanceCategory.TICKET_SALE));
+        assertEquals(0, manager.getTotalIncomeCents());
+        assertEquals(0, manager.getPremiereProfitAndLoss("cart-f1").getTicketIncomeCents());
+        assertEquals(0, first.getTicketSold() + first.getTicketHeld() + second.getTicketSold() + second.getTicketHeld());
+        assertEquals(10, second.getTicketCount());
+        manager.close();
+    }
+
+    // Пересекающиеся корзины из многих потоков: ни одна премьера не продана сверх наличия,
+    // и проданные билеты совпадают с финансовыми записями
+    @Test
+    void testConcurrentOverlappingCartsStayConsistent() throws InterruptedException {
+        List<Premiere> premieres = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            premieres.add(new Premiere("cart-c" + i, "Фильм " + i, ZonedDateTime.now().plusDays(1), "Зал", 200));
+        }
+        CartPurchaseService service = new CartPurchaseService(financeManager);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(seed);
+                int failures = 0;
+                while (failures < 20) {
+                    TicketCart cart = new TicketCart();
+                    for (int line = 0; line < 3; line++) {
+                        cart.add(premieres.get(random.nextInt(premieres.size())), 1 + random.nextInt(3));
+                    }
+                    if (!service.purchase(cart).isPurchased()) {
+                        failures++;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Premiere premiere : premieres) {
+            assertEquals(0, premiere.getTicketHeld());
+            assertEquals(200, premiere.getTicketSold() + premiere.getTicketCount());
+            assertEquals(premiere.getTicketSold() * 1000L,
+                    financeManager.getPremiereProfitAndLoss(premiere.getId()).getTicketIncomeCents());
+        }
+        assertTrue(financeManager.verifyTotals());
+    }
+
+    // Повтор продажи и возврата с тем же ключом не продает и не возвращает билеты повторно
+    @Test
+    void testIdempotentSaleAndRefund() throws InterruptedException {
+        Premiere premiere = new Premiere("idem-1", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", 20);
+        TicketSalesService service = new TicketSalesService(financeManager);
+
+        TicketSaleResult sale = service.sellTickets("order-1", premiere, 3);
+        assertTrue(sale.isCompleted());
+        assertSame(sale, service.sellTickets("order-1", premiere, 3)); // Повтор после таймаута
+        assertEquals(3, premiere.getTicketSold());
+        assertEquals(1, financeManager.getAllFinanceRecords().size());
+        assertThrows(IllegalArgumentException.class, () -> service.sellTickets("order-1", premiere, 4));
+
+        TicketSaleResult refund = service.returnTickets("order-1", premiere, 2); // Ключи продаж и возвратов раздельны
+        assertSame(refund, service.returnTickets("order-1", premiere, 2));
+        assertEquals(1, premiere.getTicketSold());
+        assertEquals(3000 - 2000, financeManager.getPremiereProfitAndLoss("idem-1").getNetCents());
+
+        // Неудачный возврат не запоминается: после продажи тот же ключ срабатывает
+        assertThrows(IllegalArgumentException.class, () -> service.returnTickets("refund-2", premiere, 5));
+        service.sellTickets("order-2", premiere, 5);
+        assertTrue(service.returnTickets("refund-2", premiere, 5).isCompleted());
+
+        // Одновременные повторы одного запроса: продажа выполняется один раз
+        List<Thread> threads = new ArrayList<>();
+        Set<TicketSaleResult> results = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> results.add(service.sellTickets("order-3", premiere, 2)));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, results.size());
+        assertEquals(3, premiere.getTicketSold());
+        assertEquals(5, financeManager.getAllFinanceRecords().size());
+    }
+
+    // Журнал не сохранил операцию: запись, итоги и индексы возвращаются к состоянию до нее
+    @Test
+    void testFailedJournalWriteRollsBackInMemoryState(@TempDir Path parent) throws IOException {
+        Path dataDirectory = Files.createDirectory(parent.resolve("data"));
+        FinanceManager manager = new FinanceManager(dataDirectory);
+        FinanceRecord kept = FinanceRecord.ofCents("1", FinanceType.INCOME, 5000, "Продажа", LocalDate.of(2025, 3, 1),
+                FinanceCategory.TICKET_SALE, "p1");
+        manager.addFinanceRecord(kept);
+
+        breakJournal(manager, dataDirectory);
+        assertThrows(RuntimeException.class, () -> manager.addFinanceRecord(FinanceRecord.ofCents("2", FinanceType.INCOME,
+                700, "Продажа", LocalDate.of(2025, 3, 2), FinanceCategory.TICKET_SALE, "p1")));
+        assertThrows(RuntimeException.class, () -> manager.updateFinanceRecord(FinanceRecord.ofCents("1", FinanceType.INCOME,
+                9000, "Продажа", LocalDate.of(2025, 3, 1), FinanceCategory.TICKET_SALE, "p1")));
+        assertThrows(RuntimeException.class, () -> manager.removeFinanceRecord("1"));
+        assertThrows(RuntimeException.class, () -> manager.addFinanceRecords(List.of(FinanceRecord.ofCents("3",
+                FinanceType.EXPENSE, 300, "Возврат", LocalDate.of(2025, 3, 3), FinanceCategory.TICKET_REFUND, "p1"))));
+
+        assertNull(manager.findFinanceRecordById("2"));
+        assertEquals(5000, manager.findFinanceRecordById("1").getAmountCents());
+        assertEquals(1, manager.getAllFinanceRecords().size());
+        assertEquals(5000, manager.getTotalIncomeCents());
+        assertEquals(0, manager.getTotalExpensesCents());
+        assertEquals(5000, manager.getPremiereProfitAndLoss("p1").getNetCents());
+        assertEquals(5000, manager.getLargestRecords(FinanceType.INCOME, 1).get(0).getAmountCents());
+        assertTrue(manager.verifyTotals());
+        manager.close();
+    }
+
+    // Каталог данных удален: снимок записать некуда, и журнал становится неисправным
+    private static void breakJournal(FinanceManager manager, Path dataDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dataDirectory);
+        manager.compactJournal();
+    }
+
+    // Сбой финансовой записи откатывает продажу и возврат: повтор с тем же ключом выполняет их ровно один раз
+    @Test
+    void testFailedFinanceWriteRollsBackSaleAndRefund(@TempDir Path dataDirectory) {
+        AtomicInteger failures = new AtomicInteger();
+        try (FinanceManager failing = new FinanceManager(dataDirectory) {
+            @Override
+            public void addFinanceRecord(FinanceRecord record) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Журнал недоступен");
+                }
+                super.addFinanceRecord(record);
+            }
+        }) {
+            Premiere premiere = new Premiere("idem-2", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", 20);
+            TicketSalesService service = new TicketSalesService(failing);
+
+            failures.set(1);
+            assertThrows(IllegalStateException.class, () -> service.sellTickets("order-1", premiere, 3));
+            assertEquals(0, premiere.getTicketSold());
+            assertEquals(0, premiere.getTicketHeld());
+            assertTrue(service.sellTickets("order-1", premiere, 3).isCompleted());
+            assertEquals(3, premiere.getTicketSold());
+            assertEquals(3000, failing.getTotalIncomeCents());
+
+            failures.set(1);
+            assertThrows(IllegalStateException.class, () -> service.returnTickets("refund-1", premiere, 2));
+            assertEquals(3, premiere.getTicketSold());
+            assertTrue(service.returnTickets("refund-1", premiere, 2).isCompleted());
+            assertTrue(service.returnTickets("refund-1", premiere, 2).isCompleted());
+            assertEquals(1, premiere.getTicketSold());
+            assertEquals(2, failing.getAllFinanceRecords().size());
+            assertEquals(1000, failing.getPremiereProfitAndLoss("idem-2").getNetCents());
+        }
+    }
+
+    // Места продаются по цене ценовой зоны их ряда, вне зон - по цене билета; сбой записи освобождает места
+    @Test
+    void testSeatSaleIsChargedAtZonePrice(@TempDir Path dataDirectory) {
+        AtomicInteger failures = new AtomicInteger();
+        try (FinanceManager manager = new FinanceManager(dataDirectory) {
+            @Override
+            public void addFinanceRecord(FinanceRecord record) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Журнал недоступен");
+                }
+                super.addFinanceRecord(record);
+            }
+        }) {
+            Premiere premiere = new Premiere("seats-1", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", 20);
+            SeatMap map = premiere.enableSeatMap(5, 10);
+            map.addZone(new SeatZone("VIP", 1, 2, 25 * Money.MINOR_UNITS));
+            TicketSalesService service = new TicketSalesService(manager);
+
+            TicketSaleResult vip = service.sellSeats("order-1", premiere, 3, "VIP");
+            assertTrue(vip.isCompleted());
+            assertTrue(vip.getSeats().getRow() <= 2);
+            assertEquals(3 * 2500, vip.getAmountCents());
+            assertSame(vip, service.sellSeats("order-1", premiere, 3, "VIP"));
+
+            TicketSaleResult hall = service.sellSeats("order-2", premiere, 2, null);
+            assertEquals(3, hall.getSeats().getRow()); // Средний ряд вне зоны - по цене билета
+            assertEquals(2 * premiere.getTicketPriceCents(), hall.getAmountCents());
+            assertEquals(3 * 2500 + 2 * premiere.getTicketPriceCents(), manager.getTotalIncomeCents());
+
+            failures.set(1);
+            assertThrows(IllegalStateException.class, () -> service.sellSeats("order-3", premiere, 4, "VIP"));
+            assertEquals(5, premiere.getTicketSold());
+            assertEquals(0, premiere.getTicketHeld());
+            assertEquals(5, map.getReservedCount());
+        }
+    }
+
+    // Возврат передает билеты из листа ожидания: выделение записывается как продажа, покупатель получает уведомление
+    @Test
+    void testWaitlistAllocationAfterRefundIsRecordedAsSale(@TempDir Path dataDirectory) {
+        try (FinanceManager manager = new FinanceManager(dataDirectory)) {
+            Premiere premiere = new Premiere("wait-1", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", 10);
+            TicketSalesService service = new TicketSalesService(manager);
+            assertTrue(service.sellTickets("order-1", premiere, 10).isCompleted());
+
+            List<WaitlistEntry> notified = new ArrayList<>();
+            WaitlistEntry entry = service.joinWaitlist(premiere, "Анна", 2, notified::add);
+            assertTrue(notified.isEmpty());
+            assertEquals(1, manager.getAllFinanceRecords().size());
+
+            assertTrue(service.returnTickets("refund-1", premiere, 3).isCompleted());
+            assertEquals(WaitlistEntry.Status.ALLOCATED, entry.getStatus());
+            assertEquals(List.of(entry), notified);
+            assertEquals(9, premiere.getTicketSold());
+            assertEquals(12000, manager.getTotalIncomeCents());
+            assertEquals(3000, manager.getTotalExpensesCents());
+            assertEquals(9000, manager.getPremiereProfitAndLoss("wait-1").getNetCents());
+            assertEquals(3, manager.getAllFinanceRecords().size());
+        }
+    }
+
+    // Выполняющаяся операция не вытесняется из кэша: одновременный повтор ждет ее, а не выполняет заново
+    @Test
+    void testIdempotencyCacheNeverEvictsRunningOperation() throws InterruptedException {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(1, Duration.ofSeconds(10));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger first = new AtomicInteger();
+        Thread slow = new Thread(() -> first.set(cache.execute("slow", "r", () -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return calls.incrementAndGet();
+        })));
+        slow.start();
+        started.await();
+        for (int i = 0; i < 5; i++) {
+            cache.execute("k" + i, "r", () -> 100); // Кэш переполнен, но голова очереди еще выполняется
+        }
+        AtomicInteger repeated = new AtomicInteger();
+        Thread retry = new Thread(() -> repeated.set(cache.execute("slow", "r", calls::incrementAndGet)));
+        retry.start();
+        while (retry.getState() != Thread.State.WAITING) { // Повтор дождался ключа, а не вытеснил его
+            Thread.sleep(1);
+        }
+        finish.countDown();
+        slow.join();
+        retry.join();
+
+        assertEquals(1, calls.get());
+        assertEquals(1, first.get());
+        assertEquals(1, repeated.get());
+        cache.execute("k5", "r", () -> 100);
+        assertTrue(cache.size() <= 2, "Ключей в кэше: " + cache.size()); // Завершенная операция снова вытесняется
+    }
+
+    // Кэш ключей ограничен по размеру и по времени: вытесненный ключ выполняется заново
+    @Test
+    void testIdempotencyCacheEvictsBySizeAndAge() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(3, Duration.ofSeconds(10), now::get);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            cache.execute("k" + i, "r", calls::incrementAndGet);
+        }
+        assertTrue(cache.size() <= 4);
+        assertEquals(5, cache.execute("k4", "r", calls::incrementAndGet)); // Свежий ключ помнится
+        assertEquals(6, cache.execute("k0", "r", calls::incrementAndGet)); // Старый вытеснен по размеру
+        assertEquals(6, cache.execute("k0", "r", calls::incrementAndGet));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(7, cache.execute("k0", "r", calls::incrementAndGet)); // Срок истек
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> cache.execute(" ", "r", calls::incrementAndGet));
+    }
 }
@@ -0,0 +1,96 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Проверка гостей на входе.
+// 1) "Приглашен ли гость": List.contains по списку гостей против GuestIndex.contains.
+// 2) Отметка о прибытии: потоки-сканеры отмечают всех гостей, каждый сканер начинает со своего места,
+//    поэтому одни и те же гости сканируются многократно и одновременно.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.GuestCheckInBenchmark
+//         -Dbenchmark.args="10000 200000"
+public class GuestCheckInBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int guests = args.length < 1 ? 10_000 : Integer.parseInt(args[0]);
+        int lookups = args.length < 2 ? 200_000 : Integer.parseInt(args[1]);
+        String[] names = new String[guests];
+        List<String> guestList = new ArrayList<>();
+        GuestIndex index = new GuestIndex();
+        for (int i = 0; i < guests; i++) {
+            names[i] = "Гость " + i;
+            guestList.add(names[i]);
+            index.add(names[i]);
+        }
+        System.out.println("Гостей: " + guests + ", проверок: " + lookups + ", ядер: " + Runtime.getRuntime().availableProcessors());
+
+        double listNanos = Double.MAX_VALUE;
+        double indexNanos = Double.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int listLookups = Math.min(lookups, 20_000); // Линейный поиск слишком медленный для полного числа проверок
+            long started = System.nanoTime();
+            for (int i = 0; i < listLookups; i++) {
+                found += guestList.contains(names[(int) (i * 7919L % guests)]) ? 1 : 0;
+            }
+            listNanos = Math.min(listNanos, (double) (System.nanoTime() - started) / listLookups);
+            started = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                found += index.contains(names[(int) (i * 7919L % guests)]) ? 1 : 0;
+            }
+            indexNanos = Math.min(indexNanos, (double) (System.nanoTime() - started) / lookups);
+        }
+        System.out.printf("  приглашен ли гость: список %10.0f нс, индекс %6.0f нс (найдено %d)%n", listNanos, indexNanos, found);
+
+        for (int threads : THREAD_COUNTS) {
+            double best = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                best = Math.max(best, checkIn(threads, names, lookups));
+            }
+            System.out.printf("  сканеров %d: %10.0f сканирований/с%n", threads, best);
+        }
+    }
+
+    // Сканирований в секунду; в конце каждый гость должен быть отмечен ровно один раз
+    private static double checkIn(int threads, String[] names, int scansPerThread) throws InterruptedException {
+        GuestIndex index = new GuestIndex();
+        for (String name : names) {
+            index.add(name);
+        }
+        AtomicInteger checkedIn = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> scanners = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * names.length / threads;
+            Thread scanner = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < scansPerThread; i++) {
+                    if (index.checkIn(names[(i + offset) % names.length]) == GuestIndex.CheckInResult.CHECKED_IN) {
+                        checkedIn.incrementAndGet();
+                    }
+                }
+            });
+            scanners.add(scanner);
+            scanner.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread scanner : scanners) {
+            scanner.join();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (checkedIn.get() != Math.min(names.length, threads * scansPerThread) || index.getArrivedCount() != checkedIn.get()) {
+            throw new IllegalStateException("Отмечено " + checkedIn.get() + ", пришло по счетчику " + index.getArrivedCount());
+        }
+        return (double) threads * scansPerThread * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,114 @@
+package com.business_app;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Сохранение и загрузка списка гостей: прежний способ (весь сериализованный List переписывается
+// при каждом добавлении) против журнала GuestLog.
+// 1) Добавление гостей по одному - прежний способ меряется на меньшем числе гостей, так как он O(N^2).
+// 2) Пачка из guests гостей одной записью и загрузка такого списка.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.GuestLogBenchmark
+//         -Dbenchmark.args="100000 2000"
+public class GuestLogBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int guests = args.length < 1 ? 100_000 : Integer.parseInt(args[0]);
+        int singleAdds = args.length < 2 ? 2_000 : Integer.parseInt(args[1]);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < guests; i++) {
+            names.add("Гость номер " + i);
+        }
+        Path directory = Files.createTempDirectory("guest-log-benchmark");
+        try {
+            System.out.println("Гостей в пачке: " + guests + ", добавлений по одному: " + singleAdds);
+
+            long legacyAdds = timeLegacyAdds(directory.resolve("legacy" + GuestLog.LEGACY_FILE_SUFFIX), names.subList(0, singleAdds));
+            long logAdds = timeLogAdds(new GuestLog(directory, "single"), names.subList(0, singleAdds));
+            System.out.printf("  по одному: прежний способ %8.1f мкс/гостя (файл %d КБ), журнал %8.1f мкс/гостя (файл %d КБ)%n",
+                    legacyAdds / 1e3 / singleAdds, Files.size(directory.resolve("legacy" + GuestLog.LEGACY_FILE_SUFFIX)) / 1024,
+                    logAdds / 1e3 / singleAdds, Files.size(directory.resolve("single" + GuestLog.FILE_SUFFIX)) / 1024);
+
+            Path legacyFile = directory.resolve("bulk" + GuestLog.LEGACY_FILE_SUFFIX);
+            GuestLog bulkLog = new GuestLog(directory, "bulk-log");
+            long legacySave = Long.MAX_VALUE;
+            long logSave = Long.MAX_VALUE;
+            long legacyLoad = Long.MAX_VALUE;
+            long logLoad = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long started = System.nanoTime();
+                writeLegacy(legacyFile, names);
+                legacySave = Math.min(legacySave, System.nanoTime() - started);
+
+                bulkLog.clear();
+                started = System.nanoTime();
+                bulkLog.append(names, names);
+                logSave = Math.min(logSave, System.nanoTime() - started);
+
+                started = System.nanoTime();
+                int legacyCount = readLegacy(legacyFile).size();
+                legacyLoad = Math.min(legacyLoad, System.nanoTime() - started);
+
+                started = System.nanoTime();
+                int logCount = new GuestLog(directory, "bulk-log").load().size();
+                logLoad = Math.min(logLoad, System.nanoTime() - started);
+                if (legacyCount != guests || logCount != guests) {
+                    throw new IllegalStateException("Загружено " + legacyCount + " и " + logCount + " гостей вместо " + guests);
+                }
+            }
+            bulkLog.close();
+            System.out.printf("  пачка: сохранение прежним способом %6.1f мс, журналом %6.1f мс%n", legacySave / 1e6, logSave / 1e6);
+            System.out.printf("  загрузка %d гостей: прежний способ %6.1f мс, журнал %6.1f мс%n", guests, legacyLoad / 1e6, logLoad / 1e6);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Прежний способ: после каждого гостя весь список сериализуется заново
+    private static long timeLegacyAdds(Path file, List<String> names) throws IOException {
+        List<String> guestList = new ArrayList<>();
+        long started = System.nanoTime();
+        for (String name : names) {
+            guestList.add(name);
+            writeLegacy(file, guestList);
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static long timeLogAdds(GuestLog guestLog, List<String> names) throws IOException {
+        guestLog.load();
+        List<String> guestList = new ArrayList<>();
+        long started = System.nanoTime();
+        for (String name : names) {
+            guestList.add(name);
+            guestLog.append(List.of(name), guestList);
+        }
+        long elapsed = System.nanoTime() - started;
+        guestLog.close();
+        return elapsed;
+    }
+
+    private static void writeLegacy(Path file, List<String> guests) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(guests);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> readLegacy(Path file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+            return (List<String>) in.readObject();
+        }
+    }
+}
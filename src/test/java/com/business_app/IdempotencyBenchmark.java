@@ -0,0 +1,115 @@
+package com.business_app;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+// Цена ключей идемпотентности на пути продажи.
+// 1) Голая продажа Premiere.sellTickets против той же продажи через IdempotencyCache (новые ключи) и повторов
+//    (все ключи уже в кэше) - при 1 и 8 потоках.
+// 2) Полный путь с финансовой записью: TicketSalesService против продажи и addFinanceRecord без ключа.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.IdempotencyBenchmark
+//         -Dbenchmark.args="1000000 20000"
+public class IdempotencyBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int sales = args.length < 1 ? 1_000_000 : Integer.parseInt(args[0]);
+        int recordedSales = args.length < 2 ? 20_000 : Integer.parseInt(args[1]);
+        String[] keys = new String[sales];
+        for (int i = 0; i < sales; i++) {
+            keys[i] = "order-" + i;
+        }
+        System.out.println("Продаж за раунд: " + sales + ", с финансовыми записями: " + recordedSales
+                + ", ядер: " + Runtime.getRuntime().availableProcessors());
+        for (int threads : THREAD_COUNTS) {
+            double plain = 0;
+            double keyed = 0;
+            double replayed = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                Premiere premiere = newPremiere(sales);
+                plain = Math.max(plain, run(threads, sales, i -> premiere.sellTickets(1)));
+                Premiere keyedPremiere = newPremiere(sales);
+                IdempotencyCache<Boolean> cache = new IdempotencyCache<>(sales, Duration.ofHours(1));
+                keyed = Math.max(keyed, run(threads, sales,
+                        i -> cache.execute(keys[i], "1", () -> keyedPremiere.sellTickets(1))));
+                replayed = Math.max(replayed, run(threads, sales,
+                        i -> cache.execute(keys[i], "1", () -> keyedPremiere.sellTickets(1))));
+                if (keyedPremiere.getTicketSold() != sales) {
+                    throw new IllegalStateException("Повторы продали билеты: " + keyedPremiere.getTicketSold());
+                }
+            }
+            System.out.printf("  потоков %d: без ключа %6.0f нс/продажу, с ключом %6.0f нс, повтор %6.0f нс%n",
+                    threads, 1e9 / plain, 1e9 / keyed, 1e9 / replayed);
+        }
+
+        Path directory = Files.createTempDirectory("idempotency-benchmark");
+        try (FinanceManager financeManager = new FinanceManager(directory)) {
+            TicketSalesService service = new TicketSalesService(financeManager);
+            double direct = 0;
+            double viaService = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                Premiere premiere = newPremiere(recordedSales);
+                direct = Math.max(direct, run(1, recordedSales, i -> {
+                    premiere.sellTickets(1);
+                    financeManager.addFinanceRecord(FinanceRecord.ofCents(financeManager.nextRecordId(), FinanceType.INCOME,
+                            premiere.getTicketPriceCents(), "Продажа билетов на премьеру: " + premiere.getMovieTitle(),
+                            LocalDate.now(), FinanceCategory.TICKET_SALE, premiere.getId()));
+                }));
+                Premiere servicePremiere = newPremiere(recordedSales);
+                String prefix = "r" + round + "-";
+                viaService = Math.max(viaService, run(1, recordedSales,
+                        i -> service.sellTickets(prefix + keys[i], servicePremiere, 1)));
+            }
+            System.out.printf("  с финансовой записью: напрямую %6.1f мкс/продажу, TicketSalesService %6.1f мкс%n",
+                    1e6 / direct, 1e6 / viaService);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static Premiere newPremiere(int tickets) {
+        return new Premiere("bench-idem", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", tickets);
+    }
+
+    // Операций в секунду: потоки делят индексы 0..operations поровну
+    private static double run(int threads, int operations, IntConsumer operation) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) operations * t / threads);
+            int to = (int) ((long) operations * (t + 1) / threads);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = from; i < to; i++) {
+                    operation.accept(i);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return operations * 1e9 / (System.nanoTime() - started);
+    }
+}
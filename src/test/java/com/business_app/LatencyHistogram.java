@@ -0,0 +1,79 @@
+package com.business_app;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Гистограмма задержек в духе HdrHistogram: значения (нс) группируются по степеням двойки,
+// каждая степень делится на 64 равных интервала - относительная погрешность не больше 1/64 (~1.6%).
+// Запись - один getAndIncrement без блокировок, поэтому гистограмму можно заполнять из многих потоков.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAGNITUDES = 64 - SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAGNITUDES + 1) * SUB_COUNT);
+
+    public void record(long nanos) {
+        counts.getAndIncrement(index(Math.max(0, nanos)));
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Значение перцентиля (0..100) - верхняя граница интервала, в который он попал
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length() - 1);
+    }
+
+    public long getMaxValue() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    // Строка с перцентилями в микросекундах
+    public String summary() {
+        return String.format("p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f мкс (измерений %d)",
+                getValueAtPercentile(50) / 1e3, getValueAtPercentile(90) / 1e3, getValueAtPercentile(99) / 1e3,
+                getValueAtPercentile(99.9) / 1e3, getMaxValue() / 1e3, getCount());
+    }
+
+    // Значения меньше 64 хранятся точно; дальше - старшие 6 бит после ведущей единицы
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1; // >= 1
+        int sub = (int) (value >>> (magnitude - 1)) & (SUB_COUNT - 1);
+        return magnitude * SUB_COUNT + sub;
+    }
+
+    private static long upperBound(int index) {
+        int magnitude = index >>> SUB_BITS;
+        long sub = index & (SUB_COUNT - 1);
+        if (magnitude == 0) {
+            return sub;
+        }
+        return ((SUB_COUNT + sub + 1) << (magnitude - 1)) - 1;
+    }
+}
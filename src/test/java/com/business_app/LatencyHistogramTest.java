@@ -0,0 +1,99 @@
+package com.business_app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    // Тестируем пустую гистограмму: перцентили и максимум равны 0
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMaxValue());
+    }
+
+    // Тестируем малые значения: до 64 нс хранятся точно, отрицательные считаются нулем
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+        assertEquals(65, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(0, histogram.getValueAtPercentile(2)); // Два нуля из 65 значений
+        assertEquals(31, histogram.getValueAtPercentile(50));
+        assertEquals(63, histogram.getValueAtPercentile(100));
+        assertEquals(63, histogram.getMaxValue());
+    }
+
+    // Тестируем границы интервалов: значение попадает в интервал, верхняя граница которого не дальше 1/64 от него
+    @Test
+    void testBucketUpperBoundIsWithinRelativeError() {
+        Random random = new Random(11);
+        List<Long> values = new ArrayList<>(List.of(64L, 127L, 128L, 129L, 1_000L, 1_000_000L, Long.MAX_VALUE));
+        for (int i = 0; i < 10_000; i++) {
+            values.add(random.nextLong() >>> (1 + random.nextInt(63)));
+        }
+        for (long value : values) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            long upper = histogram.getMaxValue();
+            assertTrue(upper >= value, "Граница " + upper + " меньше значения " + value);
+            assertTrue(upper - value <= value / 64, "Граница " + upper + " слишком далека от " + value);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(128);
+        assertEquals(129, histogram.getMaxValue()); // 128 и 129 - один интервал шириной 2
+        histogram.record(130);
+        assertEquals(131, histogram.getMaxValue());
+    }
+
+    // Тестируем перцентили на равномерном распределении 1..100 000 мкс
+    @Test
+    void testPercentilesOfUniformDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        for (double percentile : new double[]{50, 90, 99, 99.9, 100}) {
+            long expected = (long) Math.ceil(100_000 * percentile / 100) * 1_000;
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual - expected <= expected / 64,
+                    "p" + percentile + ": " + actual + " вместо " + expected);
+        }
+        assertEquals(histogram.getValueAtPercentile(100), histogram.getMaxValue());
+        assertTrue(histogram.summary().endsWith("(измерений 100000)"), histogram.summary());
+    }
+
+    // Тестируем запись из нескольких потоков: ни одно измерение не теряется
+    @Test
+    void testConcurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(1_000 + i % 7);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(1_007, histogram.getMaxValue()); // 1000..1006 - в интервале [1000, 1007]
+    }
+}
@@ -3,10 +3,14 @@ package com.business_app;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -17,7 +21,9 @@ public class PremiereManagerTest {
     private Premiere premiere;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
+        // Удаляем файл, оставшийся от предыдущих тестов, чтобы менеджер начинал с пустого списка
+        Files.deleteIfExists(Paths.get("premieres.txt"));
         premiereManager = new PremiereManager();
         // Используем правильный формат для даты с учетом часового пояса
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm z");
@@ -99,6 +105,19 @@ public class PremiereManagerTest {
         assertEquals(0, premiereManager.getPremiereCount(), "Количество премьер должно быть 0.");
     }
 
+    // Удаление премьеры закрывает файл журнала гостей
+    @Test
+    void testRemovePremiereClosesGuestLog() throws IOException {
+        premiereManager.addPremiere(premiere);
+        premiere.addGuest("Анна", 30);
+        premiere.addGuest("Борис", 30); // Первая запись создает журнал, вторая держит его открытым
+        assertTrue(premiere.isGuestLogOpen());
+
+        premiereManager.removePremiereById("1");
+        assertFalse(premiere.isGuestLogOpen());
+        Files.deleteIfExists(Paths.get("1" + GuestLog.FILE_SUFFIX));
+    }
+
     @Test
     void testRemovePremiereByInvalidId() {
         // Arrange: Премьера ещё не добавлена
@@ -3,21 +3,42 @@ package com.business_app;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -350,4 +371,608 @@ public class PremiereTest {
             });
             assertEquals("Бюджет не может быть отрицательным или нулевым.", exception.getMessage());
         }
-    }}
\ No newline at end of file
+    }
+    // Тестируем точность бюджета: сумма хранится в центах и не накапливает ошибку double
+    @Test
+    void testBudgetIsExact() {
+        for (int i = 0; i < 1_000; i++) {
+            premiere.addBudget(0.1);
+        }
+        assertEquals(10_000, premiere.getBudgetCents());
+        assertEquals(100.0, premiere.getBudget());
+        premiere.setTicketPrice(12.35);
+        premiere.sellTickets(3);
+        assertTrue(premiere.generateReport().contains("Общая прибыль: $37.05"));
+    }
+
+    // Стресс-тест: много потоков одновременно покупают и возвращают билеты - продаж сверх наличия нет,
+    // и ни одно обновление счетчиков не теряется
+    @ParameterizedTest
+    @EnumSource(TicketInventoryMode.class)
+    void testConcurrentSalesNeverOversell(TicketInventoryMode mode) throws InterruptedException {
+        premiere.setTicketCount(1_000);
+        premiere.setTicketInventoryMode(mode);
+        int threadCount = 16;
+        AtomicInteger soldByThreads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(seed);
+                int mine = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (true) {
+                    int count = 1 + random.nextInt(3);
+                    if (!premiere.sellTickets(count)) {
+                        break; // Билеты закончились
+                    }
+                    mine += count;
+                    soldByThreads.addAndGet(count);
+                    if (random.nextInt(4) == 0) {
+                        premiere.returnTickets(1, mine, true);
+                        mine--;
+                        soldByThreads.decrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(soldByThreads.get(), premiere.getTicketSold(), "Обновления счетчика проданных билетов потеряны");
+        assertTrue(premiere.getTicketSold() <= 1_000, "Продано больше билетов, чем было");
+        assertEquals(1_000, premiere.getTicketSold() + premiere.getTicketCount(), "Проданные и доступные билеты разошлись");
+        assertTrue(premiere.getTicketCount() < 3, "Продажа остановилась, хотя билеты остались");
+    }
+
+    // Корзины по ядрам: продажа занимает билеты у соседних корзин, итоги остаются точными
+    @Test
+    void testShardedInventoryBorrowsFromSiblings() {
+        ShardedTicketInventory inventory = new ShardedTicketInventory(0, 10, 4);
+        assertEquals(4, inventory.getShardCount());
+        assertTrue(inventory.trySell(7)); // В любой корзине не больше 3 билетов - остальные занимаются у соседей
+        assertEquals(7, inventory.getSold());
+        assertEquals(3, inventory.getAvailable());
+        assertFalse(inventory.trySell(4));
+        assertTrue(inventory.tryReturn(5));
+        assertFalse(inventory.tryReturn(3));
+        assertEquals(2, inventory.getSold());
+        assertEquals(8, inventory.getAvailable());
+        assertTrue(inventory.trySell(8));
+        assertEquals(0, inventory.getAvailable());
+
+        premiere.setTicketInventoryMode(TicketInventoryMode.SHARDED);
+        premiere.setTicketPrice(10.0);
+        assertTrue(premiere.sellTickets(60));
+        premiere.returnTickets(10, premiere.getTicketSold(), true);
+        assertEquals(50, premiere.getTicketSold());
+        assertEquals(50, premiere.getTicketCount());
+        assertTrue(premiere.generateReport().contains("Продано билетов: 50"));
+        premiere.setTicketInventoryMode(TicketInventoryMode.ATOMIC);
+        assertEquals(50, premiere.getTicketSold());
+    }
+
+    @Test
+    void testShardedInventoryNeverOversellsUnderContention() throws InterruptedException {
+        ShardedTicketInventory inventory = new ShardedTicketInventory(0, 20_000, 8);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 12; t++) {
+            Thread thread = new Thread(() -> {
+                while (inventory.trySell(1 + ThreadLocalRandom.current().nextInt(5))) {
+                    Thread.onSpinWait();
+                }
+                // Распродаем остаток по одному билету: последний поток видит все корзины пустыми
+                while (inventory.trySell(1)) {
+                    Thread.onSpinWait();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20_000, inventory.getSold());
+        assertEquals(0, inventory.getAvailable());
+    }
+
+    // Продажа по одному билету без возвратов: после первого отказа "распродано" билетов больше не бывает,
+    // поэтому продажа, начатая после чужого отказа, означала бы ложное "распродано" при оставшихся билетах
+    @Test
+    void testShardedInventoryDoesNotSellOutWhileStockRemains() throws InterruptedException {
+        AtomicInteger lateSales = new AtomicInteger();
+        for (int round = 0; round < 200; round++) {
+            ShardedTicketInventory inventory = new ShardedTicketInventory(0, 64, 8);
+            AtomicBoolean soldOut = new AtomicBoolean();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (true) {
+                        boolean refusedBefore = soldOut.get();
+                        if (!inventory.trySell(1)) {
+                            soldOut.set(true);
+                            return;
+                        }
+                        if (refusedBefore) {
+                            lateSales.incrementAndGet();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(0, inventory.getAvailable(), "Раунд " + round);
+            assertEquals(64, inventory.getSold());
+        }
+        assertEquals(0, lateSales.get());
+    }
+
+    // Места с рассадкой: группа соседних мест ближе всего к центру зала, зоны ограничивают ряды
+    @Test
+    void testSeatMapAllocatesBestContiguousSeats() {
+        SeatMap map = premiere.enableSeatMap(10, 70); // 70 мест - ряд занимает два 64-битных слова
+        assertEquals(700, premiere.getTicketCount());
+        map.addZone(new SeatZone("VIP", 1, 3, 50 * Money.MINOR_UNITS));
+        assertThrows(IllegalArgumentException.class, () -> map.addZone(new SeatZone("Партер", 3, 10, 0)));
+
+        SeatBlock first = premiere.sellSeats(4);
+        assertEquals(new SeatBlock(5, 34, 4), first); // Средний ряд, места по центру
+        SeatBlock second = premiere.sellSeats(4);
+        assertEquals(5, second.getRow());
+        assertTrue(second.getLastSeat() < first.getFirstSeat() || second.getFirstSeat() > first.getLastSeat());
+        assertEquals(8, premiere.getTicketSold());
+
+        SeatBlock vip = premiere.sellSeats(6, "VIP");
+        assertEquals(3, vip.getRow());
+        assertEquals(50 * Money.MINOR_UNITS, map.getZone(vip.getRow()).getPriceCents());
+
+        // Группа через границу слов: места 60-67
+        assertTrue(map.reserve(new SeatBlock(1, 60, 8)));
+        assertFalse(map.reserve(new SeatBlock(1, 67, 2)));
+        assertTrue(map.isReserved(1, 64) && map.isReserved(1, 65));
+        map.release(new SeatBlock(1, 60, 8));
+        assertFalse(map.isReserved(1, 64));
+        assertThrows(IllegalArgumentException.class, () -> map.release(new SeatBlock(1, 60, 8)));
+
+        premiere.returnSeats(first);
+        assertEquals(10, premiere.getTicketSold());
+        assertEquals(first, premiere.sellSeats(4)); // Лучшие места снова свободны
+
+        assertThrows(IllegalArgumentException.class, () -> premiere.sellSeats(71));
+        assertThrows(IllegalArgumentException.class, () -> premiere.sellSeats(2, "Балкон"));
+        assertEquals(14, premiere.getTicketSold()); // Неудачные попытки вернули билеты
+    }
+
+    // Конкурентные бронирования: ни одно место не продано дважды, зал заполняется полностью
+    @Test
+    void testConcurrentSeatReservationsNeverDoubleBook() throws InterruptedException {
+        SeatMap map = new SeatMap(40, 100);
+        AtomicInteger[] owners = new AtomicInteger[map.getCapacity()];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new AtomicInteger();
+        }
+        AtomicInteger doubleBooked = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                SeatBlock block;
+                // Группы по 4 места заполняют ряды по 100 мест без остатка
+                while ((block = map.reserveBest(4)) != null) {
+                    for (int seat = block.getFirstSeat(); seat <= block.getLastSeat(); seat++) {
+                        if (owners[(block.getRow() - 1) * 100 + seat - 1].getAndIncrement() != 0) {
+                            doubleBooked.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, doubleBooked.get(), "Место продано дважды");
+        assertEquals(map.getCapacity(), map.getReservedCount());
+        assertEquals(0, map.getAvailableCount());
+    }
+
+    // Конкурентные повторные освобождения: группу освобождает ровно один поток, счетчик не уходит в минус
+    @Test
+    void testConcurrentDoubleReleaseFreesSeatsOnce() throws InterruptedException {
+        SeatMap map = new SeatMap(20, 100);
+        List<SeatBlock> blocks = new ArrayList<>();
+        for (int row = 1; row <= 20; row++) {
+            for (int first = 1; first <= 91; first += 10) {
+                SeatBlock block = new SeatBlock(row, first, 10); // Группа с 61 по 70 место пересекает границу слова
+                assertTrue(map.reserve(block));
+                blocks.add(block);
+            }
+        }
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (SeatBlock block : blocks) {
+                    try {
+                        map.release(block);
+                        released.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(blocks.size(), released.get());
+        assertEquals(3 * blocks.size(), rejected.get());
+        assertEquals(0, map.getReservedCount());
+        assertEquals(map.getCapacity(), map.getAvailableCount());
+    }
+
+    // Возврат проверяется по оплаченным билетам: пока есть удержание, вернуть больше проданного нельзя,
+    // и одновременные возвраты последнего билета не уводят счетчик проданных в минус
+    @ParameterizedTest
+    @EnumSource(TicketInventoryMode.class)
+    void testRefundsNeverConsumeHeldTickets(TicketInventoryMode mode) throws InterruptedException {
+        premiere.setTicketInventoryMode(mode);
+        assertTrue(premiere.sellTickets(1));
+        assertTrue(premiere.holdTickets(5));
+        assertEquals(1, premiere.getTicketSold());
+        assertThrows(IllegalArgumentException.class, () -> premiere.returnTickets(2, 6, true));
+
+        AtomicInteger returned = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    premiere.returnTickets(1, 1, true);
+                    returned.incrementAndGet();
+                } catch (InterruptedException | IllegalArgumentException e) {
+                    // Билет уже вернул другой поток
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, returned.get());
+        assertEquals(0, premiere.getTicketSold());
+        assertEquals(5, premiere.getTicketHeld());
+        premiere.confirmHeldTickets(5);
+        assertEquals(5, premiere.getTicketSold());
+        assertEquals(95, premiere.getTicketCount());
+    }
+
+    // Возврат мест, билеты которых уже списал возврат по количеству: ошибка, схема и счетчики не расходятся
+    @Test
+    void testReturnSeatsFailsWhenTicketsAlreadyReturned() {
+        SeatMap map = premiere.enableSeatMap(10, 10);
+        SeatBlock block = premiere.sellSeats(2);
+        assertNotNull(block);
+        assertEquals(0, premiere.getTicketHeld());
+        premiere.returnTickets(2, 2, true);
+
+        assertThrows(IllegalStateException.class, () -> premiere.returnSeats(block));
+        assertEquals(2, map.getReservedCount());
+        assertEquals(0, premiere.getTicketSold());
+        assertEquals(100, premiere.getTicketCount());
+
+        assertNull(premiere.sellSeats(101));
+        assertEquals(0, premiere.getTicketHeld());
+        assertEquals(100, premiere.getTicketCount());
+    }
+
+    // Удержания: подтверждение продает билеты, отмена и истечение срока возвращают их в продажу
+    @Test
+    void testTicketHoldsConfirmReleaseAndExpire() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        TicketHoldManager manager = new TicketHoldManager(100, now::get);
+        SeatMap map = premiere.enableSeatMap(10, 10);
+
+        TicketHold paid = manager.hold(premiere, 5, Duration.ofMinutes(5));
+        TicketHold cancelled = manager.hold(premiere, 10, Duration.ofMinutes(5));
+        TicketHold abandoned = manager.holdSeats(premiere, 4, null, Duration.ofMinutes(2));
+        assertEquals(19, premiere.getTicketHeld());
+        assertEquals(0, premiere.getTicketSold());
+        assertEquals(81, premiere.getTicketCount());
+        assertEquals(4, map.getReservedCount());
+        assertNull(manager.hold(premiere, 82, Duration.ofMinutes(5)));
+
+        manager.confirm(paid.getId());
+        manager.release(cancelled.getId());
+        assertEquals(TicketHold.Status.CONFIRMED, paid.getStatus());
+        assertThrows(IllegalArgumentException.class, () -> manager.confirm(cancelled.getId()));
+        assertEquals(5, premiere.getTicketSold());
+        assertEquals(4, premiere.getTicketHeld());
+        assertEquals(1, manager.getActiveHoldCount());
+
+        now.addAndGet(Duration.ofMinutes(2).toMillis() - 1);
+        assertEquals(0, manager.expireHolds()); // Срок еще не наступил
+        now.addAndGet(1);
+        assertEquals(1, manager.expireHolds());
+        assertEquals(TicketHold.Status.EXPIRED, abandoned.getStatus());
+        assertThrows(IllegalArgumentException.class, () -> manager.confirm(abandoned.getId()));
+        assertEquals(0, premiere.getTicketHeld());
+        assertEquals(95, premiere.getTicketCount());
+        assertEquals(0, map.getReservedCount());
+
+        // Подтвержденные и отмененные удержания при наступлении срока пропускаются
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        assertEquals(0, manager.expireHolds());
+        assertEquals(5, premiere.getTicketSold());
+        assertEquals(1, manager.getExpiredCount());
+    }
+
+    // Колесо таймеров выдает каждый элемент ровно на его тике, в том числе после каскада с верхних уровней
+    @Test
+    void testTimingWheelFiresEachItemAtItsDeadline() {
+        Random random = new Random(7);
+        long start = 123_456;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Сроки на всех уровнях колеса: до 64, 64^2, 64^3 и 64^4 тиков
+            long delay = 1 + (long) (random.nextDouble() * (1L << (6 * (1 + random.nextInt(4))))) % TimingWheel.MAX_DELAY_TICKS;
+            deadlines.add(start + delay);
+            wheel.add(start + delay, start + delay);
+        }
+        List<Long> fired = new ArrayList<>();
+        long tick = start;
+        while (wheel.getSize() > 0) {
+            tick += 1 + random.nextInt(5_000);
+            long now = tick;
+            wheel.advanceTo(now, deadline -> {
+                assertTrue(deadline <= now, "Таймер сработал раньше срока");
+                assertTrue(deadline > now - 5_000, "Таймер сработал слишком поздно");
+                fired.add(deadline);
+            });
+        }
+        deadlines.sort(null);
+        fired.sort(null);
+        assertEquals(deadlines, fired);
+    }
+
+    // Лист ожидания: возвращенные билеты получают ожидающие покупатели по порядку, заявки не обгоняют друг друга
+    @Test
+    void testWaitlistAllocatesRefundsInOrder() {
+        assertTrue(premiere.sellTickets(100));
+        WaitlistEntry first = premiere.joinWaitlist("Анна", 2);
+        WaitlistEntry second = premiere.joinWaitlist("Борис", 3);
+        WaitlistEntry third = premiere.joinWaitlist("Вера", 1);
+        assertEquals(3, premiere.getWaitlistSize());
+
+        premiere.returnTickets(1, 100, true);
+        assertEquals(WaitlistEntry.Status.WAITING, first.getStatus()); // Одного билета на первую заявку мало
+        assertFalse(premiere.sellTickets(1)); // Без очереди не продаем
+        premiere.returnTickets(2, 99, true);
+        assertEquals(WaitlistEntry.Status.ALLOCATED, first.getStatus());
+        assertTrue(first.getAllocation().isDone());
+        assertEquals(1, premiere.getTicketCount());
+
+        assertTrue(premiere.leaveWaitlist(second)); // После отмены очередь доходит до третьей заявки
+        assertEquals(WaitlistEntry.Status.ALLOCATED, third.getStatus());
+        assertEquals(0, premiere.getWaitlistSize());
+        assertEquals(100, premiere.getTicketSold());
+        assertFalse(premiere.leaveWaitlist(third));
+
+        premiere.returnTickets(2, 100, true);
+        assertTrue(premiere.sellTickets(1)); // Очередь пуста - обычная продажа снова работает
+        assertEquals(WaitlistEntry.Status.ALLOCATED, premiere.joinWaitlist("Глеб", 1).getStatus()); // Билет есть - сразу
+    }
+
+    // Сериализация премьеры: лист ожидания и индекс гостей не пишутся, а после чтения создаются заново и работают
+    @Test
+    void testSerializedPremiereRebuildsWaitlistAndGuestIndex() throws IOException, ClassNotFoundException {
+        premiere.setGuestList(List.of("Анна", "Борис"));
+        assertEquals(GuestIndex.CheckInResult.CHECKED_IN, premiere.checkInGuest("Анна"));
+        assertTrue(premiere.sellTickets(100));
+        premiere.joinWaitlist("Вера", 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(premiere);
+        }
+        Premiere copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Premiere) in.readObject();
+        }
+
+        assertEquals(100, copy.getTicketSold());
+        assertEquals(0, copy.getWaitlistSize());
+        WaitlistEntry entry = copy.joinWaitlist("Глеб", 2);
+        copy.returnTickets(2, 100, true);
+        assertEquals(WaitlistEntry.Status.ALLOCATED, entry.getStatus());
+        assertEquals(100, copy.getTicketSold());
+
+        assertEquals(2, copy.getInvitedGuestCount());
+        assertTrue(copy.isGuestInvited("борис"));
+        assertEquals(GuestIndex.CheckInResult.CHECKED_IN, copy.checkInGuest("Анна"));
+        assertEquals(1, copy.getArrivedGuestCount());
+    }
+
+    // Десятки тысяч ожидающих и одновременные возвраты: каждый возвращенный билет выделен ровно один раз,
+    // и получили билеты первые по очереди заявки
+    @Test
+    void testWaitlistHandlesConcurrentRefundsWithoutLostAllocations() throws InterruptedException {
+        premiere.setTicketCount(2_000);
+        assertTrue(premiere.sellTickets(2_000));
+        List<WaitlistEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            entries.add(premiere.joinWaitlist("Покупатель " + i, 1));
+        }
+        AtomicInteger allocations = new AtomicInteger();
+        for (WaitlistEntry entry : entries) {
+            entry.getAllocation().thenRun(allocations::incrementAndGet);
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    premiere.returnTickets(1, premiere.getTicketSold(), true);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2_000, allocations.get());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i < 2_000 ? WaitlistEntry.Status.ALLOCATED : WaitlistEntry.Status.WAITING, entries.get(i).getStatus());
+        }
+        assertEquals(2_000, premiere.getTicketSold());
+        assertEquals(0, premiere.getTicketCount());
+        assertEquals(28_000, premiere.getWaitlistSize());
+    }
+
+    // Гости сохраняются между запусками: пачка и одиночные добавления дописываются в журнал, очистка тоже сохраняется
+    @Test
+    void testGuestsArePersistedInAppendOnlyLog() {
+        ZonedDateTime date = ZonedDateTime.now().plusDays(1);
+        Premiere gala = new Premiere("guest-log", "Titanic", date, "Cinema City", 100);
+        gala.clearGuests();
+        Map<String, Integer> guests = new LinkedHashMap<>();
+        guests.put("Анна", 30);
+        guests.put("Петя", 15); // Младше минимального возраста
+        guests.put("Иван", 40);
+        assertEquals(2, gala.addGuests(guests));
+        gala.addGuest("Мария", 25);
+
+        Premiere reloaded = new Premiere("guest-log", "Titanic", date, "Cinema City", 100);
+        assertEquals(List.of("Анна", "Иван", "Мария"), reloaded.getGuestList());
+        reloaded.clearGuests();
+        assertTrue(new Premiere("guest-log", "Titanic", date, "Cinema City", 100).getGuestList().isEmpty());
+    }
+
+    // Перенос из файла прежнего формата, отбрасывание оборванной записи и сжатие разросшегося журнала
+    @Test
+    void testGuestLogMigratesRecoversTornTailAndCompacts(@TempDir Path directory) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(directory.resolve("gala" + GuestLog.LEGACY_FILE_SUFFIX)))) {
+            out.writeObject(new ArrayList<>(List.of("Анна", "Борис")));
+        }
+        GuestLog guestLog = new GuestLog(directory, "gala");
+        List<String> guests = guestLog.load();
+        assertEquals(List.of("Анна", "Борис"), guests);
+        assertTrue(Files.exists(guestLog.getPath()));
+        guests.add("Вера");
+        guestLog.append(List.of("Вера"), guests);
+        guestLog.close();
+
+        // Сбой посреди записи: на диске осталось начало кадра
+        long intactSize = Files.size(guestLog.getPath());
+        Files.write(guestLog.getPath(), new byte[]{0, 0, 0, 20, 'A', 0, 0}, StandardOpenOption.APPEND);
+        GuestLog reopened = new GuestLog(directory, "gala");
+        guests = reopened.load();
+        assertEquals(List.of("Анна", "Борис", "Вера"), guests);
+        assertEquals(intactSize, Files.size(guestLog.getPath()));
+
+        // Без сжатия каждый одиночный гость занимал бы в журнале не меньше 20 байт
+        for (int i = 0; i < 6_000; i++) {
+            guests.add("g" + i);
+            reopened.append(List.of("g" + i), guests);
+        }
+        assertTrue(Files.size(guestLog.getPath()) < 20L * guests.size());
+        reopened.close();
+        assertEquals(guests, new GuestLog(directory, "gala").load());
+
+        reopened.clear();
+        assertTrue(new GuestLog(directory, "gala").load().isEmpty());
+    }
+
+    // Повторное приглашение не дублирует гостя, поиск и отметка не зависят от регистра, гость проходит один раз
+    @Test
+    void testGuestIndexDedupesAndChecksInOnce() {
+        premiere.setGuestList(List.of("Анна", "Иван", "анна "));
+        assertEquals(List.of("Анна", "Иван"), premiere.getGuestList());
+        premiere.addGuest("Иван", 30);
+        assertEquals(2, premiere.getInvitedGuestCount());
+        assertTrue(premiere.isGuestInvited(" ИВАН"));
+        assertFalse(premiere.isGuestInvited("Петр"));
+
+        assertEquals(GuestIndex.CheckInResult.CHECKED_IN, premiere.checkInGuest("анна"));
+        assertEquals(GuestIndex.CheckInResult.ALREADY_CHECKED_IN, premiere.checkInGuest("Анна"));
+        assertEquals(GuestIndex.CheckInResult.NOT_INVITED, premiere.checkInGuest("Петр"));
+        assertEquals(1, premiere.getArrivedGuestCount());
+        assertTrue(premiere.generateReport().contains("Гостей пришло: 1 из 2"));
+    }
+
+    // Несколько сканеров на входе отмечают одних и тех же гостей: каждый гость проходит ровно один раз,
+    // счетчики совпадают с числом успешных отметок
+    @Test
+    void testConcurrentScannersCheckEachGuestInOnce() throws InterruptedException {
+        GuestIndex index = new GuestIndex();
+        int guests = 20_000;
+        for (int i = 0; i < guests; i++) {
+            assertTrue(index.add("Гость " + i));
+        }
+        AtomicInteger checkedIn = new AtomicInteger();
+        AtomicInteger repeated = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> scanners = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 997;
+            Thread scanner = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < guests; i++) {
+                    GuestIndex.CheckInResult result = index.checkIn("Гость " + (i + offset) % guests);
+                    (result == GuestIndex.CheckInResult.CHECKED_IN ? checkedIn : repeated).incrementAndGet();
+                }
+            });
+            scanners.add(scanner);
+            scanner.start();
+        }
+        start.countDown();
+        for (Thread scanner : scanners) {
+            scanner.join();
+        }
+        assertEquals(guests, checkedIn.get());
+        assertEquals(7 * guests, repeated.get());
+        assertEquals(guests, index.getInvitedCount());
+        assertEquals(guests, index.getArrivedCount());
+        assertEquals(GuestIndex.CheckInResult.NOT_INVITED, index.checkIn("Незнакомец"));
+        index.clear();
+        assertEquals(0, index.getInvitedCount());
+        assertEquals(0, index.getArrivedCount());
+    }
+}
@@ -0,0 +1,95 @@
+package com.business_app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Задержка подбора лучших мест в большом зале: потоки покупают группы по 2-6 мест, пока зал не заполнится.
+// Печатает перцентили задержки одного reserveBest и проверяет, что ни одно место не продано дважды.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.SeatMapBenchmark
+//         -Dbenchmark.args="250 200 8"
+public class SeatMapBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rows = args.length < 1 ? 250 : Integer.parseInt(args[0]);
+        int seatsPerRow = args.length < 2 ? 200 : Integer.parseInt(args[1]);
+        int threads = args.length < 3 ? 8 : Integer.parseInt(args[2]);
+        System.out.println("Зал " + rows + " × " + seatsPerRow + " = " + rows * seatsPerRow + " мест, потоков: " + threads
+                + ", ядер: " + Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < ROUNDS; round++) {
+            run(rows, seatsPerRow, threads);
+        }
+    }
+
+    private static void run(int rows, int seatsPerRow, int threads) throws InterruptedException {
+        SeatMap map = new SeatMap(rows, seatsPerRow);
+        AtomicInteger[] owners = new AtomicInteger[map.getCapacity()];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new AtomicInteger();
+        }
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            long[] mine = new long[map.getCapacity() / 2 + 1];
+            latencies.add(mine);
+            int seed = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(seed);
+                int count = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int misses = 0;
+                while (misses < 5) { // Под конец группы из нескольких мест уже не помещаются
+                    int size = 2 + random.nextInt(5);
+                    long started = System.nanoTime();
+                    SeatBlock block = map.reserveBest(size);
+                    long elapsed = System.nanoTime() - started;
+                    if (block == null) {
+                        misses++;
+                        continue;
+                    }
+                    mine[count++] = elapsed;
+                    for (int seat = block.getFirstSeat(); seat <= block.getLastSeat(); seat++) {
+                        if (owners[(block.getRow() - 1) * seatsPerRow + seat - 1].getAndIncrement() != 0) {
+                            throw new IllegalStateException("Место продано дважды: ряд " + block.getRow() + ", место " + seat);
+                        }
+                    }
+                }
+                mine[mine.length - 1] = count;
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long totalNanos = System.nanoTime() - started;
+
+        int total = 0;
+        for (long[] mine : latencies) {
+            total += (int) mine[mine.length - 1];
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] mine : latencies) {
+            int count = (int) mine[mine.length - 1];
+            System.arraycopy(mine, 0, all, position, count);
+            position += count;
+        }
+        Arrays.sort(all);
+        System.out.printf("  бронирований %d, занято %d из %d мест за %d мс; задержка p50 %.1f мкс, p99 %.1f мкс, max %.1f мкс%n",
+                total, map.getReservedCount(), map.getCapacity(), totalNanos / 1_000_000,
+                all[total / 2] / 1e3, all[(int) (total * 0.99)] / 1e3, all[total - 1] / 1e3);
+    }
+}
@@ -0,0 +1,57 @@
+package com.business_app;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Стоимость удержаний при большом числе одновременно действующих: создание удержания и один тик истечения.
+// Время задается вручную (тик 100 мс), сроки удержаний - случайные от 1 до 15 минут; часть удержаний оплачивается.
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.TicketHoldBenchmark
+//         -Dbenchmark.args="500000"
+public class TicketHoldBenchmark {
+
+    public static void main(String[] args) {
+        int holdCount = args.length == 0 ? 500_000 : Integer.parseInt(args[0]);
+        for (int round = 0; round < 3; round++) {
+            run(holdCount);
+        }
+    }
+
+    private static void run(int holdCount) {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        TicketHoldManager manager = new TicketHoldManager(100, now::get);
+        Premiere premiere = new Premiere("bench", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", holdCount * 2);
+        Random random = new Random(1);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < holdCount; i++) {
+            TicketHold hold = manager.hold(premiere, 2, Duration.ofSeconds(60 + random.nextInt(840)));
+            if (random.nextInt(3) == 0) {
+                manager.confirm(hold.getId());
+            }
+        }
+        long holdNanos = System.nanoTime() - started;
+        int active = manager.getActiveHoldCount();
+
+        // Проходим 15 минут по одному тику; самый долгий тик показывает, что стоимость не зависит от числа удержаний
+        long worstTick = 0;
+        long totalTicks = 0;
+        started = System.nanoTime();
+        for (int tick = 0; tick < 9_000; tick++) {
+            now.addAndGet(100);
+            long tickStarted = System.nanoTime();
+            manager.expireHolds();
+            worstTick = Math.max(worstTick, System.nanoTime() - tickStarted);
+            totalTicks++;
+        }
+        long expireNanos = System.nanoTime() - started;
+        if (manager.getActiveHoldCount() != 0 || premiere.getTicketHeld() != 0
+                || premiere.getTicketCount() + premiere.getTicketSold() != holdCount * 2) {
+            throw new IllegalStateException("Удержания истекли не полностью");
+        }
+        System.out.printf("  удержаний %d (действующих %d): создание %.0f нс/шт, тик в среднем %.1f мкс, худший %.1f мкс,"
+                        + " истекло %d%n", holdCount, active, holdNanos / (double) holdCount,
+                expireNanos / 1e3 / totalTicks, worstTick / 1e3, manager.getExpiredCount());
+    }
+}
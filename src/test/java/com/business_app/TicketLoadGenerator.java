@@ -0,0 +1,254 @@
+package com.business_app;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Генератор нагрузки на продажу билетов: buyers покупателей приходят с частотой rate в секунду (открытая модель:
+// следующий покупатель приходит по расписанию, даже если предыдущие еще не обслужены) и выполняют
+// покупку, возврат или удержание с оплатой/отказом по заданной доле. Премьеры ищутся через PremiereManager.
+// Каждый покупатель - отдельная задача: на JDK 21+ - виртуальный поток, на JDK 17 - задача в пуле
+// из poolSize потоков платформы. В конце печатаются пропускная способность, перцентили задержки
+// по каждой операции и найденные нарушения (продажи сверх наличия, расхождение счетчиков).
+// Запуск без интерфейса: mvn -Pload-test verify -DskipTests
+//         -Dload.args="buyers=100000 rate=20000 mix=sale:70,return:15,hold:15 premieres=50 tickets=4000 pool=64"
+public class TicketLoadGenerator {
+
+    private enum Operation { SALE, RETURN, HOLD }
+
+    private final int buyers;
+    private final int rate;
+    private final int[] mix = new int[Operation.values().length]; // Накопленные доли операций, в процентах
+    private final int premiereCount;
+    private final int ticketsPerPremiere;
+    private final int poolSize;
+
+    private final PremiereManager premiereManager = new PremiereManager();
+    private final TicketHoldManager holdManager = new TicketHoldManager();
+    private final List<String> premiereIds = new ArrayList<>();
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> succeeded = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+    private final LatencyHistogram arrivalLag = new LatencyHistogram(); // Опоздание начала обслуживания покупателя
+    private final LongAdder violations = new LongAdder();
+    // Чистые продажи по премьерам, посчитанные самими покупателями - сверяются со счетчиками Premiere
+    private final Map<String, LongAdder> soldByBuyers = new ConcurrentHashMap<>();
+
+    public TicketLoadGenerator(int buyers, int rate, String mix, int premiereCount, int ticketsPerPremiere, int poolSize) {
+        this.buyers = buyers;
+        this.rate = rate;
+        this.premiereCount = premiereCount;
+        this.ticketsPerPremiere = ticketsPerPremiere;
+        this.poolSize = poolSize;
+        parseMix(mix);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            succeeded.put(operation, new LongAdder());
+            rejected.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("Параметр должен иметь вид имя=значение: " + arg);
+            }
+            options.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+        TicketLoadGenerator generator = new TicketLoadGenerator(
+                Integer.parseInt(options.getOrDefault("buyers", "100000")),
+                Integer.parseInt(options.getOrDefault("rate", "20000")),
+                options.getOrDefault("mix", "sale:70,return:15,hold:15"),
+                Integer.parseInt(options.getOrDefault("premieres", "50")),
+                Integer.parseInt(options.getOrDefault("tickets", "4000")),
+                Integer.parseInt(options.getOrDefault("pool", "64")));
+        boolean clean = generator.run();
+        if (!clean) {
+            System.exit(1); // Нарушения делают сборку красной
+        }
+    }
+
+    public boolean run() throws InterruptedException {
+        for (int i = 0; i < premiereCount; i++) {
+            Premiere premiere = new Premiere("load-" + i, "Фильм " + i, ZonedDateTime.now().plusDays(1), "Зал " + i, ticketsPerPremiere);
+            premiereManager.getPremiereMap().put(premiere.getId(), premiere);
+            premiereIds.add(premiere.getId());
+            soldByBuyers.put(premiere.getId(), new LongAdder());
+        }
+        PrintStream console = System.out;
+        Logger.getLogger("").setLevel(Level.OFF); // Предупреждения о распроданных билетах не нужны в замере
+        ExecutorService executor = newBuyerExecutor();
+        console.println("Покупателей: " + buyers + ", частота: " + rate + "/с, премьер: " + premiereCount
+                + " по " + ticketsPerPremiere + " билетов, исполнитель: " + describe(executor)
+                + ", ядер: " + Runtime.getRuntime().availableProcessors());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread monitor = new Thread(() -> {
+            // Во время нагрузки проверяем, что ни одна премьера не продана сверх мест
+            while (running.get()) {
+                for (String id : premiereIds) {
+                    Premiere premiere = premiereManager.getPremiereMap().get(id);
+                    if (premiere.getTicketCount() < 0 || premiere.getTicketSold() > ticketsPerPremiere) {
+                        violations.increment();
+                    }
+                }
+                LockSupport.parkNanos(1_000_000);
+            }
+        }, "load-monitor");
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Сообщения Premiere о продажах подавляем
+        long started = System.nanoTime();
+        try {
+            monitor.start();
+            long interval = 1_000_000_000L / rate;
+            for (int i = 0; i < buyers; i++) {
+                long scheduled = started + i * interval;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                executor.execute(() -> serveBuyer(scheduled));
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        } finally {
+            running.set(false);
+            System.setOut(console);
+        }
+        long elapsed = System.nanoTime() - started;
+        monitor.join();
+        holdManager.close();
+
+        long operations = 0;
+        for (Operation operation : Operation.values()) {
+            operations += latencies.get(operation).getCount();
+        }
+        console.printf("Время: %.2f с, операций: %d, пропускная способность: %.0f операций/с%n",
+                elapsed / 1e9, operations, operations * 1e9 / elapsed);
+        for (Operation operation : Operation.values()) {
+            console.printf("  %-6s успешно %7d, отказов %7d; %s%n", operation, succeeded.get(operation).sum(),
+                    rejected.get(operation).sum(), latencies.get(operation).summary());
+        }
+        console.println("  Опоздание начала обслуживания: " + arrivalLag.summary());
+        checkCounters();
+        console.println("Нарушений: " + violations.sum());
+        return violations.sum() == 0;
+    }
+
+    // Один покупатель: выбирает премьеру и операцию по заданной доле
+    private void serveBuyer(long scheduledNanos) {
+        long started = System.nanoTime();
+        arrivalLag.record(started - scheduledNanos);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String premiereId = premiereIds.get(random.nextInt(premiereIds.size()));
+        Premiere premiere = premiereManager.getPremiereMap().get(premiereId);
+        int count = 1 + random.nextInt(4);
+        Operation operation = pickOperation(random.nextInt(100));
+        boolean done;
+        switch (operation) {
+            case SALE:
+                done = premiere.sellTickets(count);
+                if (done) {
+                    soldByBuyers.get(premiereId).add(count);
+                }
+                break;
+            case RETURN:
+                // Возврат ранее купленных: покупатель сначала покупает, затем сдает часть билетов
+                done = premiere.sellTickets(count);
+                if (done) {
+                    soldByBuyers.get(premiereId).add(count);
+                    premiere.returnTickets(1, count, true);
+                    soldByBuyers.get(premiereId).decrement();
+                }
+                break;
+            default:
+                TicketHold hold = holdManager.hold(premiere, count, Duration.ofMinutes(5));
+                done = hold != null;
+                if (done) {
+                    if (random.nextInt(3) == 0) {
+                        holdManager.release(hold.getId()); // Покупатель передумал
+                    } else {
+                        holdManager.confirm(hold.getId());
+                        soldByBuyers.get(premiereId).add(count);
+                    }
+                }
+                break;
+        }
+        latencies.get(operation).record(System.nanoTime() - started);
+        (done ? succeeded : rejected).get(operation).increment();
+    }
+
+    // Итоговая сверка: проданные билеты совпадают с подсчетом покупателей, места не потеряны
+    private void checkCounters() {
+        for (String id : premiereIds) {
+            Premiere premiere = premiereManager.getPremiereMap().get(id);
+            long expected = soldByBuyers.get(id).sum();
+            if (premiere.getTicketSold() != expected || premiere.getTicketHeld() != 0
+                    || premiere.getTicketSold() + premiere.getTicketCount() != ticketsPerPremiere) {
+                violations.increment();
+                System.out.println("  Расхождение по премьере " + id + ": продано " + premiere.getTicketSold()
+                        + " (ожидалось " + expected + "), доступно " + premiere.getTicketCount()
+                        + ", удержано " + premiere.getTicketHeld());
+            }
+        }
+    }
+
+    private Operation pickOperation(int percent) {
+        for (Operation operation : Operation.values()) {
+            if (percent < mix[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return Operation.SALE;
+    }
+
+    // Формат доли: sale:70,return:15,hold:15 (сумма - 100)
+    private void parseMix(String text) {
+        int[] shares = new int[mix.length];
+        for (String part : text.split(",")) {
+            String[] pair = part.split(":");
+            shares[Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        int total = 0;
+        for (int i = 0; i < shares.length; i++) {
+            total += shares[i];
+            mix[i] = total;
+        }
+        if (total != 100) {
+            throw new IllegalArgumentException("Сумма долей операций должна быть 100, а не " + total + ".");
+        }
+    }
+
+    // Виртуальные потоки (JDK 21+) или пул потоков платформы на JDK 17
+    private ExecutorService newBuyerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(poolSize);
+        }
+    }
+
+    private String describe(ExecutorService executor) {
+        return executor.getClass().getSimpleName().contains("ThreadPool")
+                ? "пул из " + poolSize + " потоков (виртуальные потоки недоступны в JDK " + Runtime.version().feature() + ")"
+                : "виртуальные потоки";
+    }
+}
@@ -0,0 +1,95 @@
+package com.business_app;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntPredicate;
+
+// Пропускная способность продажи билетов по одному при росте числа потоков (все покупают одну премьеру):
+// атомарный счетчик Premiere (compareAndSet), корзины по ядрам (SHARDED) и прежняя проверка под synchronized.
+// Второй аргумент - число корзин (по умолчанию по числу ядер).
+// Запуск: mvn -Pbenchmark verify -DskipTests -Dbenchmark.class=com.business_app.TicketSalesBenchmark
+//         -Dbenchmark.args="2000000 16"
+public class TicketSalesBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8, 64, 256};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int salesPerRound = args.length == 0 ? 2_000_000 : Integer.parseInt(args[0]);
+        int shards = args.length < 2 ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[1]);
+        System.out.println("Продаж за раунд: " + salesPerRound + ", ядер: " + Runtime.getRuntime().availableProcessors()
+                + ", корзин: " + shards);
+        for (int threads : THREAD_COUNTS) {
+            double cas = 0;
+            double sharded = 0;
+            double locked = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                Premiere premiere = new Premiere("bench", "Фильм", ZonedDateTime.now().plusDays(1), "Зал", salesPerRound);
+                cas = Math.max(cas, run(threads, salesPerRound, premiere::sellTickets));
+                check(premiere.getTicketSold(), premiere.getTicketCount(), salesPerRound);
+                ShardedTicketInventory inventory = new ShardedTicketInventory(0, salesPerRound, shards);
+                sharded = Math.max(sharded, run(threads, salesPerRound, inventory::trySell));
+                check(inventory.getSold(), inventory.getAvailable(), salesPerRound);
+                LockedCounter counter = new LockedCounter(salesPerRound);
+                locked = Math.max(locked, run(threads, salesPerRound, counter::sell));
+            }
+            System.out.printf("  потоков %3d: CAS %6.1f млн/с, корзины %6.1f млн/с, synchronized %6.1f млн/с%n",
+                    threads, cas / 1e6, sharded / 1e6, locked / 1e6);
+        }
+    }
+
+    private static void check(int sold, int available, int expectedSold) {
+        if (sold != expectedSold || available != 0) {
+            throw new IllegalStateException("Счетчики разошлись: " + sold + "/" + available);
+        }
+    }
+
+    // Продаж в секунду: потоки делят salesPerRound продаж поровну
+    private static double run(int threads, int salesPerRound, IntPredicate sell) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int sales = salesPerRound / threads + (t < salesPerRound % threads ? 1 : 0);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < sales; i++) {
+                    if (!sell.test(1)) {
+                        throw new IllegalStateException("Билеты закончились раньше времени");
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return salesPerRound * 1e9 / (System.nanoTime() - started);
+    }
+
+    // Прежняя логика Premiere (проверка, затем запись двух полей), защищенная монитором
+    private static final class LockedCounter {
+        private int ticketCount;
+        private int ticketSold;
+
+        private LockedCounter(int ticketCount) {
+            this.ticketCount = ticketCount;
+        }
+
+        private synchronized boolean sell(int count) {
+            if (ticketSold + count > ticketCount) {
+                return false;
+            }
+            ticketSold += count;
+            return true;
+        }
+    }
+}